@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.context.generators;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput benchmark of the {@link TransactionIdGenerator} implementations compared with
+ * {@link UUID#randomUUID()}, that was used to generate the transaction IDs before the generators existed.
+ *
+ * The contention of {@link UUID#randomUUID()} (it shares a {@link java.security.SecureRandom}) only shows up
+ * with several threads, so it should be run with the JMH option <code>-t</code> too:
+ * {@code mvn -P benchmark test-compile exec:exec -Djmh.args="TransactionIdGeneratorBenchmark -t 8"}
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class TransactionIdGeneratorBenchmark {
+
+	private final TransactionIdGenerator randomUUIDGenerator = new RandomUUIDGenerator();
+
+	private final TransactionIdGenerator timeOrderedUUIDGenerator = new TimeOrderedUUIDGenerator();
+
+	private final TransactionIdGenerator snowflakeGenerator = new SnowflakeGenerator(1);
+
+	@Benchmark
+	public String uuidRandomUUID() {
+		return UUID.randomUUID().toString();
+	}
+
+	@Benchmark
+	public String randomUUIDGenerator() {
+		return randomUUIDGenerator.generate();
+	}
+
+	@Benchmark
+	public String timeOrderedUUIDGenerator() {
+		return timeOrderedUUIDGenerator.generate();
+	}
+
+	@Benchmark
+	public String snowflakeGenerator() {
+		return snowflakeGenerator.generate();
+	}
+
+}
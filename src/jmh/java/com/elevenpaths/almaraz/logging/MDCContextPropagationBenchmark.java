@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.logging;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.elevenpaths.almaraz.context.RequestContext;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
+
+/**
+ * Benchmark of the automatic MDC propagation ({@link MDCContextPropagation}) compared with {@link ReactiveLogger},
+ * that copies the {@link RequestContext} into MDC for every log statement.
+ *
+ * Each operation is a reactive stream that hops once to another thread and writes a number of log statements:
+ * with {@link ReactiveLogger#logOnNext(java.util.function.Consumer)} or with a plain log statement (when the
+ * automatic propagation is enabled).
+ *
+ * Run with: {@code mvn -P benchmark test-compile exec:exec -Djmh.args="MDCContextPropagationBenchmark"}
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+@Slf4j
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class MDCContextPropagationBenchmark {
+
+	/**
+	 * Number of log statements per thread hop.
+	 */
+	@Param({ "1", "4", "16" })
+	private int logStatements;
+
+	/**
+	 * If true, the automatic MDC propagation is enabled and the statements are logged without
+	 * {@link ReactiveLogger}.
+	 */
+	@Param({ "false", "true" })
+	private boolean automaticPropagation;
+
+	private RequestContext requestContext;
+
+	@Setup
+	public void setup() {
+		requestContext = new RequestContext()
+				.setTransactionId("bench-trans")
+				.setCorrelator("bench-corr")
+				.setOperation("bench-op")
+				.setService("bench-svc")
+				.setComponent("bench-comp");
+		if (automaticPropagation) {
+			MDCContextPropagation.enable();
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		MDCContextPropagation.disable();
+	}
+
+	@Benchmark
+	public Integer log() {
+		Flux<Integer> flux = Flux.range(0, logStatements)
+				.publishOn(Schedulers.parallel());
+		flux = automaticPropagation
+				? flux.doOnNext(i -> log.info("Statement {}", i))
+				: flux.doOnEach(ReactiveLogger.logOnNext(i -> log.info("Statement {}", i)));
+		return flux
+				.contextWrite(Context.of(RequestContext.class, requestContext))
+				.blockLast();
+	}
+
+}
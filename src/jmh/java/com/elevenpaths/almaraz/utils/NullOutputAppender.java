@@ -0,0 +1,27 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.utils;
+
+import java.io.OutputStream;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+
+/**
+ * Appender that encodes the log entries (with the configured encoder) but discards the output. It is used by
+ * the benchmarks to include the cost of formatting the log entries without the noise of the I/O.
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class NullOutputAppender extends OutputStreamAppender<ILoggingEvent> {
+
+	@Override
+	public void start() {
+		setOutputStream(OutputStream.nullOutputStream());
+		super.start();
+	}
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.webfilters;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.info.BuildProperties;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebHandler;
+import org.springframework.web.server.handler.DefaultWebFilterChain;
+
+import com.elevenpaths.almaraz.exceptions.NotFoundException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Benchmark of {@link AlmarazWebFilter} compared with the pipeline of the separate web filters that it fuses.
+ * Both pipelines are built with the same web filter settings, so they process the request in the same way and
+ * log the same entries (see {@code AlmarazWebFilterTest}).
+ *
+ * Run with: {@code mvn -P benchmark test-compile exec:exec -Djmh.args="AlmarazWebFilterBenchmark"}
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class AlmarazWebFilterBenchmark {
+
+	private static final String BASE_PATH = "/api";
+
+	/**
+	 * Outcome of the request: a successful response or an error handled by the {@link ErrorWebFilter}.
+	 */
+	@Param({ "ok", "error" })
+	private String outcome;
+
+	private WebHandler handler;
+
+	private ErrorWebFilter separateErrorWebFilter;
+
+	private ErrorWebFilter fusedErrorWebFilter;
+
+	private List<WebFilter> separateFilters;
+
+	private List<WebFilter> fusedFilters;
+
+	@Setup
+	public void setup() {
+		ObjectMapper objectMapper = new ObjectMapper();
+		Properties properties = new Properties();
+		properties.put("version", "1.0");
+		BuildProperties buildProperties = new BuildProperties(properties);
+
+		handler = "ok".equals(outcome)
+				? e -> {
+					e.getResponse().setStatusCode(HttpStatus.OK);
+					return e.getResponse().setComplete();
+				}
+				: e -> Mono.error(new NotFoundException());
+
+		separateErrorWebFilter = new ErrorWebFilter(objectMapper);
+		separateFilters = Arrays.asList(
+				new VersionWebFilter(objectMapper, buildProperties),
+				new RequestContextWebFilter(),
+				new LoggerWebFilter(),
+				separateErrorWebFilter,
+				new CompleteLocationHeaderWebFilter(),
+				new BasePathWebFilter(BASE_PATH));
+		fusedErrorWebFilter = new ErrorWebFilter(objectMapper);
+		fusedFilters = Arrays.asList(new AlmarazWebFilter(
+				new VersionWebFilter(objectMapper, buildProperties),
+				new RequestContextWebFilter(),
+				new LoggerWebFilter(),
+				fusedErrorWebFilter,
+				new CompleteLocationHeaderWebFilter(),
+				new BasePathWebFilter(BASE_PATH)));
+	}
+
+	@TearDown
+	public void tearDown() {
+		separateErrorWebFilter.close();
+		fusedErrorWebFilter.close();
+	}
+
+	@Benchmark
+	public MockServerWebExchange separateFilters() {
+		return filter(separateFilters);
+	}
+
+	@Benchmark
+	public MockServerWebExchange almarazWebFilter() {
+		return filter(fusedFilters);
+	}
+
+	private MockServerWebExchange filter(List<WebFilter> filters) {
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest
+				.get("/api/resources/1")
+				.header(RequestContextWebFilter.DEFAULT_CORRELATOR_HEADER, "bench-corr"));
+		new DefaultWebFilterChain(handler, filters).filter(exchange).block();
+		return exchange;
+	}
+
+}
@@ -14,6 +14,8 @@ import org.springframework.web.server.WebFilter;
 
 import com.elevenpaths.almaraz.context.RequestContext;
 import com.elevenpaths.almaraz.context.aspects.OperationRequestContextAspect;
+import com.elevenpaths.almaraz.context.generators.RandomUUIDGenerator;
+import com.elevenpaths.almaraz.context.generators.TransactionIdGenerator;
 import com.elevenpaths.almaraz.resolvers.ValidRequestBody;
 import com.elevenpaths.almaraz.resolvers.ValidRequestBodyResolver;
 import com.elevenpaths.almaraz.validation.JsonSchemaRepository;
@@ -41,7 +43,10 @@ import com.fasterxml.jackson.databind.ObjectMapper;
  * <li>BasePathWebFilter (50)</li>
  * </ul>
  *
- * It also creates the bean {@link JsonSchemaValidator} to validate against JSON schemas.
+ * It also creates the bean {@link JsonSchemaValidator} to validate against JSON schemas and the bean
+ * {@link TransactionIdGenerator} used by {@link RequestContextWebFilter}. To use another generator, override
+ * {@link #getTransactionIdGenerator()} in a subclass: a {@link TransactionIdGenerator} bean declared in another
+ * configuration class is not used by {@link RequestContextWebFilter}.
  * It configures the custom resolver {@link ValidRequestBodyResolver} to validate and bind
  * a request body to an entity class using the decorator {@link ValidRequestBody} in a
  * controller.
@@ -139,6 +144,18 @@ public class AlmarazConfiguration implements WebFluxConfigurer {
 		return new VersionWebFilter(objectMapper, buildProperties);
 	}
 
+	/**
+	 * Get the {@link TransactionIdGenerator} to generate the transaction ID of each request.
+	 * By default, it generates random UUIDs with {@link RandomUUIDGenerator}. Override this method in a subclass
+	 * to use another generator in {@link #getContextWebFilter()}.
+	 *
+	 * @return TransactionIdGenerator
+	 */
+	@Bean
+	public TransactionIdGenerator getTransactionIdGenerator() {
+		return new RandomUUIDGenerator();
+	}
+
 	/**
 	 * Get the {@link RequestContextWebFilter} that generates the reactive context
 	 * and initializes it with the correlator and transactionId.
@@ -148,7 +165,7 @@ public class AlmarazConfiguration implements WebFluxConfigurer {
 	@Order(10)
 	@Bean
 	public RequestContextWebFilter getContextWebFilter() {
-		return new RequestContextWebFilter();
+		return new RequestContextWebFilter(null, null, getTransactionIdGenerator());
 	}
 
 	/**
@@ -164,19 +181,21 @@ public class AlmarazConfiguration implements WebFluxConfigurer {
 
 	/**
 	 * Get the {@link ErrorWebFilter} that handles exceptions to generate an
-	 * error response.
+	 * error response. It is closed when the bean is destroyed.
 	 *
 	 * @return {@link WebFilter} to handle errors.
 	 */
 	@Order(30)
-	@Bean
+	@Bean(destroyMethod = "close")
 	public ErrorWebFilter getErrorWebFilter() {
 		return new ErrorWebFilter(objectMapper);
 	}
 
 	/**
 	 * Get the {@link CompleteLocationHeaderWebFilter} that updates the location header
-	 * if it is a relative path.
+	 * if it is a relative path. It processes all the HTTP methods (e.g. also redirects on GET). Override it
+	 * with {@link CompleteLocationHeaderWebFilter#LOCATION_METHODS} to restrict it to the methods that usually
+	 * create resources.
 	 *
 	 * @return {@link WebFilter} to complete the location HTTP header.
 	 */
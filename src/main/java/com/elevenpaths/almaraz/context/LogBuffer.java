@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.context;
+
+import org.slf4j.event.Level;
+
+/**
+ * Buffer of log entries of a request, stored in the {@link RequestContext} (see
+ * {@link RequestContext#setDebugLogBuffer(LogBuffer)}). The context only depends on this interface, not on the
+ * logging implementation (e.g. {@code DebugLogBuffer} of the logging package).
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public interface LogBuffer {
+
+	/**
+	 * Append a log entry if it must be buffered.
+	 *
+	 * @param requestContext request context where the log entry is generated
+	 * @param level level of the log entry
+	 * @param entry log entry (it writes the log when it is run)
+	 * @return true if the entry was buffered, false if it must be written directly
+	 */
+	boolean add(RequestContext requestContext, Level level, Runnable entry);
+
+	/**
+	 * Write the buffered entries and empty the buffer.
+	 */
+	void flush();
+
+	/**
+	 * Discard the buffered entries.
+	 */
+	void discard();
+
+}
@@ -4,10 +4,20 @@
 
 package com.elevenpaths.almaraz.context;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Duration;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
 
 /**
  * Basic context with relevant information about the request/response.
@@ -17,6 +27,22 @@ import reactor.core.publisher.Mono;
  * or to extend the class (to provide get/set methods). In both cases, the {@link #contextMap} must store
  * all the context information.
  *
+ * The predefined {@link ContextField} keys are stored in fixed slots of an array (indexed by the field) so that
+ * the most common properties are read and written without hashing the key or allocating map nodes. Custom keys
+ * are stored in an overflow map that is only created when needed. The {@link #contextMap} is a {@link Map} view
+ * over both storages.
+ *
+ * Values are stored with their native type ({@link String}, {@link Long}, {@link Boolean} or any other object) and
+ * they are only converted to {@link String} when they are read as {@link String}: either with {@link #getString(String)}
+ * or through the {@link #contextMap} (e.g. when MDC is populated to write a log entry). This way, values like counters
+ * or latencies are not formatted if no log entry is finally written.
+ *
+ * The context is safe to be updated concurrently (e.g. from parallel operators inside the same request) without any
+ * lock: slots are read and written with acquire/release semantics and the overflow map is an immutable map that is
+ * replaced (copy-on-write) with compare-and-set. Reading a property costs the same as reading a field. The
+ * {@link #contextMap} iteration is weakly consistent: it never fails while the context is being updated, but it may
+ * not reflect updates done during the iteration.
+ *
  * {@link RequestContext} is a fluent API.
  *
  * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
@@ -24,17 +50,130 @@ import reactor.core.publisher.Mono;
  */
 public class RequestContext {
 
+	/**
+	 * Keys of the predefined context fields. The position of each key is the index of its slot in {@link #slots}.
+	 */
+	private static final String[] SLOT_KEYS = {
+			ContextField.TRANSACTION_ID,
+			ContextField.CORRELATOR,
+			ContextField.OPERATION,
+			ContextField.SERVICE,
+			ContextField.COMPONENT,
+			ContextField.USER,
+			ContextField.REALM,
+			ContextField.ERROR,
+			ContextField.REASON,
+			ContextField.ALARM,
+			ContextField.METHOD,
+			ContextField.PATH,
+			ContextField.QUERY,
+			ContextField.URL,
+			ContextField.ADDRESS,
+			ContextField.STATUS,
+			ContextField.LATENCY
+	};
+
+	/**
+	 * {@link VarHandle} to access the {@link #slots} elements with memory ordering guarantees.
+	 */
+	private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(Object[].class);
+
+	/**
+	 * {@link VarHandle} to replace the {@link #overflowMap} with compare-and-set.
+	 */
+	private static final VarHandle OVERFLOW_MAP;
+
+	static {
+		try {
+			OVERFLOW_MAP = MethodHandles.lookup().findVarHandle(RequestContext.class, "overflowMap", Map.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	/**
+	 * Shared read-only context used when the reactive context does not contain a {@link RequestContext}.
+	 * Any update on this instance is discarded.
+	 */
+	private static final RequestContext EMPTY = new RequestContext(true);
+
+	/**
+	 * Reactive {@link RequestContext} from the reactor context. It is reused by {@link #context()}.
+	 */
+	private static final Mono<RequestContext> CONTEXT = Mono.deferContextual(ctxt -> Mono.just(from(ctxt)));
+
+	/**
+	 * Values of the predefined context fields (see {@link #SLOT_KEYS}). A null value means that the property
+	 * is not set.
+	 */
+	private final Object[] slots;
+
+	/**
+	 * Values of the custom context properties. It is lazily created with the first custom property.
+	 * The map is never modified: it is replaced by an updated copy (see {@link #putValue(String, Object)}).
+	 */
+	private volatile Map<String, Object> overflowMap;
+
 	/**
 	 * Context map with all the context properties.
 	 * Property values must be {@link String} due to a limitation of MDC (Mapped Diagnostic Context).
+	 * It is a view over {@link #slots} and {@link #overflowMap} that converts the values to {@link String}
+	 * when they are read.
+	 */
+	private final Map<String, String> contextMap;
+
+	/**
+	 * If true, updates on the context are discarded (see {@link #EMPTY}).
+	 */
+	private final boolean readOnly;
+
+	/**
+	 * Buffer of the log entries with a low level (e.g. debug) that are only written if the request fails.
+	 * It is not a context property (it is not part of the {@link #contextMap}).
+	 */
+	private volatile LogBuffer debugLogBuffer;
+
+	/**
+	 * Deadline of the request, in nanoseconds of the monotonic clock {@link System#nanoTime()}, or null if the
+	 * request has no timeout. It is not a context property (it is not part of the {@link #contextMap}).
+	 */
+	private volatile Long deadline;
+
+	/**
+	 * Sampling decision of the access logs, or null if not decided yet. It is not a context property (it is not
+	 * part of the {@link #contextMap}) so that it is not added to every log entry.
 	 */
-	private Map<String, String> contextMap;
+	private volatile Boolean sampled;
 
 	/**
 	 * Constructor.
 	 */
 	public RequestContext() {
-		this.contextMap = new HashMap<>();
+		this(false);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param readOnly
+	 */
+	private RequestContext(boolean readOnly) {
+		this.slots = new Object[SLOT_KEYS.length];
+		this.contextMap = new ContextMap();
+		this.readOnly = readOnly;
+	}
+
+	/**
+	 * Constructor of a read-only snapshot of the context properties (see {@link #getContextMapSnapshot()}).
+	 *
+	 * @param source
+	 */
+	private RequestContext(RequestContext source) {
+		this(true);
+		for (int i = 0; i < slots.length; i++) {
+			slots[i] = source.getSlot(i);
+		}
+		this.overflowMap = source.overflowMap;
 	}
 
 	/**
@@ -170,6 +309,28 @@ public class RequestContext {
 		return getString(ContextField.REALM);
 	}
 
+	/**
+	 * Set the sampling decision of the access logs. It is ignored if the context is read-only.
+	 *
+	 * @param sampled
+	 * @return {@link RequestContext}
+	 */
+	public RequestContext setSampled(Boolean sampled) {
+		if (!readOnly) {
+			this.sampled = sampled;
+		}
+		return this;
+	}
+
+	/**
+	 * Get the sampling decision of the access logs.
+	 *
+	 * @return sampling decision or null if not decided yet
+	 */
+	public Boolean getSampled() {
+		return sampled;
+	}
+
 	/**
 	 * Set a context property directly in the {@link #contextMap}.
 	 *
@@ -178,31 +339,31 @@ public class RequestContext {
 	 * @return {@link RequestContext}
 	 */
 	public RequestContext put(String key, String value) {
-		contextMap.put(key, value);
-		return this;
+		return putValue(key, value);
 	}
 
 	/**
 	 * Get a context property directly from the {@link #contextMap}.
+	 * If the value was not stored as a {@link String}, it is converted with {@link Object#toString()}.
 	 *
 	 * @param key
 	 * @return Value of the context property as {@link String}
 	 */
 	public String getString(String key) {
-		return contextMap.get(key);
+		return asString(getValue(key));
 	}
 
 	/**
 	 * Set a {@link Long} context property directly in the {@link #contextMap}.
-	 * The value is stored in the map as a {@link String} due to MDC limitations.
+	 * The value is stored as a {@link Long} and it is only converted to {@link String} when read as a string
+	 * (e.g. by MDC).
 	 *
 	 * @param key
 	 * @param value
 	 * @return {@link RequestContext}
 	 */
 	public RequestContext put(String key, Long value) {
-		String strValue = (value == null) ? null : Long.toString(value);
-		return put(key, strValue);
+		return putValue(key, value);
 	}
 
 	/**
@@ -212,24 +373,34 @@ public class RequestContext {
 	 * @return Value of the context property as {@link Long}
 	 */
 	public Long getLong(String key) {
+		Object value = getValue(key);
+		if (value instanceof Long) {
+			return (Long) value;
+		}
+		if (value instanceof Number) {
+			return ((Number) value).longValue();
+		}
+		if (value == null) {
+			return null;
+		}
 		try {
-			return Long.valueOf(getString(key));
-		} catch (NullPointerException | NumberFormatException e) {
+			return Long.valueOf(value.toString());
+		} catch (NumberFormatException e) {
 			return null;
 		}
 	}
 
 	/**
 	 * Set a {@link Boolean} context property directly in the {@link #contextMap}.
-	 * The value is stored in the map as a {@link String} due to MDC limitations.
+	 * The value is stored as a {@link Boolean} and it is only converted to {@link String} when read as a string
+	 * (e.g. by MDC).
 	 *
 	 * @param key
 	 * @param value
 	 * @return {@link RequestContext}
 	 */
 	public RequestContext put(String key, Boolean value) {
-		String strValue = (value == null) ? null : Boolean.toString(value);
-		return put(key, strValue);
+		return putValue(key, value);
 	}
 
 	/**
@@ -239,8 +410,92 @@ public class RequestContext {
 	 * @return Value of the context property as {@link Boolean}.
 	 */
 	public Boolean getBoolean(String key) {
-		return Boolean.valueOf(getString(key));
+		Object value = getValue(key);
+		if (value instanceof Boolean) {
+			return (Boolean) value;
+		}
+		return Boolean.valueOf(asString(value));
+	}
+
+	/**
+	 * Set a context property of any type directly in the {@link #contextMap}.
+	 * The value is converted to {@link String}, with {@link Object#toString()}, only when read as a string
+	 * (e.g. by MDC). Note that the value should be immutable because the conversion is delayed.
+	 *
+	 * @param key
+	 * @param value
+	 * @return {@link RequestContext}
+	 */
+	public RequestContext put(String key, Object value) {
+		return putValue(key, value);
+	}
+
+	/**
+	 * Get a context property directly from the {@link #contextMap} without any conversion.
+	 *
+	 * @param key
+	 * @return Value of the context property as it was stored
+	 */
+	public Object getObject(String key) {
+		return getValue(key);
+	}
+
+	/**
+	 * Set the buffer of debug log entries of the request. It is ignored if the context is read-only.
+	 *
+	 * @param debugLogBuffer
+	 * @return {@link RequestContext}
+	 */
+	public RequestContext setDebugLogBuffer(LogBuffer debugLogBuffer) {
+		if (!readOnly) {
+			this.debugLogBuffer = debugLogBuffer;
+		}
+		return this;
+	}
+
+	/**
+	 * Get the buffer of debug log entries of the request.
+	 *
+	 * @return {@link LogBuffer} or null if debug log buffering is not enabled for the request
+	 */
+	public LogBuffer getDebugLogBuffer() {
+		return debugLogBuffer;
+	}
+
+	/**
+	 * Set the deadline of the request. It is ignored if the context is read-only.
+	 *
+	 * @param deadline deadline in nanoseconds of the monotonic clock {@link System#nanoTime()}
+	 * @return {@link RequestContext}
+	 */
+	public RequestContext setDeadline(Long deadline) {
+		if (!readOnly) {
+			this.deadline = deadline;
+		}
+		return this;
+	}
 
+	/**
+	 * Get the deadline of the request.
+	 *
+	 * @return deadline in nanoseconds of the monotonic clock {@link System#nanoTime()} or null if the request
+	 *         has no timeout
+	 */
+	public Long getDeadline() {
+		return deadline;
+	}
+
+	/**
+	 * Get the remaining time until the deadline of the request.
+	 *
+	 * @return remaining time ({@link Duration#ZERO} if the deadline expired) or null if the request has no timeout
+	 */
+	public Duration getRemainingTime() {
+		Long deadline = this.deadline;
+		if (deadline == null) {
+			return null;
+		}
+		return Duration.ofNanos(Math.max(0, deadline - System.nanoTime()));
 	}
 
 	/**
@@ -252,15 +507,310 @@ public class RequestContext {
 		return this.contextMap;
 	}
 
+	/**
+	 * Retrieve a read-only snapshot of the {@link #contextMap}. Later updates of the context are not visible in
+	 * the snapshot. It is cheaper than copying the context map into a new {@link Map} because it only copies the
+	 * slots of the predefined fields and the reference to the immutable {@link #overflowMap}.
+	 *
+	 * @return Read-only {@link Map} with the context properties at the time of the invocation.
+	 */
+	public Map<String, String> getContextMapSnapshot() {
+		return Collections.unmodifiableMap(new RequestContext(this).contextMap);
+	}
 
 	/**
 	 * Retrieve the context from the reactive stream.
+	 * If the reactive context does not contain a {@link RequestContext}, it returns a shared read-only empty
+	 * context (see {@link #empty()}).
+	 * The returned {@link Mono} is a shared instance: it does not allocate any operator per invocation.
 	 *
 	 * @return Reactive {@link RequestContext} from reactor context.
 	 */
 	public static Mono<RequestContext> context() {
-		return Mono.deferContextual(Mono::just)
-				.map(ctxt -> ctxt.getOrDefault(RequestContext.class, new RequestContext()));
+		return CONTEXT;
+	}
+
+	/**
+	 * Retrieve the context synchronously from a reactor context view. This is convenient for code that already
+	 * has access to the reactor context (e.g. inside {@link Mono#deferContextual} or with a signal).
+	 * If the reactive context does not contain a {@link RequestContext}, it returns a shared read-only empty
+	 * context (see {@link #empty()}).
+	 *
+	 * @param contextView
+	 * @return {@link RequestContext} from reactor context.
+	 */
+	public static RequestContext from(ContextView contextView) {
+		return contextView.getOrDefault(RequestContext.class, EMPTY);
+	}
+
+	/**
+	 * Get the shared read-only empty context. Any update on this instance is discarded.
+	 *
+	 * @return empty {@link RequestContext}
+	 */
+	public static RequestContext empty() {
+		return EMPTY;
+	}
+
+	/**
+	 * Store a value (with its native type) in the slot of a predefined context field or in the
+	 * {@link #overflowMap} for custom keys.
+	 *
+	 * @param key
+	 * @param value
+	 * @return {@link RequestContext}
+	 */
+	private RequestContext putValue(String key, Object value) {
+		if (readOnly) {
+			return this;
+		}
+		int slot = slotOf(key);
+		if (slot >= 0) {
+			SLOTS.setRelease(slots, slot, value);
+			return this;
+		}
+		Map<String, Object> current;
+		Map<String, Object> updated;
+		do {
+			current = overflowMap;
+			updated = (current == null) ? new HashMap<>(4) : new HashMap<>(current);
+			updated.put(key, value);
+		} while (!OVERFLOW_MAP.compareAndSet(this, current, updated));
+		return this;
+	}
+
+	/**
+	 * Remove a value from the slot of a predefined context field or from the {@link #overflowMap} for
+	 * custom keys.
+	 *
+	 * @param key
+	 * @return previous value or null if not set
+	 */
+	private Object removeValue(String key) {
+		if (readOnly) {
+			return null;
+		}
+		int slot = slotOf(key);
+		if (slot >= 0) {
+			return SLOTS.getAndSet(slots, slot, null);
+		}
+		Map<String, Object> current;
+		Map<String, Object> updated;
+		do {
+			current = overflowMap;
+			if (current == null || !current.containsKey(key)) {
+				return null;
+			}
+			updated = new HashMap<>(current);
+			updated.remove(key);
+		} while (!OVERFLOW_MAP.compareAndSet(this, current, updated));
+		return current.get(key);
+	}
+
+	/**
+	 * Get a value (with its native type) from the slot of a predefined context field or from the
+	 * {@link #overflowMap} for custom keys.
+	 *
+	 * @param key
+	 * @return value or null if not set
+	 */
+	private Object getValue(String key) {
+		int slot = slotOf(key);
+		if (slot >= 0) {
+			return getSlot(slot);
+		}
+		Map<String, Object> current = overflowMap;
+		return (current == null) ? null : current.get(key);
+	}
+
+	/**
+	 * Read a slot with acquire semantics.
+	 *
+	 * @param slot
+	 * @return value of the slot
+	 */
+	private Object getSlot(int slot) {
+		return SLOTS.getAcquire(slots, slot);
+	}
+
+	/**
+	 * Convert a context value into {@link String}.
+	 *
+	 * @param value
+	 * @return value as {@link String}
+	 */
+	private static String asString(Object value) {
+		if (value == null || value instanceof String) {
+			return (String) value;
+		}
+		return value.toString();
+	}
+
+	/**
+	 * Get the slot index for a predefined context field.
+	 *
+	 * @param key
+	 * @return index in {@link #slots} or -1 if the key is not a predefined context field
+	 */
+	private static int slotOf(String key) {
+		if (key == null) {
+			return -1;
+		}
+		switch (key) {
+		case ContextField.TRANSACTION_ID: return 0;
+		case ContextField.CORRELATOR: return 1;
+		case ContextField.OPERATION: return 2;
+		case ContextField.SERVICE: return 3;
+		case ContextField.COMPONENT: return 4;
+		case ContextField.USER: return 5;
+		case ContextField.REALM: return 6;
+		case ContextField.ERROR: return 7;
+		case ContextField.REASON: return 8;
+		case ContextField.ALARM: return 9;
+		case ContextField.METHOD: return 10;
+		case ContextField.PATH: return 11;
+		case ContextField.QUERY: return 12;
+		case ContextField.URL: return 13;
+		case ContextField.ADDRESS: return 14;
+		case ContextField.STATUS: return 15;
+		case ContextField.LATENCY: return 16;
+		default: return -1;
+		}
+	}
+
+	/**
+	 * {@link Map} view over the {@link #slots} and the {@link #overflowMap}.
+	 * Updates in the view are written back to the {@link RequestContext}.
+	 */
+	private final class ContextMap extends AbstractMap<String, String> {
+
+		@Override
+		public String get(Object key) {
+			return (key instanceof String) ? getString((String) key) : null;
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			if (!(key instanceof String)) {
+				return false;
+			}
+			int slot = slotOf((String) key);
+			if (slot >= 0) {
+				return getSlot(slot) != null;
+			}
+			Map<String, Object> current = overflowMap;
+			return current != null && current.containsKey(key);
+		}
+
+		@Override
+		public String put(String key, String value) {
+			String previous = getString(key);
+			RequestContext.this.put(key, value);
+			return previous;
+		}
+
+		@Override
+		public String remove(Object key) {
+			if (!(key instanceof String)) {
+				return null;
+			}
+			return asString(removeValue((String) key));
+		}
+
+		@Override
+		public void clear() {
+			if (readOnly) {
+				return;
+			}
+			for (int i = 0; i < slots.length; i++) {
+				SLOTS.setRelease(slots, i, null);
+			}
+			overflowMap = null;
+		}
+
+		@Override
+		public Set<Map.Entry<String, String>> entrySet() {
+			return new AbstractSet<Map.Entry<String, String>>() {
+
+				@Override
+				public Iterator<Map.Entry<String, String>> iterator() {
+					return new ContextMapIterator();
+				}
+
+				@Override
+				public int size() {
+					Map<String, Object> current = overflowMap;
+					int size = (current == null) ? 0 : current.size();
+					for (int i = 0; i < slots.length; i++) {
+						if (getSlot(i) != null) {
+							size++;
+						}
+					}
+					return size;
+				}
+			};
+		}
+	}
+
+	/**
+	 * Iterator over the entries of the {@link ContextMap}: first the predefined fields that are set and then
+	 * the custom properties (from the snapshot of the {@link #overflowMap} taken when the iterator is created).
+	 * The next entry is read in advance so that a concurrent update cannot break the iteration.
+	 */
+	private final class ContextMapIterator implements Iterator<Map.Entry<String, String>> {
+
+		/**
+		 * Next slot to be visited.
+		 */
+		private int slot;
+
+		/**
+		 * Iterator over the snapshot of the {@link #overflowMap}.
+		 */
+		private final Iterator<Map.Entry<String, Object>> overflowIterator;
+
+		/**
+		 * Next entry to be returned (or null if the iteration is finished).
+		 */
+		private Map.Entry<String, String> nextEntry;
+
+		ContextMapIterator() {
+			Map<String, Object> current = overflowMap;
+			overflowIterator = (current == null)
+					? Collections.emptyIterator()
+					: current.entrySet().iterator();
+			nextEntry = advance();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return nextEntry != null;
+		}
+
+		@Override
+		public Map.Entry<String, String> next() {
+			Map.Entry<String, String> entry = nextEntry;
+			if (entry == null) {
+				throw new NoSuchElementException();
+			}
+			nextEntry = advance();
+			return entry;
+		}
+
+		private Map.Entry<String, String> advance() {
+			while (slot < slots.length) {
+				int current = slot++;
+				Object value = getSlot(current);
+				if (value != null) {
+					return new AbstractMap.SimpleImmutableEntry<>(SLOT_KEYS[current], asString(value));
+				}
+			}
+			if (overflowIterator.hasNext()) {
+				Map.Entry<String, Object> entry = overflowIterator.next();
+				return new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), asString(entry.getValue()));
+			}
+			return null;
+		}
 	}
 
 }
@@ -37,14 +37,17 @@ public class OperationRequestContextAspect {
 			return result;
 		}
 
-		Mono<RequestContext> monoRequestContext = RequestContext.context()
-				.map(ctxt -> ctxt.setOperation(methodName));
-
 		if (result instanceof Mono) {
-			return monoRequestContext.then((Mono) result);
+			return Mono.deferContextual(ctxt -> {
+				RequestContext.from(ctxt).setOperation(methodName);
+				return (Mono) result;
+			});
 		}
 
-		return monoRequestContext.thenMany((Flux) result);
+		return Flux.deferContextual(ctxt -> {
+			RequestContext.from(ctxt).setOperation(methodName);
+			return (Publisher) result;
+		});
 	}
 
 }
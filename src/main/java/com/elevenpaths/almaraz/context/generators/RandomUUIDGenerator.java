@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.context.generators;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * {@link TransactionIdGenerator} of random UUIDs (version 4).
+ *
+ * Unlike {@link UUID#randomUUID()}, it uses {@link ThreadLocalRandom} instead of a shared
+ * {@link java.security.SecureRandom}, so that there is no contention when generating identifiers from
+ * many threads. Note that the identifiers are unique but not cryptographically secure: they must not be
+ * used as secrets or tokens.
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class RandomUUIDGenerator implements TransactionIdGenerator {
+
+	/**
+	 * Generate a random UUID (version 4) and render it in the canonical format.
+	 */
+	@Override
+	public String generate() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		long msb = (random.nextLong() & 0xFFFFFFFFFFFF0FFFL) | 0x0000000000004000L;
+		long lsb = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+		return new UUID(msb, lsb).toString();
+	}
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.context.generators;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link TransactionIdGenerator} of snowflake identifiers: 64-bit numbers composed of:
+ * <ul>
+ * <li>41 bits with the milliseconds since {@link #EPOCH}</li>
+ * <li>10 bits with the node identifier</li>
+ * <li>12 bits with a sequence within the same millisecond</li>
+ * </ul>
+ *
+ * The identifier is rendered as a decimal number. Each node (instance of the service) must be configured
+ * with a different node identifier to guarantee uniqueness.
+ *
+ * The generator is lock-free: the last timestamp and sequence are packed in an {@link AtomicLong} that
+ * is updated with compare-and-set. If the sequence is exhausted within a millisecond, the timestamp is
+ * borrowed from the next millisecond.
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class SnowflakeGenerator implements TransactionIdGenerator {
+
+	/**
+	 * Custom epoch (2020-01-01T00:00:00Z) in milliseconds.
+	 */
+	public static final long EPOCH = 1577836800000L;
+
+	/**
+	 * Maximum node identifier (10 bits).
+	 */
+	public static final int MAX_NODE_ID = 0x3FF;
+
+	/**
+	 * Number of bits for the sequence.
+	 */
+	private static final int SEQUENCE_BITS = 12;
+
+	/**
+	 * Number of bits for the node identifier.
+	 */
+	private static final int NODE_BITS = 10;
+
+	/**
+	 * Node identifier shifted to its position in the identifier.
+	 */
+	private final long node;
+
+	/**
+	 * Last generated timestamp (shifted) and sequence.
+	 */
+	private final AtomicLong state = new AtomicLong();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param nodeId between 0 and {@link #MAX_NODE_ID}
+	 */
+	public SnowflakeGenerator(int nodeId) {
+		if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+			throw new IllegalArgumentException("Node identifier must be between 0 and " + MAX_NODE_ID);
+		}
+		this.node = ((long) nodeId) << SEQUENCE_BITS;
+	}
+
+	/**
+	 * Generate a snowflake identifier rendered as a decimal number.
+	 */
+	@Override
+	public String generate() {
+		return Long.toString(nextId());
+	}
+
+	/**
+	 * Generate a snowflake identifier.
+	 *
+	 * @return snowflake identifier
+	 */
+	public long nextId() {
+		long now = (System.currentTimeMillis() - EPOCH) << SEQUENCE_BITS;
+		long current;
+		long next;
+		do {
+			current = state.get();
+			next = (now > current) ? now : current + 1;
+		} while (!state.compareAndSet(current, next));
+		long timestamp = next >>> SEQUENCE_BITS;
+		long sequence = next & ((1L << SEQUENCE_BITS) - 1);
+		return (timestamp << (SEQUENCE_BITS + NODE_BITS)) | node | sequence;
+	}
+
+}
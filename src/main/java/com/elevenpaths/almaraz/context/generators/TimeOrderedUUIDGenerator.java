@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.context.generators;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * {@link TransactionIdGenerator} of time-ordered UUIDs (version 7, RFC 9562).
+ *
+ * The 48 most significant bits contain the Unix timestamp in milliseconds and the rest of the bits
+ * (except version and variant) are random. Identifiers generated in different milliseconds are
+ * sorted by creation time, which improves the locality of indexes when transaction IDs are stored.
+ * Random bits are obtained from {@link ThreadLocalRandom} to avoid contention.
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class TimeOrderedUUIDGenerator implements TransactionIdGenerator {
+
+	/**
+	 * Generate a time-ordered UUID (version 7) and render it in the canonical format.
+	 */
+	@Override
+	public String generate() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		long timestamp = System.currentTimeMillis();
+		long msb = (timestamp << 16) | 0x7000L | (random.nextInt() & 0x0FFFL);
+		long lsb = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+		return new UUID(msb, lsb).toString();
+	}
+
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.context.generators;
+
+import com.elevenpaths.almaraz.context.RequestContext;
+
+/**
+ * Generator of transaction identifiers.
+ * A transaction ID is generated for every request received by the service (to initialize the
+ * {@link RequestContext}) and for every request sent by a web client. Implementations must be
+ * thread-safe and should avoid any shared lock because they are invoked in the request path.
+ *
+ * Almaraz provides the following implementations:
+ * <ul>
+ * <li>{@link RandomUUIDGenerator} - Random UUID (version 4). This is the default generator.</li>
+ * <li>{@link TimeOrderedUUIDGenerator} - Time-ordered UUID (version 7).</li>
+ * <li>{@link SnowflakeGenerator} - 64-bit identifier with timestamp, node and sequence.</li>
+ * </ul>
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+@FunctionalInterface
+public interface TransactionIdGenerator {
+
+	/**
+	 * Generate a new transaction ID.
+	 *
+	 * @return transaction ID
+	 */
+	String generate();
+
+}
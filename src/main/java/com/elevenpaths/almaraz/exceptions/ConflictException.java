@@ -19,6 +19,11 @@ public class ConflictException extends ResponseException {
 
 	private static final long serialVersionUID = 564052190751854075L;
 
+	/**
+	 * Shared (immutable) and stackless instance with the same properties as the default constructor.
+	 */
+	public static final ConflictException INSTANCE = shared(new ConflictException(false));
+
 	/**
 	 * Default constructor.
 	 */
@@ -26,6 +31,15 @@ public class ConflictException extends ResponseException {
 		this(null);
 	}
 
+	/**
+	 * Constructor for the shared instance, with the option to fill in the stack trace.
+	 *
+	 * @param writableStackTrace
+	 */
+	private ConflictException(boolean writableStackTrace) {
+		super(HttpStatus.CONFLICT, ErrorCodes.CONFLICT, null, null, writableStackTrace);
+	}
+
 	/**
 	 * Constructor with error reason.
 	 *
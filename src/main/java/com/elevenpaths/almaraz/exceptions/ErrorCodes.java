@@ -14,6 +14,10 @@ public final class ErrorCodes {
 
 	public static final String SERVER_ERROR = "server_error";
 
+	public static final String SERVICE_UNAVAILABLE = "service_unavailable";
+
+	public static final String GATEWAY_TIMEOUT = "gateway_timeout";
+
 	public static final String NOT_FOUND = "not_found";
 
 	public static final String INVALID_CLIENT = "invalid_client";
@@ -32,6 +36,8 @@ public final class ErrorCodes {
 
 	public static final String CONFLICT = "conflict";
 
+	public static final String TOO_MANY_REQUESTS = "too_many_requests";
+
 	private ErrorCodes() {
 	}
 
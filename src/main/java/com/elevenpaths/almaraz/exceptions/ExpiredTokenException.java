@@ -23,11 +23,25 @@ public class ExpiredTokenException extends ResponseException {
 	public static final String WWW_AUTHENTICATE_VALUE =
 			"Bearer realm=\"cybersecurity\", error=\"invalid_token\", error_description=\"expired token\"";
 
+	/**
+	 * Shared (immutable) and stackless instance with the same properties as the default constructor.
+	 */
+	public static final ExpiredTokenException INSTANCE = shared(new ExpiredTokenException(false));
+
 	/**
 	 * Constructor.
 	 */
 	public ExpiredTokenException() {
-		super(HttpStatus.BAD_REQUEST, ErrorCodes.UNAUTHORIZED_CLIENT, "invalid token: expired token");
+		this(true);
+	}
+
+	/**
+	 * Constructor for the shared instance, with the option to fill in the stack trace.
+	 *
+	 * @param writableStackTrace
+	 */
+	private ExpiredTokenException(boolean writableStackTrace) {
+		super(HttpStatus.BAD_REQUEST, ErrorCodes.UNAUTHORIZED_CLIENT, "invalid token: expired token", null, writableStackTrace);
 		addHeader(HttpHeaders.WWW_AUTHENTICATE, WWW_AUTHENTICATE_VALUE);
 	}
 }
@@ -17,6 +17,11 @@ public class ForbiddenException extends ResponseException {
 
 	private static final long serialVersionUID = -8256235138025666145L;
 
+	/**
+	 * Shared (immutable) and stackless instance with the same properties as the default constructor.
+	 */
+	public static final ForbiddenException INSTANCE = shared(new ForbiddenException(false));
+
 	/**
 	 * Default constructor.
 	 */
@@ -24,6 +29,15 @@ public class ForbiddenException extends ResponseException {
 		this(null);
 	}
 
+	/**
+	 * Constructor for the shared instance, with the option to fill in the stack trace.
+	 *
+	 * @param writableStackTrace
+	 */
+	private ForbiddenException(boolean writableStackTrace) {
+		super(HttpStatus.FORBIDDEN, ErrorCodes.FORBIDDEN, null, null, writableStackTrace);
+	}
+
 	/**
 	 * Constructor with error reason.
 	 *
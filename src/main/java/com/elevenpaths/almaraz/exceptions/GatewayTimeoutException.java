@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.exceptions;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Gateway timeout (504 response).
+ * For example, when the deadline of the request expires before the response is available (e.g. due to a slow
+ * external system). This exception is stackless.
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class GatewayTimeoutException extends ServerException {
+
+	private static final long serialVersionUID = -6917720945372081253L;
+
+	/**
+	 * Shared (immutable) instance created with the default constructor.
+	 */
+	public static final GatewayTimeoutException INSTANCE = shared(new GatewayTimeoutException());
+
+	/**
+	 * Default constructor.
+	 */
+	public GatewayTimeoutException() {
+		this(null);
+	}
+
+	/**
+	 * Constructor with error reason.
+	 *
+	 * @param reason reason
+	 */
+	public GatewayTimeoutException(String reason) {
+		super(HttpStatus.GATEWAY_TIMEOUT, ErrorCodes.GATEWAY_TIMEOUT, reason, null, false);
+	}
+
+}
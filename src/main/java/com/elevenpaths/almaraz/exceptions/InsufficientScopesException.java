@@ -24,11 +24,25 @@ public class InsufficientScopesException extends ResponseException {
 	public static final String WWW_AUTHENTICATE_VALUE =
 			"Bearer realm=\"cybersecurity\", error=\"insufficient_scope\", error_description=\"Insufficient scopes\"";
 
+	/**
+	 * Shared (immutable) and stackless instance with the same properties as the default constructor.
+	 */
+	public static final InsufficientScopesException INSTANCE = shared(new InsufficientScopesException(false));
+
 	/**
 	 * Constructor.
 	 */
 	public InsufficientScopesException() {
-		super(HttpStatus.FORBIDDEN, ErrorCodes.UNAUTHORIZED_CLIENT, "invalid token: insufficient scopes");
+		this(true);
+	}
+
+	/**
+	 * Constructor for the shared instance, with the option to fill in the stack trace.
+	 *
+	 * @param writableStackTrace
+	 */
+	private InsufficientScopesException(boolean writableStackTrace) {
+		super(HttpStatus.FORBIDDEN, ErrorCodes.UNAUTHORIZED_CLIENT, "invalid token: insufficient scopes", null, writableStackTrace);
 		addHeader(HttpHeaders.WWW_AUTHENTICATE, WWW_AUTHENTICATE_VALUE);
 	}
 }
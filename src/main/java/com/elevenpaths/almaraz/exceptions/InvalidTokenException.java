@@ -22,11 +22,26 @@ public class InvalidTokenException extends ResponseException {
 	 */
 	public static final String WWW_AUTHENTICATE_VALUE = "Bearer realm=\"cybersecurity\", error=\"invalid_token\", error_description=\"Invalid access token\"";
 
+	/**
+	 * Shared (immutable) and stackless instance with the same properties as the default constructor.
+	 */
+	public static final InvalidTokenException INSTANCE = shared(new InvalidTokenException(false));
+
 	/**
 	 * Constructor.
 	 */
 	public InvalidTokenException() {
-		super(HttpStatus.UNAUTHORIZED, ErrorCodes.UNAUTHORIZED_CLIENT, "invalid token: invalid access token");
+		this(true);
+	}
+
+	/**
+	 * Constructor for the shared instance, with the option to fill in the stack trace.
+	 *
+	 * @param writableStackTrace
+	 */
+	private InvalidTokenException(boolean writableStackTrace) {
+		super(HttpStatus.UNAUTHORIZED, ErrorCodes.UNAUTHORIZED_CLIENT, "invalid token: invalid access token", null,
+				writableStackTrace);
 		addHeader(HttpHeaders.WWW_AUTHENTICATE, WWW_AUTHENTICATE_VALUE);
 	}
 }
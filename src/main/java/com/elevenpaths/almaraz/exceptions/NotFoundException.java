@@ -16,11 +16,25 @@ public class NotFoundException extends ResponseException {
 
 	private static final long serialVersionUID = 4758686274252544211L;
 
+	/**
+	 * Shared (immutable) and stackless instance with the same properties as the default constructor.
+	 */
+	public static final NotFoundException INSTANCE = shared(new NotFoundException(false));
+
 	/**
 	 * Default constructor.
 	 */
 	public NotFoundException() {
-		super(HttpStatus.NOT_FOUND, null, null);
+		this(true);
+	}
+
+	/**
+	 * Constructor for the shared instance, with the option to fill in the stack trace.
+	 *
+	 * @param writableStackTrace
+	 */
+	private NotFoundException(boolean writableStackTrace) {
+		super(HttpStatus.NOT_FOUND, null, null, null, writableStackTrace);
 	}
 
 	/**
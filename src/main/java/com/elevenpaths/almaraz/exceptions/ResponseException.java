@@ -4,20 +4,30 @@
 
 package com.elevenpaths.almaraz.exceptions;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
 import org.springframework.http.HttpStatusCode;
+import org.springframework.util.CollectionUtils;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 
+import lombok.AccessLevel;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import lombok.Setter;
+import lombok.ToString;
 import lombok.experimental.Accessors;
 
 /**
  * Base exception with support to generate a JSON response with the error message.
  *
+ * The exceptions without details can be shared (see {@link #shared(ResponseException)}) to avoid
+ * instantiating them for each request. The shared instances are immutable and they should be stackless
+ * (see {@link #ResponseException(HttpStatusCode, String, String, Throwable, boolean)}): the stack trace of a
+ * shared instance is meaningless and the suppressed exceptions would be accumulated between requests.
+ *
  * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
  *
  */
@@ -53,6 +63,14 @@ public class ResponseException extends RuntimeException {
 	 */
 	private MultiValueMap<String, String> headers;
 
+	/**
+	 * If true, the instance is shared and it cannot be modified.
+	 */
+	@Setter(AccessLevel.NONE)
+	@ToString.Exclude
+	@EqualsAndHashCode.Exclude
+	private boolean shared;
+
 	/**
 	 * Constructor with status.
 	 *
@@ -82,12 +100,72 @@ public class ResponseException extends RuntimeException {
 	 * @param t
 	 */
 	public ResponseException(HttpStatusCode status, String error, String reason, Throwable t) {
-		super(reason, t);
+		this(status, error, reason, t, true);
+	}
+
+	/**
+	 * Constructor with exception and the option to fill in the stack trace. If the stack trace is not
+	 * writable, the suppressed exceptions are also disabled. It is intended for shared instances and for
+	 * exceptions that are expected in the normal operation (e.g. {@link GatewayTimeoutException}), whose
+	 * stack trace is not logged.
+	 *
+	 * @param status
+	 * @param error
+	 * @param reason
+	 * @param t
+	 * @param writableStackTrace
+	 */
+	protected ResponseException(HttpStatusCode status, String error, String reason, Throwable t,
+			boolean writableStackTrace) {
+		super(reason, t, writableStackTrace, writableStackTrace);
 		this.status = status;
 		this.error = error;
 		this.reason = reason;
 	}
 
+	/**
+	 * Mark an exception as shared so that it can be reused (e.g. as a constant). The headers and details
+	 * cannot be modified after sharing the exception.
+	 *
+	 * @param <T> type of the exception
+	 * @param e
+	 * @return the exception e
+	 */
+	protected static <T extends ResponseException> T shared(T e) {
+		if (e.headers != null) {
+			e.headers = CollectionUtils.unmodifiableMultiValueMap(e.headers);
+		}
+		if (e.detailMap != null) {
+			e.detailMap = Collections.unmodifiableMap(e.detailMap);
+		}
+		e.shared = true;
+		return e;
+	}
+
+	/**
+	 * Set the error details.
+	 *
+	 * @param detailMap
+	 * @return {@link ResponseException}
+	 */
+	public ResponseException setDetailMap(Map<String, Object> detailMap) {
+		checkNotShared();
+		this.detailMap = detailMap;
+		return this;
+	}
+
+	/**
+	 * Set the HTTP headers for the error response.
+	 *
+	 * @param headers
+	 * @return {@link ResponseException}
+	 */
+	public ResponseException setHeaders(MultiValueMap<String, String> headers) {
+		checkNotShared();
+		this.headers = headers;
+		return this;
+	}
+
 	/**
 	 * Add an HTTP header for the error response.
 	 *
@@ -96,6 +174,7 @@ public class ResponseException extends RuntimeException {
 	 * @return {@link ResponseException}
 	 */
 	public ResponseException addHeader(String headerName, String headerValue) {
+		checkNotShared();
 		if (headers == null) {
 			headers = new LinkedMultiValueMap<String, String>();
 		}
@@ -111,6 +190,7 @@ public class ResponseException extends RuntimeException {
 	 * @return {@link ResponseException}
 	 */
 	public ResponseException addDetail(String key, Object value) {
+		checkNotShared();
 		if (detailMap == null) {
 			detailMap = new HashMap<String, Object>();
 		}
@@ -118,4 +198,10 @@ public class ResponseException extends RuntimeException {
 		return this;
 	}
 
+	private void checkNotShared() {
+		if (shared) {
+			throw new UnsupportedOperationException("Shared exception cannot be modified");
+		}
+	}
+
 }
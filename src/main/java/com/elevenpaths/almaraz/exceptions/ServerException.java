@@ -5,6 +5,7 @@
 package com.elevenpaths.almaraz.exceptions;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
 
 /**
  * Exception for server errors.
@@ -44,4 +45,18 @@ public class ServerException extends ResponseException {
 		super(HttpStatus.INTERNAL_SERVER_ERROR, ErrorCodes.SERVER_ERROR, reason, t);
 	}
 
+	/**
+	 * Constructor for server errors with other status codes (e.g. 503).
+	 *
+	 * @param status
+	 * @param error
+	 * @param reason
+	 * @param t
+	 * @param writableStackTrace
+	 */
+	protected ServerException(HttpStatusCode status, String error, String reason, Throwable t,
+			boolean writableStackTrace) {
+		super(status, error, reason, t, writableStackTrace);
+	}
+
 }
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.exceptions;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Service unavailable (503 response).
+ * For example, when the service is overloaded and the request is rejected (load shedding). This exception
+ * is stackless because it is expected to be frequent under overload.
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class ServiceUnavailableException extends ServerException {
+
+	private static final long serialVersionUID = 3260547937735112082L;
+
+	/**
+	 * Shared (immutable) instance created with the default constructor.
+	 */
+	public static final ServiceUnavailableException INSTANCE = shared(new ServiceUnavailableException());
+
+	/**
+	 * Default constructor.
+	 */
+	public ServiceUnavailableException() {
+		this(null);
+	}
+
+	/**
+	 * Constructor with error reason.
+	 *
+	 * @param reason reason
+	 */
+	public ServiceUnavailableException(String reason) {
+		super(HttpStatus.SERVICE_UNAVAILABLE, ErrorCodes.SERVICE_UNAVAILABLE, reason, null, false);
+	}
+
+}
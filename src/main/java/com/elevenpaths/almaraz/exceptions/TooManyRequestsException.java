@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.exceptions;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Too many requests (429 response).
+ * For example, when a client exceeds its rate limit. The response includes a Retry-After header
+ * with the number of seconds to wait before retrying. It is stackless because it is an expected rejection.
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class TooManyRequestsException extends ResponseException {
+
+	private static final long serialVersionUID = -2964021556163713507L;
+
+	/**
+	 * Constructor with the number of seconds to wait before retrying.
+	 *
+	 * @param retryAfterSeconds value of the Retry-After header
+	 */
+	public TooManyRequestsException(long retryAfterSeconds) {
+		this(retryAfterSeconds, null);
+	}
+
+	/**
+	 * Constructor with the number of seconds to wait before retrying and error reason.
+	 *
+	 * @param retryAfterSeconds value of the Retry-After header
+	 * @param reason reason
+	 */
+	public TooManyRequestsException(long retryAfterSeconds, String reason) {
+		super(HttpStatus.TOO_MANY_REQUESTS, ErrorCodes.TOO_MANY_REQUESTS, reason, null, false);
+		addHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+	}
+
+}
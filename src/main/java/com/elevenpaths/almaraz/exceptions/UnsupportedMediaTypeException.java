@@ -16,11 +16,25 @@ public class UnsupportedMediaTypeException extends ResponseException {
 
 	private static final long serialVersionUID = 3098028308954612696L;
 
+	/**
+	 * Shared (immutable) and stackless instance with the same properties as the default constructor.
+	 */
+	public static final UnsupportedMediaTypeException INSTANCE = shared(new UnsupportedMediaTypeException(false));
+
 	/**
 	 * Default constructor.
 	 */
 	public UnsupportedMediaTypeException() {
-		super(HttpStatus.UNSUPPORTED_MEDIA_TYPE, null, null);
+		this(true);
+	}
+
+	/**
+	 * Constructor for the shared instance, with the option to fill in the stack trace.
+	 *
+	 * @param writableStackTrace
+	 */
+	private UnsupportedMediaTypeException(boolean writableStackTrace) {
+		super(HttpStatus.UNSUPPORTED_MEDIA_TYPE, null, null, null, writableStackTrace);
 	}
 
 }
@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.limiter;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limiter whose limit is adapted to the latency of the requests (gradient algorithm).
+ *
+ * The limiter compares the latency of each request with a long-term average latency. If the latency grows
+ * (the requests are queued), the limit decreases proportionally to the gradient between both latencies.
+ * Otherwise, the limit grows by its square root (the queue size allowed). The limit is only increased if the
+ * in-flight requests are close to the limit (i.e. the limit is actually being used).
+ *
+ * Acquiring and releasing a permit is lock-free. The limit is updated when the permit is released with the
+ * latency sample, by a single thread at a time: if another thread is already updating the limit, the sample is
+ * skipped (so the limit is updated with a sample of the latencies under contention) and no thread is blocked.
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class AdaptiveConcurrencyLimiter {
+
+	/**
+	 * Default initial limit.
+	 */
+	public static final int DEFAULT_INITIAL_LIMIT = 20;
+
+	/**
+	 * Default minimum limit.
+	 */
+	public static final int DEFAULT_MIN_LIMIT = 5;
+
+	/**
+	 * Default maximum limit.
+	 */
+	public static final int DEFAULT_MAX_LIMIT = 1000;
+
+	/**
+	 * Tolerance of the latency growth before reducing the limit.
+	 */
+	static final double TOLERANCE = 1.5;
+
+	/**
+	 * Smoothing factor of the limit updates.
+	 */
+	static final double SMOOTHING = 0.2;
+
+	/**
+	 * Number of samples of the long-term average latency.
+	 */
+	static final int LONG_WINDOW = 600;
+
+	/**
+	 * Number of in-flight requests.
+	 */
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	/**
+	 * Guard so that only one thread updates the limit (without blocking the rest).
+	 */
+	private final AtomicBoolean updating = new AtomicBoolean();
+
+	private final int minLimit;
+
+	private final int maxLimit;
+
+	/**
+	 * Current limit (integer part of the estimated limit).
+	 */
+	private volatile int limit;
+
+	/**
+	 * Estimated limit (guarded by {@link #updating}).
+	 */
+	private double estimatedLimit;
+
+	/**
+	 * Long-term average latency in nanoseconds (guarded by {@link #updating}).
+	 */
+	private double longLatency;
+
+	/**
+	 * Constructor with the default limits.
+	 */
+	public AdaptiveConcurrencyLimiter() {
+		this(DEFAULT_INITIAL_LIMIT, DEFAULT_MIN_LIMIT, DEFAULT_MAX_LIMIT);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param initialLimit
+	 * @param minLimit
+	 * @param maxLimit
+	 */
+	public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+		if (minLimit <= 0 || minLimit > initialLimit || initialLimit > maxLimit) {
+			throw new IllegalArgumentException("Invalid concurrency limits");
+		}
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.limit = initialLimit;
+		this.estimatedLimit = initialLimit;
+	}
+
+	/**
+	 * Try to acquire a permit. If acquired, it must be released with {@link #release(long)} or {@link #release()}.
+	 *
+	 * @return true if acquired (the in-flight requests are below the limit)
+	 */
+	public boolean tryAcquire() {
+		while (true) {
+			int current = inFlight.get();
+			if (current >= limit) {
+				return false;
+			}
+			if (inFlight.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Release a permit with the latency of the request to update the limit.
+	 *
+	 * @param latency latency in nanoseconds
+	 */
+	public void release(long latency) {
+		int current = inFlight.getAndDecrement();
+		if (latency > 0 && updating.compareAndSet(false, true)) {
+			try {
+				update(latency, current);
+			} finally {
+				updating.set(false);
+			}
+		}
+	}
+
+	/**
+	 * Release a permit without latency sample (e.g. the request was cancelled).
+	 */
+	public void release() {
+		inFlight.decrementAndGet();
+	}
+
+	/**
+	 * Get the current limit.
+	 *
+	 * @return limit
+	 */
+	public int getLimit() {
+		return limit;
+	}
+
+	/**
+	 * Get the number of in-flight requests.
+	 *
+	 * @return in-flight requests
+	 */
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	/**
+	 * Update the limit with a latency sample. It must be invoked while holding {@link #updating}.
+	 *
+	 * @param latency latency in nanoseconds
+	 * @param inFlight in-flight requests when the request finished (including it)
+	 */
+	private void update(long latency, int inFlight) {
+		if (longLatency == 0) {
+			longLatency = latency;
+		} else {
+			longLatency += (latency - longLatency) / LONG_WINDOW;
+		}
+		// The long-term latency recovers faster when the latency decreases (e.g. after an overload)
+		if (longLatency > 2 * latency) {
+			longLatency *= 0.95;
+		}
+		// Skip increasing the limit if it is not used
+		if (inFlight < estimatedLimit / 2) {
+			return;
+		}
+		double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longLatency / latency));
+		double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+		newLimit = estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+		estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+		limit = (int) estimatedLimit;
+	}
+
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.limiter;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Rate limiter with a token bucket per key (e.g. client address, user or realm).
+ *
+ * Each bucket has a capacity (burst) and it is refilled with a number of permits per period. The bucket is
+ * lock-free: its state is a single timestamp, the theoretical arrival time of the next request (generic cell
+ * rate algorithm, equivalent to a token bucket), updated with compare-and-set.
+ *
+ * The table of buckets is bounded. A bucket expires when it is full again (its state is equivalent to a new
+ * bucket), so the expired buckets are removed when the maximum number of keys is reached. The removal scans the
+ * whole table, so it is done at most once per emission interval (and {@link #MIN_EXPIRATION_INTERVAL}) even if
+ * many new keys are received (e.g. a client sending random X-Forwarded-For headers). If the table is still
+ * full, the new keys are spread by hash over {@link #OVERFLOW_BUCKETS} overflow buckets, so that a flood of new
+ * keys only exhausts the rate of the new keys in the same overflow bucket.
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class TokenBucketRateLimiter {
+
+	/**
+	 * Number of overflow buckets for the new keys when the maximum number of keys is reached (power of 2).
+	 */
+	public static final int OVERFLOW_BUCKETS = 64;
+
+	/**
+	 * Minimum time (in nanoseconds) between two removals of the expired buckets.
+	 */
+	public static final long MIN_EXPIRATION_INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+
+	/**
+	 * Default maximum number of keys.
+	 */
+	public static final int DEFAULT_MAX_KEYS = 10000;
+
+	/**
+	 * Buckets per key.
+	 */
+	private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+	/**
+	 * Buckets for the new keys when the table of buckets is full (selected by hash of the key).
+	 */
+	private final AtomicLong[] overflowBuckets = new AtomicLong[OVERFLOW_BUCKETS];
+
+	/**
+	 * Time (in nanoseconds) when the expired buckets can be removed again. Only the thread that updates it
+	 * removes the expired buckets.
+	 */
+	private final AtomicLong nextExpiration;
+
+	/**
+	 * Minimum time (in nanoseconds) between two removals of the expired buckets.
+	 */
+	private final long expirationInterval;
+
+	/**
+	 * Time (in nanoseconds) to refill one permit.
+	 */
+	private final long emissionInterval;
+
+	/**
+	 * Time (in nanoseconds) to refill the whole bucket except one permit.
+	 */
+	private final long burstTolerance;
+
+	private final int maxKeys;
+
+	/**
+	 * Monotonic clock in nanoseconds.
+	 */
+	private final LongSupplier clock;
+
+	/**
+	 * Constructor with a capacity equal to the number of permits per period and the default maximum number of keys.
+	 *
+	 * @param permits number of permits per period
+	 * @param period
+	 */
+	public TokenBucketRateLimiter(long permits, Duration period) {
+		this(permits, period, permits, DEFAULT_MAX_KEYS);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param permits number of permits per period
+	 * @param period
+	 * @param capacity capacity of the bucket (maximum burst)
+	 * @param maxKeys maximum number of keys
+	 */
+	public TokenBucketRateLimiter(long permits, Duration period, long capacity, int maxKeys) {
+		this(permits, period, capacity, maxKeys, System::nanoTime);
+	}
+
+	/**
+	 * Constructor with a custom clock.
+	 *
+	 * @param permits number of permits per period
+	 * @param period
+	 * @param capacity capacity of the bucket (maximum burst)
+	 * @param maxKeys maximum number of keys
+	 * @param clock monotonic clock in nanoseconds
+	 */
+	TokenBucketRateLimiter(long permits, Duration period, long capacity, int maxKeys, LongSupplier clock) {
+		if (permits <= 0 || capacity <= 0 || period == null || period.isNegative() || period.isZero()) {
+			throw new IllegalArgumentException("Invalid rate limit");
+		}
+		this.emissionInterval = Math.max(1, period.toNanos() / permits);
+		this.burstTolerance = emissionInterval * (capacity - 1);
+		this.maxKeys = maxKeys;
+		this.clock = clock;
+		this.expirationInterval = Math.max(emissionInterval, MIN_EXPIRATION_INTERVAL);
+		long now = clock.getAsLong();
+		this.nextExpiration = new AtomicLong(now);
+		for (int i = 0; i < OVERFLOW_BUCKETS; i++) {
+			overflowBuckets[i] = new AtomicLong(now);
+		}
+	}
+
+	/**
+	 * Try to acquire a permit for a key.
+	 *
+	 * @param key
+	 * @return 0 if the permit is acquired, or the time (in nanoseconds) to wait for the next permit
+	 */
+	public long tryAcquire(String key) {
+		long now = clock.getAsLong();
+		AtomicLong bucket = getBucket(key, now);
+		while (true) {
+			long tat = bucket.get();
+			long start = Math.max(tat, now);
+			long wait = start - burstTolerance - now;
+			if (wait > 0) {
+				return wait;
+			}
+			if (bucket.compareAndSet(tat, start + emissionInterval)) {
+				return 0;
+			}
+		}
+	}
+
+	/**
+	 * Get the number of keys with a bucket.
+	 *
+	 * @return number of keys
+	 */
+	public int getKeyCount() {
+		return buckets.size();
+	}
+
+	private AtomicLong getBucket(String key, long now) {
+		AtomicLong bucket = buckets.get(key);
+		if (bucket != null) {
+			return bucket;
+		}
+		if (buckets.size() >= maxKeys) {
+			expire(now);
+			if (buckets.size() >= maxKeys) {
+				return overflowBuckets[getOverflowIndex(key)];
+			}
+		}
+		return buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+	}
+
+	/**
+	 * Remove the expired buckets (full buckets, whose theoretical arrival time is in the past). It does nothing
+	 * if the expired buckets were removed less than {@link #expirationInterval} ago.
+	 *
+	 * @param now
+	 */
+	private void expire(long now) {
+		long next = nextExpiration.get();
+		if (now - next < 0 || !nextExpiration.compareAndSet(next, now + expirationInterval)) {
+			return;
+		}
+		buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+	}
+
+	/**
+	 * Get the index of the overflow bucket of a key.
+	 *
+	 * @param key
+	 * @return index between 0 and {@link #OVERFLOW_BUCKETS} (exclusive)
+	 */
+	static int getOverflowIndex(String key) {
+		int hash = key.hashCode();
+		hash ^= hash >>> 16;
+		return hash & (OVERFLOW_BUCKETS - 1);
+	}
+
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.logging;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import com.elevenpaths.almaraz.context.RequestContext;
+import com.elevenpaths.almaraz.webclientfilters.CorrelatorWebClientFilter;
+import com.elevenpaths.almaraz.webfilters.LoggerWebFilter;
+
+/**
+ * Sampling of the access logs written by {@link LoggerWebFilter}.
+ *
+ * The sampling decision is taken in two phases:
+ * <ul>
+ * <li>Head-based decision, when the request is received. If the {@link RequestContext} already contains a
+ * decision, it is kept. The decision of an upstream service in the request header {@link #DEFAULT_SAMPLED_HEADER}
+ * is only kept if the header is trusted (see {@link #trustSampledHeader(boolean)}), because any client could
+ * force the logging of its requests. Otherwise, the rate of the first path pattern matching the request path (or the default rate) is applied
+ * deterministically on the hash of the correlator, so that every service takes the same decision for the
+ * same correlator. The decision is stored in the {@link RequestContext} and it is propagated to other services
+ * by {@link CorrelatorWebClientFilter}.</li>
+ * <li>Tail-based decision, when the response is available. Errors (status code equal to or greater than the
+ * error status) and slow requests (latency equal to or greater than the slow threshold) are always logged.</li>
+ * </ul>
+ *
+ * <code>
+ * new AccessLogSampler(0.1)
+ *     .rate("/api/hot/**", 0.01)
+ *     .rate("/api/admin/**", 1.0)
+ *     .slowThreshold(Duration.ofMillis(500));
+ * </code>
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class AccessLogSampler {
+
+	/**
+	 * Default HTTP header with the sampling decision.
+	 */
+	public static final String DEFAULT_SAMPLED_HEADER = "X-Sampled";
+
+	/**
+	 * Default minimum status code to be always logged.
+	 */
+	public static final int DEFAULT_ERROR_STATUS = 400;
+
+	/**
+	 * Parser of the path patterns.
+	 */
+	private static final PathPatternParser PARSER = PathPatternParser.defaultInstance;
+
+	/**
+	 * Rates per path pattern (ordered).
+	 */
+	private final List<PathRate> pathRates = new ArrayList<>();
+
+	/**
+	 * Rate when no path pattern matches the request path.
+	 */
+	private final double defaultRate;
+
+	/**
+	 * HTTP header with the sampling decision.
+	 */
+	private String sampledHeader = DEFAULT_SAMPLED_HEADER;
+
+	/**
+	 * If true, the sampling decision in the {@link #sampledHeader} is kept.
+	 */
+	private boolean trustSampledHeader;
+
+	/**
+	 * Minimum status code to be always logged.
+	 */
+	private int errorStatus = DEFAULT_ERROR_STATUS;
+
+	/**
+	 * Minimum latency (in milliseconds) to be always logged.
+	 */
+	private long slowThresholdMillis = Long.MAX_VALUE;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param defaultRate rate (between 0 and 1) when no path pattern matches the request path
+	 */
+	public AccessLogSampler(double defaultRate) {
+		this.defaultRate = checkRate(defaultRate);
+	}
+
+	/**
+	 * Add a sampling rate for the requests whose path matches a pattern. The patterns are evaluated in
+	 * the same order they are added.
+	 *
+	 * @param pathPattern path pattern (e.g. /api/resources/**)
+	 * @param rate rate between 0 and 1
+	 * @return this sampler
+	 */
+	public AccessLogSampler rate(String pathPattern, double rate) {
+		pathRates.add(new PathRate(PARSER.parse(pathPattern), checkRate(rate)));
+		return this;
+	}
+
+	/**
+	 * Set the minimum latency of the requests that are always logged.
+	 *
+	 * @param slowThreshold
+	 * @return this sampler
+	 */
+	public AccessLogSampler slowThreshold(Duration slowThreshold) {
+		this.slowThresholdMillis = (slowThreshold == null) ? Long.MAX_VALUE : slowThreshold.toMillis();
+		return this;
+	}
+
+	/**
+	 * Set the minimum status code of the responses that are always logged.
+	 *
+	 * @param errorStatus
+	 * @return this sampler
+	 */
+	public AccessLogSampler errorStatus(int errorStatus) {
+		this.errorStatus = errorStatus;
+		return this;
+	}
+
+	/**
+	 * Set the HTTP header with the sampling decision.
+	 *
+	 * @param sampledHeader
+	 * @return this sampler
+	 */
+	public AccessLogSampler sampledHeader(String sampledHeader) {
+		this.sampledHeader = (sampledHeader == null) ? DEFAULT_SAMPLED_HEADER : sampledHeader;
+		return this;
+	}
+
+	/**
+	 * Set if the sampling decision in the HTTP header is kept. It is disabled by default, and it should only be
+	 * enabled if the header is set by trusted services (e.g. the header is removed by the edge proxy).
+	 *
+	 * @param trustSampledHeader
+	 * @return this sampler
+	 */
+	public AccessLogSampler trustSampledHeader(boolean trustSampledHeader) {
+		this.trustSampledHeader = trustSampledHeader;
+		return this;
+	}
+
+	/**
+	 * Head-based sampling decision. The decision is stored in the {@link RequestContext}.
+	 *
+	 * @param exchange
+	 * @param requestContext
+	 * @return true if the request is sampled (and then logged)
+	 */
+	public boolean isSampled(ServerWebExchange exchange, RequestContext requestContext) {
+		Boolean sampled = requestContext.getSampled();
+		if (sampled != null) {
+			return sampled;
+		}
+		String header = trustSampledHeader ? exchange.getRequest().getHeaders().getFirst(sampledHeader) : null;
+		if (header != null) {
+			sampled = "1".equals(header) || Boolean.parseBoolean(header);
+		} else {
+			sampled = isSampled(getRate(exchange), requestContext.getCorrelator());
+		}
+		requestContext.setSampled(sampled);
+		return sampled;
+	}
+
+	/**
+	 * Tail-based sampling decision. It checks if the request must be logged, independently of the head-based
+	 * decision, because it failed or it was slow.
+	 *
+	 * @param exchange
+	 * @param latencyMillis
+	 * @return true if the request must be logged
+	 */
+	public boolean isForced(ServerWebExchange exchange, long latencyMillis) {
+		if (latencyMillis >= slowThresholdMillis) {
+			return true;
+		}
+		HttpStatusCode status = exchange.getResponse().getStatusCode();
+		return status != null && status.value() >= errorStatus;
+	}
+
+	/**
+	 * Get the rate of the first path pattern matching the request path (or the default rate).
+	 *
+	 * @param exchange
+	 * @return rate
+	 */
+	protected double getRate(ServerWebExchange exchange) {
+		if (pathRates.isEmpty()) {
+			return defaultRate;
+		}
+		PathContainer path = exchange.getRequest().getPath().pathWithinApplication();
+		for (PathRate pathRate : pathRates) {
+			if (pathRate.pattern.matches(path)) {
+				return pathRate.rate;
+			}
+		}
+		return defaultRate;
+	}
+
+	/**
+	 * Deterministic sampling based on the hash of the correlator. If there is no correlator, the decision
+	 * is random.
+	 *
+	 * @param rate
+	 * @param correlator
+	 * @return true if sampled
+	 */
+	static boolean isSampled(double rate, String correlator) {
+		if (rate >= 1.0) {
+			return true;
+		}
+		if (rate <= 0.0) {
+			return false;
+		}
+		if (correlator == null) {
+			return ThreadLocalRandom.current().nextDouble() < rate;
+		}
+		// Mix the String hash (stable across JVMs) to spread it uniformly (murmur3 finalizer)
+		long hash = correlator.hashCode();
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return (hash >>> 11) * 0x1.0p-53 < rate;
+	}
+
+	private static double checkRate(double rate) {
+		if (rate < 0.0 || rate > 1.0 || Double.isNaN(rate)) {
+			throw new IllegalArgumentException("Invalid sampling rate: " + rate);
+		}
+		return rate;
+	}
+
+	/**
+	 * Sampling rate for a path pattern.
+	 */
+	private static class PathRate {
+
+		private final PathPattern pattern;
+
+		private final double rate;
+
+		PathRate(PathPattern pattern, double rate) {
+			this.pattern = pattern;
+			this.rate = rate;
+		}
+
+	}
+
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.logging;
+
+import java.util.Map;
+
+import org.slf4j.MDC;
+import org.slf4j.spi.MDCAdapter;
+
+import com.elevenpaths.almaraz.context.RequestContext;
+
+/**
+ * {@link MDCAdapter} that supports binding a {@link RequestContext} by reference, instead of copying its context
+ * map into {@link MDC} with {@link MDC#setContextMap(Map)}.
+ *
+ * While a context is bound to the current thread, the diagnostic context is the context map plus an overlay with
+ * the properties added with {@link MDC#put(String, String)}. The bound context is never modified by the adapter.
+ *
+ * If the SLF4J {@link MDCAdapter} implements this interface, {@link ReactiveLogger} binds the context instead of
+ * copying it for every log statement (see {@link com.elevenpaths.almaraz.logging.logback.RequestContextMDCAdapter}).
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public interface ContextMDCAdapter extends MDCAdapter {
+
+	/**
+	 * Bind a request context to the current thread.
+	 *
+	 * @param requestContext
+	 */
+	void bind(RequestContext requestContext);
+
+	/**
+	 * Unbind the request context from the current thread.
+	 */
+	void unbind();
+
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.logging;
+
+import org.slf4j.event.Level;
+
+import com.elevenpaths.almaraz.context.LogBuffer;
+import com.elevenpaths.almaraz.context.RequestContext;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bounded buffer, per request, of log entries with a level lower than a threshold (e.g. debug entries).
+ *
+ * The level-aware methods of {@link ReactiveLogger} append the log entries to the buffer of the
+ * {@link RequestContext} (if any) instead of writing them. The buffer is flushed (the entries are written
+ * with the request context in MDC) if the request fails, or discarded otherwise.
+ *
+ * The buffer has a fixed capacity. When it is full, the oldest entries are discarded (the most recent ones are
+ * usually the most relevant to diagnose an error). The buffers are reused between requests by
+ * {@link DebugLogBufferPool}.
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+@Slf4j
+public class DebugLogBuffer implements LogBuffer {
+
+	/**
+	 * Entries with a level lower than the threshold are buffered.
+	 */
+	private final Level threshold;
+
+	/**
+	 * Circular array with the buffered entries.
+	 */
+	private final Runnable[] entries;
+
+	/**
+	 * Position of the oldest entry.
+	 */
+	private int head;
+
+	/**
+	 * Number of buffered entries.
+	 */
+	private int count;
+
+	/**
+	 * Number of discarded entries because the buffer was full.
+	 */
+	private long droppedCount;
+
+	/**
+	 * Request context that owns the buffer. Entries from other contexts are rejected.
+	 */
+	private RequestContext owner;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param threshold entries with a level lower than the threshold are buffered
+	 * @param capacity maximum number of buffered entries
+	 */
+	DebugLogBuffer(Level threshold, int capacity) {
+		this.threshold = threshold;
+		this.entries = new Runnable[capacity];
+	}
+
+	/**
+	 * Append a log entry if its level is lower than the threshold.
+	 *
+	 * @param requestContext request context where the log entry is generated
+	 * @param level level of the log entry
+	 * @param entry log entry (it writes the log when it is run)
+	 * @return true if the entry was buffered, false if it must be written directly
+	 */
+	@Override
+	public synchronized boolean add(RequestContext requestContext, Level level, Runnable entry) {
+		if (owner != requestContext || level.toInt() >= threshold.toInt()) {
+			return false;
+		}
+		if (count == entries.length) {
+			entries[head] = entry;
+			head = (head + 1) % entries.length;
+			droppedCount++;
+		} else {
+			entries[(head + count) % entries.length] = entry;
+			count++;
+		}
+		return true;
+	}
+
+	/**
+	 * Write the buffered entries (with the request context in MDC) and empty the buffer.
+	 */
+	@Override
+	public void flush() {
+		RequestContext requestContext;
+		long dropped;
+		synchronized (this) {
+			requestContext = owner;
+			dropped = droppedCount;
+			droppedCount = 0;
+		}
+		if (requestContext == null) {
+			return;
+		}
+		try {
+			if (dropped > 0) {
+				MDCContext.set(requestContext);
+				log.info("Discarded {} buffered log entries", dropped);
+			}
+			Runnable entry;
+			while ((entry = poll()) != null) {
+				MDCContext.set(requestContext);
+				entry.run();
+			}
+		} finally {
+			if (MDCContextPropagation.isEnabled()) {
+				MDCContext.set(requestContext);
+			} else {
+				MDCContext.clear();
+			}
+		}
+	}
+
+	/**
+	 * Discard the buffered entries (e.g. if the request failed but the debug information is not relevant).
+	 * The buffer keeps its owner.
+	 */
+	@Override
+	public synchronized void discard() {
+		reset(owner);
+	}
+
+	/**
+	 * Get the number of buffered entries.
+	 *
+	 * @return number of entries
+	 */
+	public synchronized int size() {
+		return count;
+	}
+
+	/**
+	 * Get the number of entries discarded because the buffer was full (since the last flush).
+	 *
+	 * @return number of discarded entries
+	 */
+	public synchronized long getDroppedCount() {
+		return droppedCount;
+	}
+
+	/**
+	 * Empty the buffer and assign a new owner.
+	 *
+	 * @param requestContext new owner (or null if the buffer is released)
+	 */
+	synchronized void reset(RequestContext requestContext) {
+		while (count > 0) {
+			entries[head] = null;
+			head = (head + 1) % entries.length;
+			count--;
+		}
+		head = 0;
+		droppedCount = 0;
+		owner = requestContext;
+	}
+
+	private synchronized Runnable poll() {
+		if (count == 0) {
+			return null;
+		}
+		Runnable entry = entries[head];
+		entries[head] = null;
+		head = (head + 1) % entries.length;
+		count--;
+		return entry;
+	}
+
+}
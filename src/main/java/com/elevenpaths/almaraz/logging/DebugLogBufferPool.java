@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.logging;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.event.Level;
+
+import com.elevenpaths.almaraz.context.RequestContext;
+
+/**
+ * Configuration and pool of {@link DebugLogBuffer} instances.
+ *
+ * A buffer is acquired when the request is received and it is released when the request is finished, so that
+ * the memory of the buffers is reused between requests. The number of pooled buffers is bounded: buffers
+ * released when the pool is full are left to the garbage collector.
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class DebugLogBufferPool {
+
+	/**
+	 * Default threshold: entries with a level lower than INFO (debug and trace) are buffered.
+	 */
+	public static final Level DEFAULT_THRESHOLD = Level.INFO;
+
+	/**
+	 * Default maximum number of entries per buffer.
+	 */
+	public static final int DEFAULT_CAPACITY = 128;
+
+	/**
+	 * Default maximum number of pooled buffers.
+	 */
+	public static final int DEFAULT_POOL_SIZE = 256;
+
+	private final Level threshold;
+
+	private final int capacity;
+
+	private final int poolSize;
+
+	/**
+	 * Available buffers.
+	 */
+	private final Queue<DebugLogBuffer> pool = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Number of available buffers (to avoid the linear size of the queue).
+	 */
+	private final AtomicInteger pooled = new AtomicInteger();
+
+	/**
+	 * Constructor with default values.
+	 */
+	public DebugLogBufferPool() {
+		this(null, DEFAULT_CAPACITY, DEFAULT_POOL_SIZE);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param threshold entries with a level lower than the threshold are buffered. If null, then
+	 *        {@link #DEFAULT_THRESHOLD}.
+	 * @param capacity maximum number of entries per buffer
+	 * @param poolSize maximum number of pooled buffers
+	 */
+	public DebugLogBufferPool(Level threshold, int capacity, int poolSize) {
+		if (capacity < 1 || poolSize < 0) {
+			throw new IllegalArgumentException("Invalid capacity or pool size");
+		}
+		this.threshold = (threshold == null) ? DEFAULT_THRESHOLD : threshold;
+		this.capacity = capacity;
+		this.poolSize = poolSize;
+	}
+
+	/**
+	 * Acquire a buffer for a request and store it in the {@link RequestContext}.
+	 *
+	 * @param requestContext
+	 * @return buffer or null if the request context is read-only
+	 */
+	public DebugLogBuffer acquire(RequestContext requestContext) {
+		DebugLogBuffer buffer = pool.poll();
+		if (buffer == null) {
+			buffer = new DebugLogBuffer(threshold, capacity);
+		} else {
+			pooled.decrementAndGet();
+		}
+		buffer.reset(requestContext);
+		requestContext.setDebugLogBuffer(buffer);
+		if (requestContext.getDebugLogBuffer() != buffer) {
+			release(requestContext, buffer);
+			return null;
+		}
+		return buffer;
+	}
+
+	/**
+	 * Release the buffer of a request. The buffered entries (if not flushed) are discarded.
+	 *
+	 * @param requestContext
+	 * @param buffer
+	 */
+	public void release(RequestContext requestContext, DebugLogBuffer buffer) {
+		if (requestContext.getDebugLogBuffer() == buffer) {
+			requestContext.setDebugLogBuffer(null);
+		}
+		buffer.reset(null);
+		if (pooled.incrementAndGet() <= poolSize) {
+			pool.offer(buffer);
+		} else {
+			pooled.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Get the number of available buffers in the pool.
+	 *
+	 * @return number of pooled buffers
+	 */
+	public int getPooledCount() {
+		return pooled.get();
+	}
+
+}
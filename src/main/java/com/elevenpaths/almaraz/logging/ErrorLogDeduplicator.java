@@ -0,0 +1,295 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.logging;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+import reactor.core.Disposable;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Deduplication of error logs to avoid error storms (e.g. when a dependency is down and every request fails
+ * with the same exception).
+ *
+ * Each error is identified by a fingerprint: the exception class, the top frames of its stack trace and the
+ * error code. The first occurrence of a fingerprint is logged (with full stack trace) and the following
+ * occurrences inside the same time window are suppressed and counted. The suppressed occurrences are reported
+ * when the fingerprint is logged again after the window, or by {@link #summarize(BiConsumer)}. The summaries
+ * must be scheduled with {@link #scheduleSummaries(BiConsumer)} so that the last window of an error storm is
+ * reported even if no other error happens.
+ *
+ * The counters are lock-free and the number of fingerprints is bounded. If the table of fingerprints is full,
+ * the new errors are not deduplicated (they are always logged). A fingerprint is removed only if its counter
+ * is still zero (marked as removed with a CAS), so that no occurrence recorded concurrently is lost.
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class ErrorLogDeduplicator {
+
+	/**
+	 * Value returned by {@link #record(Throwable, String)} when the error log must be suppressed.
+	 */
+	public static final long SUPPRESSED = -1;
+
+	/**
+	 * Default time window.
+	 */
+	public static final Duration DEFAULT_WINDOW = Duration.ofMinutes(1);
+
+	/**
+	 * Default maximum number of fingerprints.
+	 */
+	public static final int DEFAULT_MAX_FINGERPRINTS = 1024;
+
+	/**
+	 * Default number of stack trace frames in the fingerprint.
+	 */
+	public static final int DEFAULT_STACK_DEPTH = 3;
+
+	/**
+	 * Value of the suppressed counter of a fingerprint removed from the table.
+	 */
+	private static final long REMOVED = Long.MIN_VALUE;
+
+	private final long windowNanos;
+
+	private final int maxFingerprints;
+
+	private final int stackDepth;
+
+	/**
+	 * Table of fingerprints.
+	 */
+	private final Map<Long, Fingerprint> fingerprints = new ConcurrentHashMap<>();
+
+	/**
+	 * Time (nanoTime) when the next summary is due.
+	 */
+	private final AtomicLong nextSummary;
+
+	/**
+	 * Constructor with default values.
+	 */
+	public ErrorLogDeduplicator() {
+		this(DEFAULT_WINDOW, DEFAULT_MAX_FINGERPRINTS, DEFAULT_STACK_DEPTH);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param window time window to suppress the duplicated errors
+	 * @param maxFingerprints maximum number of fingerprints
+	 * @param stackDepth number of stack trace frames in the fingerprint
+	 */
+	public ErrorLogDeduplicator(Duration window, int maxFingerprints, int stackDepth) {
+		this.windowNanos = (window == null) ? DEFAULT_WINDOW.toNanos() : window.toNanos();
+		this.maxFingerprints = maxFingerprints;
+		this.stackDepth = stackDepth;
+		this.nextSummary = new AtomicLong(System.nanoTime() + windowNanos);
+	}
+
+	/**
+	 * Record an occurrence of an error.
+	 *
+	 * @param t exception
+	 * @param errorCode error code
+	 * @return {@link #SUPPRESSED} if the error must not be logged. Otherwise, the number of occurrences
+	 *         suppressed since the last time the error was logged.
+	 */
+	public long record(Throwable t, String errorCode) {
+		long now = System.nanoTime();
+		Long key = fingerprint(t, errorCode);
+		while (true) {
+			Fingerprint fingerprint = fingerprints.get(key);
+			if (fingerprint == null) {
+				if (fingerprints.size() >= maxFingerprints) {
+					return 0;
+				}
+				fingerprint = fingerprints.putIfAbsent(key, new Fingerprint(describe(t, errorCode), now));
+				if (fingerprint == null) {
+					return 0;
+				}
+			}
+			long windowStart = fingerprint.windowStart.get();
+			long suppressed;
+			if (now - windowStart >= windowNanos && fingerprint.windowStart.compareAndSet(windowStart, now)) {
+				suppressed = fingerprint.reset();
+			} else {
+				suppressed = fingerprint.increment() ? SUPPRESSED : REMOVED;
+			}
+			if (suppressed != REMOVED) {
+				return suppressed;
+			}
+			// The fingerprint was removed concurrently: retry with a new one
+			fingerprints.remove(key, fingerprint);
+		}
+	}
+
+	/**
+	 * Report the suppressed occurrences of the fingerprints whose window is finished. The fingerprints without
+	 * occurrences during a whole window are removed from the table.
+	 * It does nothing if it was already invoked during the current window, so it can be invoked frequently
+	 * (e.g. for every error).
+	 *
+	 * @param summary consumer of the description of the error and the number of suppressed occurrences
+	 */
+	public void summarize(BiConsumer<String, Long> summary) {
+		long now = System.nanoTime();
+		long next = nextSummary.get();
+		if (now - next < 0 || !nextSummary.compareAndSet(next, now + windowNanos)) {
+			return;
+		}
+		summarize(now, summary);
+	}
+
+	/**
+	 * Schedule the summaries (see {@link #summarize(BiConsumer)}) once per window with the parallel scheduler
+	 * of Reactor.
+	 *
+	 * @param summary consumer of the description of the error and the number of suppressed occurrences
+	 * @return task to cancel the summaries
+	 */
+	public Disposable scheduleSummaries(BiConsumer<String, Long> summary) {
+		return Schedulers.parallel().schedulePeriodically(() -> {
+			long now = System.nanoTime();
+			nextSummary.set(now + windowNanos);
+			summarize(now, summary);
+		}, windowNanos, windowNanos, TimeUnit.NANOSECONDS);
+	}
+
+	private void summarize(long now, BiConsumer<String, Long> summary) {
+		for (Map.Entry<Long, Fingerprint> entry : fingerprints.entrySet()) {
+			Fingerprint fingerprint = entry.getValue();
+			long windowStart = fingerprint.windowStart.get();
+			if (now - windowStart >= windowNanos && fingerprint.windowStart.compareAndSet(windowStart, now)) {
+				long suppressed = fingerprint.reset();
+				if (suppressed > 0) {
+					summary.accept(fingerprint.description, suppressed);
+				} else if (suppressed == 0 && fingerprint.remove()) {
+					fingerprints.remove(entry.getKey(), fingerprint);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get the number of fingerprints in the table.
+	 *
+	 * @return number of fingerprints
+	 */
+	public int size() {
+		return fingerprints.size();
+	}
+
+	/**
+	 * Calculate the fingerprint of an error.
+	 *
+	 * @param t
+	 * @param errorCode
+	 * @return fingerprint
+	 */
+	protected long fingerprint(Throwable t, String errorCode) {
+		long hash = (errorCode == null) ? 0 : errorCode.hashCode();
+		if (t != null) {
+			hash = 31 * hash + t.getClass().getName().hashCode();
+			StackTraceElement[] stackTrace = t.getStackTrace();
+			for (int i = 0; i < Math.min(stackDepth, stackTrace.length); i++) {
+				hash = 31 * hash + stackTrace[i].getClassName().hashCode();
+				hash = 31 * hash + stackTrace[i].getMethodName().hashCode();
+				hash = 31 * hash + stackTrace[i].getLineNumber();
+			}
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+
+	/**
+	 * Describe an error for the summaries.
+	 *
+	 * @param t
+	 * @param errorCode
+	 * @return description
+	 */
+	protected String describe(Throwable t, String errorCode) {
+		StringBuilder description = new StringBuilder();
+		description.append(errorCode);
+		if (t != null) {
+			description.append(": ").append(t.getClass().getName());
+			StackTraceElement[] stackTrace = t.getStackTrace();
+			if (stackTrace.length > 0) {
+				description.append(" at ").append(stackTrace[0]);
+			}
+		}
+		return description.toString();
+	}
+
+	/**
+	 * Counters of a fingerprint.
+	 */
+	private static class Fingerprint {
+
+		private final String description;
+
+		private final AtomicLong windowStart;
+
+		private final AtomicLong suppressed = new AtomicLong();
+
+		Fingerprint(String description, long windowStart) {
+			this.description = description;
+			this.windowStart = new AtomicLong(windowStart);
+		}
+
+		/**
+		 * Increment the suppressed occurrences.
+		 *
+		 * @return false if the fingerprint was removed
+		 */
+		boolean increment() {
+			long value;
+			do {
+				value = suppressed.get();
+				if (value == REMOVED) {
+					return false;
+				}
+			} while (!suppressed.compareAndSet(value, value + 1));
+			return true;
+		}
+
+		/**
+		 * Reset the suppressed occurrences.
+		 *
+		 * @return the suppressed occurrences, or {@link #REMOVED} if the fingerprint was removed
+		 */
+		long reset() {
+			long value;
+			do {
+				value = suppressed.get();
+				if (value == REMOVED) {
+					return REMOVED;
+				}
+			} while (!suppressed.compareAndSet(value, 0));
+			return value;
+		}
+
+		/**
+		 * Mark the fingerprint as removed if there are no suppressed occurrences.
+		 *
+		 * @return true if the fingerprint is marked as removed
+		 */
+		boolean remove() {
+			return suppressed.compareAndSet(0, REMOVED);
+		}
+
+	}
+
+}
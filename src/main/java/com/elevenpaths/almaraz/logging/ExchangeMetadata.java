@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.logging;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.List;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.server.ServerWebExchange;
+
+/**
+ * Metadata of the request of a {@link ServerWebExchange} in {@link String} format as required by MDC.
+ *
+ * The metadata is computed once per exchange and it is stored as an exchange attribute ({@link #ATTRIBUTE}),
+ * so that it is shared by every web filter (e.g. LoggerWebFilter and ErrorWebFilter) without parsing the
+ * request again. Note that the exchange attributes are shared with the mutated exchanges.
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class ExchangeMetadata {
+
+	/**
+	 * Exchange attribute with the {@link ExchangeMetadata} instance.
+	 */
+	public static final String ATTRIBUTE = ExchangeMetadata.class.getName();
+
+	/**
+	 * Metadata without values. It is used if the metadata cannot be obtained from the exchange.
+	 */
+	private static final ExchangeMetadata EMPTY = new ExchangeMetadata(null, null, null, null);
+
+	private final String method;
+
+	private final String path;
+
+	private final String query;
+
+	private final String remoteAddress;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param method
+	 * @param path
+	 * @param query
+	 * @param remoteAddress
+	 */
+	ExchangeMetadata(String method, String path, String query, String remoteAddress) {
+		this.method = method;
+		this.path = path;
+		this.query = query;
+		this.remoteAddress = remoteAddress;
+	}
+
+	/**
+	 * Get the metadata of the exchange. It is computed with the first invocation and stored as exchange
+	 * attribute for the next ones.
+	 *
+	 * @param exchange
+	 * @return metadata of the exchange request
+	 */
+	public static ExchangeMetadata from(ServerWebExchange exchange) {
+		Object metadata = exchange.getAttributes().get(ATTRIBUTE);
+		if (metadata instanceof ExchangeMetadata) {
+			return (ExchangeMetadata) metadata;
+		}
+		ExchangeMetadata exchangeMetadata = create(exchange.getRequest());
+		exchange.getAttributes().put(ATTRIBUTE, exchangeMetadata);
+		return exchangeMetadata;
+	}
+
+	/**
+	 * Create the metadata from the request. The missing request attributes are null.
+	 *
+	 * @param request
+	 * @return metadata of the request
+	 */
+	private static ExchangeMetadata create(ServerHttpRequest request) {
+		if (request == null) {
+			return EMPTY;
+		}
+		HttpMethod method = request.getMethod();
+		URI uri = request.getURI();
+		String remoteAddress = getRemoteAddressFromXFF(request.getHeaders());
+		if (remoteAddress == null) {
+			remoteAddress = getRemoteAddressFromTCP(request.getRemoteAddress());
+		}
+		return new ExchangeMetadata(
+				(method == null) ? null : method.toString(),
+				(uri == null) ? null : uri.getPath(),
+				(uri == null) ? null : uri.getQuery(),
+				remoteAddress);
+	}
+
+	/**
+	 * Get the remote address from TCP/IP protocol.
+	 *
+	 * @param address
+	 * @return remote address or null if not available
+	 */
+	static String getRemoteAddressFromTCP(InetSocketAddress address) {
+		if (address == null) {
+			return null;
+		}
+		InetAddress inetAddress = address.getAddress();
+		return (inetAddress == null) ? null : inetAddress.toString();
+	}
+
+	/**
+	 * Get the first element of the X-Forwarded-For header. The header values are scanned in a single pass
+	 * until the first non-empty element (separated by commas) is found.
+	 *
+	 * @param headers
+	 * @return first address of the X-Forwarded-For header or null if not available
+	 */
+	static String getRemoteAddressFromXFF(HttpHeaders headers) {
+		if (headers == null) {
+			return null;
+		}
+		List<String> values = headers.get(MDCServerWebExchange.X_FORWARDED_FOR_HEADER);
+		if (values == null) {
+			return null;
+		}
+		for (int i = 0; i < values.size(); i++) {
+			String value = values.get(i);
+			if (value == null) {
+				continue;
+			}
+			int start = 0;
+			int length = value.length();
+			while (start < length) {
+				int end = value.indexOf(',', start);
+				if (end < 0) {
+					end = length;
+				}
+				int tokenStart = start;
+				int tokenEnd = end;
+				while (tokenStart < tokenEnd && Character.isWhitespace(value.charAt(tokenStart))) {
+					tokenStart++;
+				}
+				while (tokenEnd > tokenStart && Character.isWhitespace(value.charAt(tokenEnd - 1))) {
+					tokenEnd--;
+				}
+				if (tokenStart < tokenEnd) {
+					return value.substring(tokenStart, tokenEnd);
+				}
+				start = end + 1;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Get the request method.
+	 *
+	 * @return request method
+	 */
+	public String getMethod() {
+		return method;
+	}
+
+	/**
+	 * Get the request path.
+	 *
+	 * @return request path
+	 */
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * Get the request query params.
+	 *
+	 * @return request query params
+	 */
+	public String getQuery() {
+		return query;
+	}
+
+	/**
+	 * Get the remote address of the request. If the request contains a X-Forwarded-For HTTP header,
+	 * it is the first address. Otherwise, it is the remote address obtained from TCP/IP.
+	 *
+	 * @return request remote address
+	 */
+	public String getRemoteAddress() {
+		return remoteAddress;
+	}
+
+}
@@ -0,0 +1,371 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.logging;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.elevenpaths.almaraz.context.ContextField;
+
+/**
+ * Writer of JSON log records straight into a reusable byte buffer.
+ *
+ * The writer is obtained per thread with {@link #get()} and it is reused for every record. The keys of the
+ * {@link ContextField} fields are precomputed as bytes and the escaping of values writes directly into the buffer,
+ * so no intermediate Strings nor maps are created. The fields {@link ContextField#STATUS} and
+ * {@link ContextField#LATENCY} are written as JSON numbers.
+ *
+ * It can be used as a standalone sink:
+ *
+ * <code>
+ * JsonLogWriter.get()
+ *     .begin(System.currentTimeMillis(), "INFO", "access")
+ *     .fields(requestContext.getContextMap())
+ *     .field(ContextField.STATUS, "200")
+ *     .end()
+ *     .writeTo(System.out);
+ * </code>
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class JsonLogWriter {
+
+	/**
+	 * Field with the timestamp in ISO-8601 format (UTC).
+	 */
+	public static final String TIME = "time";
+
+	/**
+	 * Field with the log level.
+	 */
+	public static final String LEVEL = "lvl";
+
+	/**
+	 * Field with the logger name.
+	 */
+	public static final String LOGGER = "logger";
+
+	/**
+	 * Field with the log message.
+	 */
+	public static final String MESSAGE = "msg";
+
+	/**
+	 * Field with the exception.
+	 */
+	public static final String EXCEPTION = "exception";
+
+	/**
+	 * Initial size of the buffer.
+	 */
+	private static final int INITIAL_SIZE = 1024;
+
+	/**
+	 * Maximum size of a buffer retained by a thread. Bigger buffers are released after the record.
+	 */
+	private static final int MAX_RETAINED_SIZE = 64 * 1024;
+
+	/**
+	 * Precomputed keys in the format: <code>"key":</code>.
+	 */
+	private static final Map<String, byte[]> KEYS = new HashMap<>();
+
+	static {
+		for (String key : new String[] { TIME, LEVEL, LOGGER, MESSAGE, EXCEPTION,
+				ContextField.TRANSACTION_ID, ContextField.CORRELATOR, ContextField.OPERATION,
+				ContextField.SERVICE, ContextField.COMPONENT, ContextField.USER, ContextField.REALM,
+				ContextField.ERROR, ContextField.REASON, ContextField.ALARM, ContextField.METHOD,
+				ContextField.PATH, ContextField.QUERY, ContextField.URL, ContextField.ADDRESS,
+				ContextField.STATUS, ContextField.LATENCY }) {
+			KEYS.put(key, ("\"" + key + "\":").getBytes(StandardCharsets.UTF_8));
+		}
+	}
+
+	private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+	private static final ThreadLocal<JsonLogWriter> WRITERS = ThreadLocal.withInitial(JsonLogWriter::new);
+
+	/**
+	 * Buffer with the record.
+	 */
+	private byte[] buffer = new byte[INITIAL_SIZE];
+
+	/**
+	 * Number of bytes written in the buffer.
+	 */
+	private int size;
+
+	/**
+	 * True if the record has no fields yet.
+	 */
+	private boolean first;
+
+	/**
+	 * Get the writer bound to the current thread.
+	 *
+	 * @return writer
+	 */
+	public static JsonLogWriter get() {
+		return WRITERS.get();
+	}
+
+	/**
+	 * Start a new record with the time, level and logger fields.
+	 *
+	 * @param timestamp epoch time in milliseconds
+	 * @param level
+	 * @param logger
+	 * @return this writer
+	 */
+	public JsonLogWriter begin(long timestamp, String level, String logger) {
+		if (buffer.length > MAX_RETAINED_SIZE) {
+			buffer = new byte[INITIAL_SIZE];
+		}
+		size = 0;
+		first = true;
+		writeByte('{');
+		writeKey(TIME);
+		writeTimestamp(timestamp);
+		field(LEVEL, level);
+		field(LOGGER, logger);
+		return this;
+	}
+
+	/**
+	 * Add a field. It is ignored if the value is null.
+	 *
+	 * @param key
+	 * @param value
+	 * @return this writer
+	 */
+	public JsonLogWriter field(String key, String value) {
+		if (key == null || value == null) {
+			return this;
+		}
+		writeKey(key);
+		if ((ContextField.STATUS.equals(key) || ContextField.LATENCY.equals(key)) && isInteger(value)) {
+			writeAscii(value);
+		} else {
+			writeString(value);
+		}
+		return this;
+	}
+
+	/**
+	 * Add all the fields of a map.
+	 *
+	 * @param fields
+	 * @return this writer
+	 */
+	public JsonLogWriter fields(Map<String, String> fields) {
+		if (fields != null) {
+			for (Map.Entry<String, String> entry : fields.entrySet()) {
+				field(entry.getKey(), entry.getValue());
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Close the record. It is terminated with a line break.
+	 *
+	 * @return this writer
+	 */
+	public JsonLogWriter end() {
+		writeByte('}');
+		writeByte('\n');
+		return this;
+	}
+
+	/**
+	 * Write the record into an output stream.
+	 *
+	 * @param out
+	 * @throws IOException
+	 */
+	public void writeTo(OutputStream out) throws IOException {
+		out.write(buffer, 0, size);
+	}
+
+	/**
+	 * Get a copy of the record.
+	 *
+	 * @return bytes of the record
+	 */
+	public byte[] toByteArray() {
+		return Arrays.copyOf(buffer, size);
+	}
+
+	/**
+	 * Get the number of bytes of the record.
+	 *
+	 * @return size of the record
+	 */
+	public int size() {
+		return size;
+	}
+
+	private void writeKey(String key) {
+		if (!first) {
+			writeByte(',');
+		}
+		first = false;
+		byte[] keyBytes = KEYS.get(key);
+		if (keyBytes != null) {
+			ensureCapacity(keyBytes.length);
+			System.arraycopy(keyBytes, 0, buffer, size, keyBytes.length);
+			size += keyBytes.length;
+		} else {
+			writeString(key);
+			writeByte(':');
+		}
+	}
+
+	private void writeString(String value) {
+		int length = value.length();
+		ensureCapacity(length + 2);
+		buffer[size++] = '"';
+		for (int i = 0; i < length; i++) {
+			char c = value.charAt(i);
+			if (c >= 0x20 && c < 0x80 && c != '"' && c != '\\') {
+				ensureCapacity(2);
+				buffer[size++] = (byte) c;
+			} else if (c < 0x80) {
+				writeEscaped(c);
+			} else if (c < 0x800) {
+				ensureCapacity(3);
+				buffer[size++] = (byte) (0xC0 | (c >> 6));
+				buffer[size++] = (byte) (0x80 | (c & 0x3F));
+			} else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+				int codePoint = Character.toCodePoint(c, value.charAt(++i));
+				ensureCapacity(5);
+				buffer[size++] = (byte) (0xF0 | (codePoint >> 18));
+				buffer[size++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+				buffer[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+				buffer[size++] = (byte) (0x80 | (codePoint & 0x3F));
+			} else if (Character.isSurrogate(c)) {
+				ensureCapacity(2);
+				buffer[size++] = '?';
+			} else {
+				ensureCapacity(4);
+				buffer[size++] = (byte) (0xE0 | (c >> 12));
+				buffer[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+				buffer[size++] = (byte) (0x80 | (c & 0x3F));
+			}
+		}
+		buffer[size++] = '"';
+	}
+
+	private void writeEscaped(char c) {
+		ensureCapacity(7);
+		buffer[size++] = '\\';
+		switch (c) {
+		case '"':
+		case '\\':
+			buffer[size++] = (byte) c;
+			break;
+		case '\n':
+			buffer[size++] = 'n';
+			break;
+		case '\r':
+			buffer[size++] = 'r';
+			break;
+		case '\t':
+			buffer[size++] = 't';
+			break;
+		default:
+			buffer[size++] = 'u';
+			buffer[size++] = '0';
+			buffer[size++] = '0';
+			buffer[size++] = HEX[c >> 4];
+			buffer[size++] = HEX[c & 0xF];
+		}
+	}
+
+	private void writeAscii(String value) {
+		int length = value.length();
+		ensureCapacity(length);
+		for (int i = 0; i < length; i++) {
+			buffer[size++] = (byte) value.charAt(i);
+		}
+	}
+
+	/**
+	 * Write the timestamp as <code>"yyyy-MM-ddTHH:mm:ss.SSSZ"</code> in UTC without creating date objects.
+	 *
+	 * @param timestamp epoch time in milliseconds
+	 */
+	private void writeTimestamp(long timestamp) {
+		long days = Math.floorDiv(timestamp, 86400000L);
+		int millisOfDay = (int) Math.floorMod(timestamp, 86400000L);
+		// Civil date from days since epoch (algorithm by Howard Hinnant)
+		long z = days + 719468;
+		long era = Math.floorDiv(z, 146097);
+		long doe = z - era * 146097;
+		long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+		long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+		long mp = (5 * doy + 2) / 153;
+		int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+		int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+		int year = (int) (yoe + era * 400 + (month <= 2 ? 1 : 0));
+
+		ensureCapacity(26);
+		buffer[size++] = '"';
+		writeDigits(year, 4);
+		buffer[size++] = '-';
+		writeDigits(month, 2);
+		buffer[size++] = '-';
+		writeDigits(day, 2);
+		buffer[size++] = 'T';
+		writeDigits(millisOfDay / 3600000, 2);
+		buffer[size++] = ':';
+		writeDigits((millisOfDay / 60000) % 60, 2);
+		buffer[size++] = ':';
+		writeDigits((millisOfDay / 1000) % 60, 2);
+		buffer[size++] = '.';
+		writeDigits(millisOfDay % 1000, 3);
+		buffer[size++] = 'Z';
+		buffer[size++] = '"';
+	}
+
+	private void writeDigits(int value, int digits) {
+		for (int i = digits - 1; i >= 0; i--) {
+			buffer[size + i] = (byte) ('0' + value % 10);
+			value /= 10;
+		}
+		size += digits;
+	}
+
+	private void writeByte(char c) {
+		ensureCapacity(1);
+		buffer[size++] = (byte) c;
+	}
+
+	private void ensureCapacity(int extra) {
+		if (size + extra > buffer.length) {
+			buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+		}
+	}
+
+	private static boolean isInteger(String value) {
+		int length = value.length();
+		if (length == 0 || length > 18) {
+			return false;
+		}
+		for (int i = (value.charAt(0) == '-' && length > 1) ? 1 : 0; i < length; i++) {
+			char c = value.charAt(i);
+			if (c < '0' || c > '9') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.logging;
+
+import org.slf4j.MDC;
+import org.slf4j.spi.MDCAdapter;
+
+import com.elevenpaths.almaraz.context.RequestContext;
+
+/**
+ * Utilities to set and reset the {@link MDC} with the properties of a {@link RequestContext}.
+ *
+ * If the SLF4J {@link MDCAdapter} is a {@link ContextMDCAdapter}, the context map is bound by reference.
+ * Otherwise, the context map is copied into {@link MDC}.
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+class MDCContext {
+
+	/**
+	 * Private constructor. Only static methods.
+	 */
+	private MDCContext() {
+	}
+
+	/**
+	 * Set the {@link MDC} with the properties of the {@link RequestContext} (removing any other property).
+	 *
+	 * @param requestContext
+	 */
+	static void set(RequestContext requestContext) {
+		MDCAdapter adapter = MDC.getMDCAdapter();
+		if (adapter instanceof ContextMDCAdapter) {
+			adapter.clear();
+			((ContextMDCAdapter) adapter).bind(requestContext);
+		} else {
+			MDC.setContextMap(requestContext.getContextMap());
+		}
+	}
+
+	/**
+	 * Clear the {@link MDC}.
+	 */
+	static void clear() {
+		MDCAdapter adapter = MDC.getMDCAdapter();
+		if (adapter instanceof ContextMDCAdapter) {
+			((ContextMDCAdapter) adapter).unbind();
+		}
+		MDC.clear();
+	}
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.logging;
+
+import org.slf4j.MDC;
+
+import com.elevenpaths.almaraz.context.RequestContext;
+
+import reactor.core.publisher.Hooks;
+
+/**
+ * Opt-in automatic propagation of the {@link RequestContext} to MDC using Micrometer context-propagation
+ * (it requires the dependency <b>io.micrometer:context-propagation</b>).
+ *
+ * By default, only the log statements written with {@link ReactiveLogger} include the context: MDC is populated
+ * before the log statement and cleared afterwards. When this mode is enabled, Reactor restores the MDC from the
+ * {@link RequestContext} every time a signal hops to another thread (see {@link RequestContextThreadLocalAccessor}),
+ * so that a plain <code>log.info</code> inside any operator includes the context.
+ *
+ * Note that the cost changes from one MDC copy per {@link ReactiveLogger} statement to one MDC copy per thread hop.
+ * It should be enabled once, when the application starts, before any reactive stream is subscribed:
+ *
+ * <code>
+ * public static void main(String[] args) {
+ *   MDCContextPropagation.enable();
+ *   SpringApplication.run(Application.class, args);
+ * }
+ * </code>
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class MDCContextPropagation {
+
+	/**
+	 * True if the automatic propagation is enabled.
+	 */
+	private static volatile boolean enabled;
+
+	/**
+	 * Private constructor. Only static methods.
+	 */
+	private MDCContextPropagation() {
+	}
+
+	/**
+	 * Register the {@link RequestContextThreadLocalAccessor} and enable the automatic context propagation of Reactor.
+	 */
+	public static synchronized void enable() {
+		if (enabled) {
+			return;
+		}
+		RequestContextThreadLocalAccessor.register();
+		Hooks.enableAutomaticContextPropagation();
+		enabled = true;
+	}
+
+	/**
+	 * Disable the automatic context propagation of Reactor and unregister the {@link RequestContextThreadLocalAccessor}.
+	 */
+	public static synchronized void disable() {
+		if (!enabled) {
+			return;
+		}
+		Hooks.disableAutomaticContextPropagation();
+		RequestContextThreadLocalAccessor.unregister();
+		enabled = false;
+		MDC.clear();
+	}
+
+	/**
+	 * Check if the automatic propagation is enabled.
+	 *
+	 * @return true if enabled
+	 */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+}
@@ -4,12 +4,20 @@
 
 package com.elevenpaths.almaraz.logging;
 
+import org.slf4j.MDC;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.web.server.ServerWebExchange;
 
+import com.elevenpaths.almaraz.context.ContextField;
+
 /**
  * Utility class to extract attributes from a {@link ServerWebExchange} instance in {@link String} format
  * as required by MDC.
  *
+ * The request attributes are computed once per exchange (see {@link ExchangeMetadata}).
+ *
  * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
  *
  */
@@ -32,6 +40,20 @@ public class MDCServerWebExchange {
 	private MDCServerWebExchange() {
 	}
 
+	/**
+	 * Write the request metadata (method, path, query params and remote address) into the MDC.
+	 * The metadata is obtained from the {@link ExchangeMetadata} shared by all the web filters.
+	 *
+	 * @param exchange
+	 */
+	public static void putRequestFields(ServerWebExchange exchange) {
+		ExchangeMetadata metadata = ExchangeMetadata.from(exchange);
+		MDC.put(ContextField.METHOD, metadata.getMethod());
+		MDC.put(ContextField.PATH, metadata.getPath());
+		MDC.put(ContextField.QUERY, metadata.getQuery());
+		MDC.put(ContextField.ADDRESS, metadata.getRemoteAddress());
+	}
+
 	/**
 	 * Get the method of the exchange request.
 	 *
@@ -39,11 +61,7 @@ public class MDCServerWebExchange {
 	 * @return request method
 	 */
 	public static String getMethod(ServerWebExchange exchange) {
-		try {
-			return exchange.getRequest().getMethod().toString();
-		} catch (Exception e) {
-			return null;
-		}
+		return ExchangeMetadata.from(exchange).getMethod();
 	}
 
 	/**
@@ -53,11 +71,7 @@ public class MDCServerWebExchange {
 	 * @return request path
 	 */
 	public static String getPath(ServerWebExchange exchange) {
-		try {
-			return exchange.getRequest().getURI().getPath();
-		} catch (Exception e) {
-			return null;
-		}
+		return ExchangeMetadata.from(exchange).getPath();
 	}
 
 	/**
@@ -67,11 +81,7 @@ public class MDCServerWebExchange {
 	 * @return request query params
 	 */
 	public static String getQueryParams(ServerWebExchange exchange) {
-		try {
-			return exchange.getRequest().getURI().getQuery();
-		} catch (Exception e) {
-			return null;
-		} 
+		return ExchangeMetadata.from(exchange).getQuery();
 	}
 
 	/**
@@ -83,11 +93,7 @@ public class MDCServerWebExchange {
 	 * @return request remote address
 	 */
 	public static String getRemoteAddress(ServerWebExchange exchange) {
-		String address = getRemoteAddressFromXFF(exchange);
-		if (address == null) {
-			address = getRemoteAddressFromTCP(exchange);
-		}
-		return address;
+		return ExchangeMetadata.from(exchange).getRemoteAddress();
 	}
 
 	/**
@@ -98,11 +104,8 @@ public class MDCServerWebExchange {
 	 * @return request remote address
 	 */
 	public static String getRemoteAddressFromTCP(ServerWebExchange exchange) {
-		try {
-			return exchange.getRequest().getRemoteAddress().getAddress().toString();
-		} catch (Exception e) {
-			return null;
-		}
+		ServerHttpRequest request = exchange.getRequest();
+		return (request == null) ? null : ExchangeMetadata.getRemoteAddressFromTCP(request.getRemoteAddress());
 	}
 
 	/**
@@ -114,25 +117,24 @@ public class MDCServerWebExchange {
 	 * @return request remote address from X-Forwarded-For HTTP header
 	 */
 	public static String getRemoteAddressFromXFF(ServerWebExchange exchange) {
-		try {
-			return exchange.getRequest().getHeaders().getValuesAsList(X_FORWARDED_FOR_HEADER).get(0);
-		} catch (Exception e) {
-			return null;
-		}
+		ServerHttpRequest request = exchange.getRequest();
+		return (request == null) ? null : ExchangeMetadata.getRemoteAddressFromXFF(request.getHeaders());
 	}
 
 	/**
-	 * Get the status code of the exchange response.
+	 * Get the status code of the exchange response. The status code is not cached because it may change
+	 * while the request is processed.
 	 *
 	 * @param exchange
-	 * @return response status code
+	 * @return response status code or null if not available
 	 */
 	public static String getStatusCode(ServerWebExchange exchange) {
-		try {
-			return Integer.toString(exchange.getResponse().getStatusCode().value());
-		} catch (Exception e) {
+		ServerHttpResponse response = exchange.getResponse();
+		if (response == null) {
 			return null;
 		}
+		HttpStatusCode status = response.getStatusCode();
+		return (status == null) ? null : Integer.toString(status.value());
 	}
 
 }
@@ -5,16 +5,22 @@
 package com.elevenpaths.almaraz.logging;
 
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 
-import org.slf4j.MDC;
+import org.slf4j.Logger;
+import org.slf4j.event.Level;
+import org.slf4j.spi.LoggingEventBuilder;
 
+import com.elevenpaths.almaraz.context.LogBuffer;
 import com.elevenpaths.almaraz.context.RequestContext;
 
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.Signal;
 import reactor.core.publisher.SignalType;
 import reactor.util.context.Context;
+import reactor.util.context.ContextView;
 
 /**
  * Reactive logger using MDC (Mapped Diagnostic Context) to generate log entries with contextual information
@@ -41,6 +47,20 @@ import reactor.util.context.Context;
  * The goal of this logger utilities is to configure MDC with the {@link RequestContext} properties while still using
  * a standard logger.
  *
+ * By default, the {@link RequestContext} properties are copied into MDC for every log statement. If the SLF4J MDC
+ * adapter is a {@link ContextMDCAdapter}, the context map is bound by reference instead (see {@link MDCContext}).
+ *
+ * The overloads with a {@link Logger} and a {@link Level} check if the level is enabled before extracting the
+ * context and updating MDC, so that disabled log statements (e.g. debug) have no cost. The overloads with a
+ * message also accept lazy arguments that are only evaluated if the log entry is written:
+ *
+ * <code>
+ * Flux.just("test 1", "test 2")
+ *   .doOnEach(ReactiveLogger.logOnNext(log, Level.DEBUG, "Next: {}", next -> expensive(next)))
+ *   .doOnEach(ReactiveLogger.logOnComplete(log, Level.INFO, () -> log.info("Complete")))
+ *   .subscribe();
+ * </code>
+ *
  * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
  *
  */
@@ -56,6 +76,9 @@ public class ReactiveLogger {
 	 * Low level logger that considers the reactive signal to determine if the logger must be invoked or not.
 	 * If the logger is to be invoked, then the {@link RequestContext} is extracted from the reactive context
 	 * to update MDC with all the context properties. The MDC is cleared afterwards.
+	 * If {@link MDCContextPropagation} is enabled, the MDC is restored with the context properties instead of
+	 * cleared, so that the following log statements in the same thread still include the context (but not
+	 * the additional MDC properties of this log statement).
 	 *
 	 * @param isSignal
 	 * @param log
@@ -66,12 +89,16 @@ public class ReactiveLogger {
 			if (!isSignal.test(signal)) {
 				return;
 			}
+			RequestContext logContext = RequestContext.from(signal.getContextView());
 			try {
-				RequestContext logContext = signal.getContextView().getOrDefault(RequestContext.class, new RequestContext());
-				MDC.setContextMap(logContext.getContextMap());
+				MDCContext.set(logContext);
 				log.accept(signal);
 			} finally {
-				MDC.clear();
+				if (MDCContextPropagation.isEnabled()) {
+					MDCContext.set(logContext);
+				} else {
+					MDCContext.clear();
+				}
 			}
 		};
 	}
@@ -112,6 +139,147 @@ public class ReactiveLogger {
 				signal -> log.accept(signal.getThrowable()));
 	}
 
+	/**
+	 * Level-aware version of {@link #logOnSignal(Predicate, Consumer)}. The logger is only invoked if the level
+	 * is enabled in the logger. Otherwise, neither the context is extracted nor the MDC is updated.
+	 * If the {@link RequestContext} contains a {@link DebugLogBuffer} and the level is lower than its threshold,
+	 * the log entry is appended to the buffer instead of written. The buffered entry keeps a copy of the signal
+	 * (with its value or error) because the signal instance may be reused by the publisher for the next values.
+	 *
+	 * Note that the level must be enabled in the logger to buffer the entry (e.g. debug level for the debug
+	 * entries), because the buffered entries are written with the same logger when they are flushed. Each
+	 * buffered entry costs a lambda and a slot in the buffer, even if the request is successful.
+	 *
+	 * @param logger
+	 * @param level
+	 * @param isSignal
+	 * @param log
+	 * @return consumer of the reactive signal to log
+	 */
+	public static <T> Consumer<Signal<T>> logOnSignal(Logger logger, Level level, Predicate<Signal<T>> isSignal,
+			Consumer<Signal<T>> log) {
+		Consumer<Signal<T>> logWithContext = logOnSignal(signal -> true, log);
+		return signal -> {
+			if (!isSignal.test(signal) || !logger.isEnabledForLevel(level)) {
+				return;
+			}
+			RequestContext requestContext = RequestContext.from(signal.getContextView());
+			LogBuffer debugLogBuffer = requestContext.getDebugLogBuffer();
+			if (debugLogBuffer != null) {
+				Signal<T> bufferedSignal = snapshot(signal);
+				if (debugLogBuffer.add(requestContext, level, () -> log.accept(bufferedSignal))) {
+					return;
+				}
+			}
+			logWithContext.accept(signal);
+		};
+	}
+
+	/**
+	 * Level-aware logger triggered with the signal type {@link SignalType#ON_NEXT}.
+	 *
+	 * @param logger
+	 * @param level
+	 * @param log
+	 * @return consumer of the reactive signal to log
+	 */
+	public static <T> Consumer<Signal<T>> logOnNext(Logger logger, Level level, Consumer<T> log) {
+		return logOnSignal(logger, level,
+				signal -> signal.getType() == SignalType.ON_NEXT,
+				signal -> log.accept(signal.get()));
+	}
+
+	/**
+	 * Level-aware logger triggered with the signal type {@link SignalType#ON_NEXT} that writes a message with
+	 * lazy arguments. Each argument is a function of the next value, only evaluated if the log entry is written.
+	 *
+	 * @param logger
+	 * @param level
+	 * @param message message (with {} placeholders for the arguments)
+	 * @param arguments
+	 * @return consumer of the reactive signal to log
+	 */
+	@SafeVarargs
+	public static <T> Consumer<Signal<T>> logOnNext(Logger logger, Level level, String message,
+			Function<? super T, ?>... arguments) {
+		return logOnNext(logger, level, value -> {
+			LoggingEventBuilder builder = logger.atLevel(level).setMessage(message);
+			for (Function<? super T, ?> argument : arguments) {
+				builder.addArgument(() -> argument.apply(value));
+			}
+			builder.log();
+		});
+	}
+
+	/**
+	 * Level-aware logger triggered with the signal type {@link SignalType#ON_COMPLETE}.
+	 *
+	 * @param logger
+	 * @param level
+	 * @param log
+	 * @return consumer of the reactive signal to log
+	 */
+	public static <T> Consumer<Signal<T>> logOnComplete(Logger logger, Level level, Runnable log) {
+		return logOnSignal(logger, level,
+				signal -> signal.getType() == SignalType.ON_COMPLETE,
+				signal -> log.run());
+	}
+
+	/**
+	 * Level-aware logger triggered with the signal type {@link SignalType#ON_COMPLETE} that writes a message with
+	 * lazy arguments, only evaluated if the log entry is written.
+	 *
+	 * @param logger
+	 * @param level
+	 * @param message message (with {} placeholders for the arguments)
+	 * @param arguments
+	 * @return consumer of the reactive signal to log
+	 */
+	public static <T> Consumer<Signal<T>> logOnComplete(Logger logger, Level level, String message,
+			Supplier<?>... arguments) {
+		return logOnComplete(logger, level, () -> write(logger, level, message, arguments));
+	}
+
+	/**
+	 * Level-aware logger triggered with the signal type {@link SignalType#ON_ERROR}.
+	 *
+	 * @param logger
+	 * @param level
+	 * @param log
+	 * @return consumer of the reactive signal to log
+	 */
+	public static <T> Consumer<Signal<T>> logOnError(Logger logger, Level level, Consumer<Throwable> log) {
+		return logOnSignal(logger, level,
+				signal -> signal.getType() == SignalType.ON_ERROR,
+				signal -> log.accept(signal.getThrowable()));
+	}
+
+	/**
+	 * Helper to log with the {@link RequestContext} of a reactive context when there is no signal available
+	 * (e.g. inside a doFinally step, with the context captured with deferContextual).
+	 *
+	 * <code>
+	 * Mono.deferContextual(ctxt -> mono.doFinally(signalType -> ReactiveLogger.log(ctxt, ()
+	 *         -> log.info("Finally: {}", signalType))));
+	 * </code>
+	 *
+	 * @param contextView
+	 * @param log
+	 */
+	public static void log(ContextView contextView, Runnable log) {
+		RequestContext logContext = RequestContext.from(contextView);
+		try {
+			MDCContext.set(logContext);
+			log.run();
+		} finally {
+			if (MDCContextPropagation.isEnabled()) {
+				MDCContext.set(logContext);
+			} else {
+				MDCContext.clear();
+			}
+		}
+	}
+
 	/**
 	 * Helper to log when there is no reactive step yet (e.g. inside an onErrorResume step
 	 * where it is required to log a message but including the log context).
@@ -130,4 +298,62 @@ public class ReactiveLogger {
 				.then();
 	}
 
+	/**
+	 * Level-aware version of {@link #log(Runnable)} that writes a message with lazy arguments.
+	 *
+	 * <code>
+	 * .onErrorResume(MyException.class, e -> ReactiveLogger.log(log, Level.DEBUG,
+	 *         "Error: {}", () -> describe(e)));
+	 * </code>
+	 *
+	 * @param logger
+	 * @param level
+	 * @param message message (with {} placeholders for the arguments)
+	 * @param arguments
+	 * @return Mono empty
+	 */
+	public static Mono<Void> log(Logger logger, Level level, String message, Supplier<?>... arguments) {
+		return Mono.empty()
+				.doOnEach(ReactiveLogger.logOnComplete(logger, level, message, arguments))
+				.then();
+	}
+
+	/**
+	 * Copy a signal so that it can be processed later (e.g. when a {@link DebugLogBuffer} is flushed).
+	 * Operators like doOnEach reuse the same signal instance for every onNext, so the value must be read
+	 * when the signal is received.
+	 *
+	 * @param signal
+	 * @return immutable copy of the signal
+	 */
+	private static <T> Signal<T> snapshot(Signal<T> signal) {
+		Context context = Context.of(signal.getContextView());
+		switch (signal.getType()) {
+		case ON_NEXT:
+			return Signal.next(signal.get(), context);
+		case ON_ERROR:
+			return Signal.error(signal.getThrowable(), context);
+		case ON_COMPLETE:
+			return Signal.complete(context);
+		default:
+			return signal;
+		}
+	}
+
+	/**
+	 * Write a message with lazy arguments.
+	 *
+	 * @param logger
+	 * @param level
+	 * @param message
+	 * @param arguments
+	 */
+	private static void write(Logger logger, Level level, String message, Supplier<?>[] arguments) {
+		LoggingEventBuilder builder = logger.atLevel(level).setMessage(message);
+		for (Supplier<?> argument : arguments) {
+			builder.addArgument(argument);
+		}
+		builder.log();
+	}
+
 }
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.logging;
+
+import com.elevenpaths.almaraz.context.RequestContext;
+
+import io.micrometer.context.ContextRegistry;
+import io.micrometer.context.ThreadLocalAccessor;
+
+/**
+ * {@link ThreadLocalAccessor} to propagate the {@link RequestContext}, stored in the reactor context with the key
+ * {@link RequestContext#getClass()}, to a thread local and to MDC.
+ *
+ * When the automatic context propagation of Reactor is enabled, Reactor invokes this accessor every time a
+ * signal is delivered in a different thread (hop). Then, the MDC is populated with the {@link RequestContext}
+ * properties (see {@link MDCContext}), so that any log statement (not only those written with
+ * {@link ReactiveLogger}) includes the context.
+ *
+ * Use {@link MDCContextPropagation#enable()} to register it.
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class RequestContextThreadLocalAccessor implements ThreadLocalAccessor<RequestContext> {
+
+	/**
+	 * Thread local with the {@link RequestContext} restored from the reactor context.
+	 */
+	private static final ThreadLocal<RequestContext> CURRENT = new ThreadLocal<>();
+
+	/**
+	 * Get the {@link RequestContext} restored in the current thread.
+	 *
+	 * @return {@link RequestContext} or null if not available
+	 */
+	public static RequestContext current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Register an instance of the accessor in the global {@link ContextRegistry}.
+	 */
+	static void register() {
+		ContextRegistry.getInstance().registerThreadLocalAccessor(new RequestContextThreadLocalAccessor());
+	}
+
+	/**
+	 * Remove the accessor from the global {@link ContextRegistry}.
+	 */
+	static void unregister() {
+		ContextRegistry.getInstance().removeThreadLocalAccessor(RequestContext.class);
+	}
+
+	@Override
+	public Object key() {
+		return RequestContext.class;
+	}
+
+	@Override
+	public RequestContext getValue() {
+		return CURRENT.get();
+	}
+
+	@Override
+	public void setValue(RequestContext value) {
+		if (value == null) {
+			setValue();
+			return;
+		}
+		CURRENT.set(value);
+		MDCContext.set(value);
+	}
+
+	@Override
+	public void setValue() {
+		CURRENT.remove();
+		MDCContext.clear();
+	}
+
+}
@@ -0,0 +1,391 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.logging.logback;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.MDC;
+
+import com.elevenpaths.almaraz.logging.ContextMDCAdapter;
+import com.elevenpaths.almaraz.logging.ReactiveLogger;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.spi.AppenderAttachable;
+import ch.qos.logback.core.spi.AppenderAttachableImpl;
+
+/**
+ * Logback appender that moves the encoding and writing of log events out of the thread that logs (e.g. the Netty
+ * event loop that runs {@link ReactiveLogger}) to a dedicated consumer thread.
+ *
+ * The thread that logs only captures an immutable snapshot of the event (level, formatted message, a copy of the
+ * MDC, etc.) and publishes it in a preallocated lock-free {@link RingBuffer}. The consumer thread takes the events in batches and
+ * forwards them to the attached appenders.
+ *
+ * When the buffer is full, the {@link OverflowPolicy} determines what happens with the new events. The number of
+ * dropped and sampled out events is available with {@link #getDroppedCount()} and {@link #getSampledOutCount()}.
+ *
+ * <code>
+ * &lt;appender name="ASYNC" class="com.elevenpaths.almaraz.logging.logback.AsyncBatchAppender"&gt;
+ *   &lt;capacity&gt;8192&lt;/capacity&gt;
+ *   &lt;batchSize&gt;256&lt;/batchSize&gt;
+ *   &lt;overflowPolicy&gt;SAMPLE&lt;/overflowPolicy&gt;
+ *   &lt;sampleRate&gt;10&lt;/sampleRate&gt;
+ *   &lt;appender-ref ref="CONSOLE" /&gt;
+ * &lt;/appender&gt;
+ * </code>
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class AsyncBatchAppender extends UnsynchronizedAppenderBase<ILoggingEvent>
+		implements AppenderAttachable<ILoggingEvent> {
+
+	/**
+	 * Policy when the buffer is full (or nearly full).
+	 */
+	public enum OverflowPolicy {
+		/**
+		 * New events are dropped while the buffer is full.
+		 */
+		DROP,
+		/**
+		 * The thread that logs waits until there is a free slot in the buffer.
+		 */
+		BLOCK,
+		/**
+		 * When the buffer is half full, only 1 out of {@link AsyncBatchAppender#getSampleRate()} events with a level
+		 * lower than WARN is kept. New events are dropped while the buffer is full.
+		 */
+		SAMPLE
+	}
+
+	/**
+	 * Default capacity of the buffer.
+	 */
+	public static final int DEFAULT_CAPACITY = 8192;
+
+	/**
+	 * Default maximum number of events processed in a batch.
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 256;
+
+	/**
+	 * Default sample rate with {@link OverflowPolicy#SAMPLE}.
+	 */
+	public static final int DEFAULT_SAMPLE_RATE = 10;
+
+	/**
+	 * Default maximum time (in milliseconds) to flush the pending events when the appender is stopped.
+	 */
+	public static final int DEFAULT_MAX_FLUSH_TIME = 1000;
+
+	/**
+	 * Maximum time that the consumer thread waits when there are no events.
+	 */
+	private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+	/**
+	 * Time that a producer waits for a free slot with {@link OverflowPolicy#BLOCK}.
+	 */
+	private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+	/**
+	 * Attached appenders that write the events.
+	 */
+	private final AppenderAttachableImpl<ILoggingEvent> appenders = new AppenderAttachableImpl<>();
+
+	/**
+	 * Number of dropped events.
+	 */
+	private final LongAdder droppedCount = new LongAdder();
+
+	/**
+	 * Number of events discarded by sampling.
+	 */
+	private final LongAdder sampledOutCount = new LongAdder();
+
+	/**
+	 * Counter to select the events kept by sampling.
+	 */
+	private final AtomicLong sampleCounter = new AtomicLong();
+
+	/**
+	 * True if the consumer thread is (or is about to be) parked waiting for events.
+	 */
+	private final AtomicBoolean consumerParked = new AtomicBoolean();
+
+	private int capacity = DEFAULT_CAPACITY;
+
+	private int batchSize = DEFAULT_BATCH_SIZE;
+
+	private OverflowPolicy overflowPolicy = OverflowPolicy.DROP;
+
+	private int sampleRate = DEFAULT_SAMPLE_RATE;
+
+	private int maxFlushTime = DEFAULT_MAX_FLUSH_TIME;
+
+	/**
+	 * Buffer with the pending events.
+	 */
+	private RingBuffer<ILoggingEvent> buffer;
+
+	/**
+	 * Consumer thread.
+	 */
+	private Thread consumer;
+
+	@Override
+	public void start() {
+		if (isStarted()) {
+			return;
+		}
+		if (!appenders.iteratorForAppenders().hasNext()) {
+			addError("No attached appenders found for [" + getName() + "]");
+			return;
+		}
+		if (batchSize < 1 || sampleRate < 1) {
+			addError("Invalid batchSize or sampleRate for [" + getName() + "]");
+			return;
+		}
+		buffer = new RingBuffer<>(capacity);
+		consumer = new Thread(this::consume, "AsyncBatchAppender-" + getName());
+		consumer.setDaemon(true);
+		super.start();
+		consumer.start();
+	}
+
+	/**
+	 * Stop the appender. The pending events are flushed (waiting up to {@link #getMaxFlushTime()} milliseconds)
+	 * and the attached appenders are stopped.
+	 */
+	@Override
+	public void stop() {
+		if (!isStarted()) {
+			return;
+		}
+		super.stop();
+		LockSupport.unpark(consumer);
+		try {
+			consumer.join(maxFlushTime);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (consumer.isAlive()) {
+			addWarn("Max flush time exceeded. " + buffer.size() + " events may be discarded");
+		}
+		appenders.detachAndStopAllAppenders();
+	}
+
+	/**
+	 * Capture a snapshot of the event and publish it in the buffer.
+	 */
+	@Override
+	protected void append(ILoggingEvent event) {
+		if (isSampledOut(event)) {
+			sampledOutCount.increment();
+			return;
+		}
+		ILoggingEvent snapshot = captureSnapshot(event);
+		if (!buffer.offer(snapshot)) {
+			if (overflowPolicy != OverflowPolicy.BLOCK) {
+				droppedCount.increment();
+				return;
+			}
+			while (!buffer.offer(snapshot)) {
+				if (!isStarted()) {
+					droppedCount.increment();
+					return;
+				}
+				LockSupport.parkNanos(BLOCK_PARK_NANOS);
+			}
+		}
+		if (consumerParked.get() && consumerParked.compareAndSet(true, false)) {
+			LockSupport.unpark(consumer);
+		}
+	}
+
+	/**
+	 * Check if the event is discarded by sampling (only with {@link OverflowPolicy#SAMPLE}).
+	 *
+	 * @param event
+	 * @return true if the event must be discarded
+	 */
+	protected boolean isSampledOut(ILoggingEvent event) {
+		if (overflowPolicy != OverflowPolicy.SAMPLE
+				|| event.getLevel().isGreaterOrEqual(Level.WARN)
+				|| buffer.size() < buffer.capacity() / 2) {
+			return false;
+		}
+		return sampleCounter.getAndIncrement() % sampleRate != 0;
+	}
+
+	/**
+	 * Capture the event data that depends on the thread that logs (formatted message, thread name, MDC...).
+	 * The event handed off to the consumer thread always owns a copy of the MDC, because the MDC of the event
+	 * may be a view of a live context (see {@link ContextMDCAdapter}). The copy is stored in the event if its
+	 * MDC is not set yet. Otherwise, the event is wrapped with the copy.
+	 *
+	 * @param event
+	 * @return event to be handed off to the consumer thread
+	 */
+	protected ILoggingEvent captureSnapshot(ILoggingEvent event) {
+		if (event instanceof LoggingEvent) {
+			Map<String, String> mdc = MDC.getCopyOfContextMap();
+			try {
+				((LoggingEvent) event).setMDCPropertyMap((mdc == null) ? Collections.emptyMap() : mdc);
+				event.prepareForDeferredProcessing();
+				return event;
+			} catch (IllegalStateException e) {
+				// The MDC was already set in the event: it is copied below
+			}
+		}
+		event.prepareForDeferredProcessing();
+		Map<String, String> mdc = event.getMDCPropertyMap();
+		return new SnapshotLoggingEvent(event, (mdc == null) ? Collections.emptyMap() : new HashMap<>(mdc));
+	}
+
+	/**
+	 * Loop of the consumer thread. It forwards the events to the attached appenders in batches until the
+	 * appender is stopped and the buffer is empty.
+	 */
+	private void consume() {
+		while (true) {
+			int processed = 0;
+			ILoggingEvent event;
+			while (processed < batchSize && (event = buffer.poll()) != null) {
+				appenders.appendLoopOnAppenders(event);
+				processed++;
+			}
+			if (processed > 0) {
+				continue;
+			}
+			if (!isStarted() && buffer.size() == 0) {
+				return;
+			}
+			consumerParked.set(true);
+			if (buffer.size() == 0 && isStarted()) {
+				LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+			} else {
+				Thread.onSpinWait();
+			}
+			consumerParked.set(false);
+		}
+	}
+
+	/**
+	 * Get the number of events dropped because the buffer was full.
+	 *
+	 * @return number of dropped events
+	 */
+	public long getDroppedCount() {
+		return droppedCount.sum();
+	}
+
+	/**
+	 * Get the number of events discarded by sampling.
+	 *
+	 * @return number of sampled out events
+	 */
+	public long getSampledOutCount() {
+		return sampledOutCount.sum();
+	}
+
+	/**
+	 * Get the number of events pending to be processed.
+	 *
+	 * @return number of pending events
+	 */
+	public int getPendingCount() {
+		return (buffer == null) ? 0 : buffer.size();
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public void setCapacity(int capacity) {
+		this.capacity = capacity;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	public OverflowPolicy getOverflowPolicy() {
+		return overflowPolicy;
+	}
+
+	public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+		this.overflowPolicy = overflowPolicy;
+	}
+
+	public int getSampleRate() {
+		return sampleRate;
+	}
+
+	public void setSampleRate(int sampleRate) {
+		this.sampleRate = sampleRate;
+	}
+
+	public int getMaxFlushTime() {
+		return maxFlushTime;
+	}
+
+	public void setMaxFlushTime(int maxFlushTime) {
+		this.maxFlushTime = maxFlushTime;
+	}
+
+	@Override
+	public void addAppender(Appender<ILoggingEvent> newAppender) {
+		appenders.addAppender(newAppender);
+	}
+
+	@Override
+	public Iterator<Appender<ILoggingEvent>> iteratorForAppenders() {
+		return appenders.iteratorForAppenders();
+	}
+
+	@Override
+	public Appender<ILoggingEvent> getAppender(String name) {
+		return appenders.getAppender(name);
+	}
+
+	@Override
+	public boolean isAttached(Appender<ILoggingEvent> appender) {
+		return appenders.isAttached(appender);
+	}
+
+	@Override
+	public void detachAndStopAllAppenders() {
+		appenders.detachAndStopAllAppenders();
+	}
+
+	@Override
+	public boolean detachAppender(Appender<ILoggingEvent> appender) {
+		return appenders.detachAppender(appender);
+	}
+
+	@Override
+	public boolean detachAppender(String name) {
+		return appenders.detachAppender(name);
+	}
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.logging.logback;
+
+import com.elevenpaths.almaraz.logging.JsonLogWriter;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.ThrowableProxyUtil;
+import ch.qos.logback.core.encoder.EncoderBase;
+
+/**
+ * Logback encoder that writes each event as a JSON line with {@link JsonLogWriter}.
+ *
+ * The record includes the fields: time, lvl, logger, the MDC fields (e.g. the request context or the access log
+ * fields added by the web filters), msg and exception (if any). It is a lightweight alternative to a generic JSON
+ * layout for the access logs, which are the highest-volume log stream.
+ *
+ * <code>
+ * &lt;encoder class="com.elevenpaths.almaraz.logging.logback.JsonAccessLogEncoder" /&gt;
+ * </code>
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class JsonAccessLogEncoder extends EncoderBase<ILoggingEvent> {
+
+	private static final byte[] EMPTY = new byte[0];
+
+	@Override
+	public byte[] headerBytes() {
+		return EMPTY;
+	}
+
+	@Override
+	public byte[] encode(ILoggingEvent event) {
+		JsonLogWriter writer = JsonLogWriter.get()
+				.begin(event.getTimeStamp(), event.getLevel().toString(), event.getLoggerName())
+				.fields(event.getMDCPropertyMap())
+				.field(JsonLogWriter.MESSAGE, event.getFormattedMessage());
+		IThrowableProxy throwableProxy = event.getThrowableProxy();
+		if (throwableProxy != null) {
+			writer.field(JsonLogWriter.EXCEPTION, ThrowableProxyUtil.asString(throwableProxy));
+		}
+		return writer.end().toByteArray();
+	}
+
+	@Override
+	public byte[] footerBytes() {
+		return EMPTY;
+	}
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.logging.logback;
+
+import org.slf4j.ILoggerFactory;
+import org.slf4j.IMarkerFactory;
+import org.slf4j.helpers.BasicMarkerFactory;
+import org.slf4j.helpers.Util;
+import org.slf4j.spi.MDCAdapter;
+import org.slf4j.spi.SLF4JServiceProvider;
+
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.util.ContextInitializer;
+import ch.qos.logback.core.CoreConstants;
+import ch.qos.logback.core.joran.spi.JoranException;
+import ch.qos.logback.core.util.StatusPrinter;
+
+/**
+ * SLF4J service provider for logback that uses the {@link RequestContextMDCAdapter}.
+ *
+ * It is equivalent to the default logback provider but the {@link RequestContextMDCAdapter} is set in the
+ * {@link LoggerContext} before it is configured. It is enabled with the system property <b>slf4j.provider</b>:
+ *
+ * <code>
+ * java -Dslf4j.provider=com.elevenpaths.almaraz.logging.logback.RequestContextLogbackServiceProvider -jar app.jar
+ * </code>
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class RequestContextLogbackServiceProvider implements SLF4JServiceProvider {
+
+	/**
+	 * Version of the SLF4J API supported by this provider.
+	 */
+	public static final String REQUESTED_API_VERSION = "2.0.99";
+
+	/**
+	 * Logger context (factory of loggers).
+	 */
+	private LoggerContext loggerContext;
+
+	/**
+	 * Marker factory.
+	 */
+	private IMarkerFactory markerFactory;
+
+	/**
+	 * MDC adapter.
+	 */
+	private RequestContextMDCAdapter mdcAdapter;
+
+	@Override
+	public ILoggerFactory getLoggerFactory() {
+		return loggerContext;
+	}
+
+	@Override
+	public IMarkerFactory getMarkerFactory() {
+		return markerFactory;
+	}
+
+	@Override
+	public MDCAdapter getMDCAdapter() {
+		return mdcAdapter;
+	}
+
+	@Override
+	public String getRequestedApiVersion() {
+		return REQUESTED_API_VERSION;
+	}
+
+	@Override
+	public void initialize() {
+		mdcAdapter = new RequestContextMDCAdapter();
+		markerFactory = new BasicMarkerFactory();
+		loggerContext = new LoggerContext();
+		loggerContext.setName(CoreConstants.DEFAULT_CONTEXT_NAME);
+		loggerContext.setMDCAdapter(mdcAdapter);
+		try {
+			new ContextInitializer(loggerContext).autoConfig();
+		} catch (JoranException e) {
+			Util.report("Failed to auto configure default logger context", e);
+		}
+		StatusPrinter.printInCaseOfErrorsOrWarnings(loggerContext);
+		loggerContext.start();
+	}
+
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.logging.logback;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.slf4j.MDC;
+
+import com.elevenpaths.almaraz.context.RequestContext;
+import com.elevenpaths.almaraz.logging.ContextMDCAdapter;
+
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+
+/**
+ * Logback MDC adapter that points the diagnostic context of the thread to the live {@link RequestContext}
+ * (see {@link ContextMDCAdapter}), avoiding to copy the context map for every log statement.
+ *
+ * The properties added with {@link MDC#put(String, String)} (e.g. by the web filters to include the request
+ * method or the response status) are stored in the standard logback MDC, that works as an overlay of the
+ * bound context. The logging events get a read-only snapshot of the context map (see
+ * {@link RequestContext#getContextMapSnapshot()}) merged with the overlay, so that later updates of the context
+ * are not visible to appenders that process the events asynchronously.
+ *
+ * The adapter is installed with {@link RequestContextLogbackServiceProvider}.
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class RequestContextMDCAdapter extends LogbackMDCAdapter implements ContextMDCAdapter {
+
+	/**
+	 * Request context bound to the current thread.
+	 */
+	private final ThreadLocal<RequestContext> boundContext = new ThreadLocal<>();
+
+	@Override
+	public void bind(RequestContext requestContext) {
+		boundContext.set(requestContext);
+	}
+
+	@Override
+	public void unbind() {
+		boundContext.remove();
+	}
+
+	@Override
+	public String get(String key) {
+		String value = super.get(key);
+		if (value != null) {
+			return value;
+		}
+		RequestContext requestContext = boundContext.get();
+		return (requestContext == null) ? null : requestContext.getString(key);
+	}
+
+	/**
+	 * Get the diagnostic context for a logging event. If there is no overlay, it returns a read-only snapshot
+	 * of the bound context map. Otherwise, it returns a read-only view that merges the overlay (a snapshot
+	 * provided by logback) over the snapshot of the bound context map.
+	 */
+	@Override
+	public Map<String, String> getPropertyMap() {
+		Map<String, String> overlay = super.getPropertyMap();
+		RequestContext requestContext = boundContext.get();
+		if (requestContext == null) {
+			return overlay;
+		}
+		Map<String, String> snapshot = requestContext.getContextMapSnapshot();
+		if (overlay == null || overlay.isEmpty()) {
+			return snapshot;
+		}
+		return new OverlayMap(overlay, snapshot);
+	}
+
+	@Override
+	public Map<String, String> getCopyOfContextMap() {
+		RequestContext requestContext = boundContext.get();
+		Map<String, String> overlay = super.getCopyOfContextMap();
+		if (requestContext == null) {
+			return overlay;
+		}
+		Map<String, String> merged = new HashMap<>(requestContext.getContextMap());
+		if (overlay != null) {
+			merged.putAll(overlay);
+		}
+		return merged;
+	}
+
+	@Override
+	public Set<String> getKeys() {
+		Set<String> keys = super.getKeys();
+		RequestContext requestContext = boundContext.get();
+		if (requestContext == null) {
+			return keys;
+		}
+		Set<String> merged = new HashSet<>(requestContext.getContextMap().keySet());
+		if (keys != null) {
+			merged.addAll(keys);
+		}
+		return merged;
+	}
+
+	/**
+	 * Read-only {@link Map} view of an overlay over a base map. The properties of the overlay hide the
+	 * properties of the base map with the same key.
+	 */
+	private static final class OverlayMap extends AbstractMap<String, String> {
+
+		private final Map<String, String> overlay;
+
+		private final Map<String, String> base;
+
+		private final Set<Map.Entry<String, String>> entrySet = new EntrySet();
+
+		OverlayMap(Map<String, String> overlay, Map<String, String> base) {
+			this.overlay = overlay;
+			this.base = base;
+		}
+
+		@Override
+		public String get(Object key) {
+			String value = overlay.get(key);
+			if (value != null || overlay.containsKey(key)) {
+				return value;
+			}
+			return base.get(key);
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return overlay.containsKey(key) || base.containsKey(key);
+		}
+
+		@Override
+		public Set<Map.Entry<String, String>> entrySet() {
+			return entrySet;
+		}
+
+		private final class EntrySet extends AbstractSet<Map.Entry<String, String>> {
+
+			@Override
+			public Iterator<Map.Entry<String, String>> iterator() {
+				return new EntryIterator();
+			}
+
+			@Override
+			public int size() {
+				int size = overlay.size();
+				for (String key : base.keySet()) {
+					if (!overlay.containsKey(key)) {
+						size++;
+					}
+				}
+				return size;
+			}
+
+		}
+
+		/**
+		 * Iterator over the overlay entries and then over the base entries not hidden by the overlay.
+		 */
+		private final class EntryIterator implements Iterator<Map.Entry<String, String>> {
+
+			private final Iterator<Map.Entry<String, String>> overlayIterator = overlay.entrySet().iterator();
+
+			private final Iterator<Map.Entry<String, String>> baseIterator = base.entrySet().iterator();
+
+			private Map.Entry<String, String> next;
+
+			@Override
+			public boolean hasNext() {
+				if (next != null) {
+					return true;
+				}
+				if (overlayIterator.hasNext()) {
+					next = overlayIterator.next();
+					return true;
+				}
+				while (baseIterator.hasNext()) {
+					Map.Entry<String, String> entry = baseIterator.next();
+					if (!overlay.containsKey(entry.getKey())) {
+						next = entry;
+						return true;
+					}
+				}
+				return false;
+			}
+
+			@Override
+			public Map.Entry<String, String> next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				Map.Entry<String, String> entry = next;
+				next = null;
+				return new AbstractMap.SimpleImmutableEntry<>(entry);
+			}
+
+		}
+
+	}
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.logging.logback;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free ring buffer for multiple producers and a single consumer.
+ *
+ * Producers claim a position with compare-and-set on {@link #producerIndex} and publish the element in the
+ * preallocated slot. The consumer takes the elements in order and releases the slots. No element nor node is
+ * allocated by the buffer after its creation.
+ *
+ * @param <E> type of the elements
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+class RingBuffer<E> {
+
+	/**
+	 * Preallocated slots. A null slot is free (or claimed but not published yet).
+	 */
+	private final AtomicReferenceArray<E> slots;
+
+	/**
+	 * Mask to convert an index into a slot position (capacity is a power of 2).
+	 */
+	private final int mask;
+
+	/**
+	 * Next position to be claimed by a producer.
+	 */
+	private final AtomicLong producerIndex = new AtomicLong();
+
+	/**
+	 * Next position to be consumed. It is only updated by the consumer.
+	 */
+	private final AtomicLong consumerIndex = new AtomicLong();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param capacity minimum capacity (rounded up to the next power of 2)
+	 */
+	RingBuffer(int capacity) {
+		if (capacity < 1 || capacity > (1 << 30)) {
+			throw new IllegalArgumentException("Invalid ring buffer capacity: " + capacity);
+		}
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity) {
+			size <<= 1;
+		}
+		this.slots = new AtomicReferenceArray<>(size);
+		this.mask = size - 1;
+	}
+
+	/**
+	 * Add an element if there is a free slot. It can be invoked by multiple threads.
+	 *
+	 * @param element
+	 * @return true if the element was added, false if the buffer is full
+	 */
+	boolean offer(E element) {
+		long index;
+		do {
+			index = producerIndex.get();
+			if (index - consumerIndex.get() > mask) {
+				return false;
+			}
+		} while (!producerIndex.compareAndSet(index, index + 1));
+		slots.lazySet((int) index & mask, element);
+		return true;
+	}
+
+	/**
+	 * Take the next element. It must be invoked only by the consumer thread.
+	 *
+	 * @return next element or null if there is no element available
+	 */
+	E poll() {
+		long index = consumerIndex.get();
+		int offset = (int) index & mask;
+		E element = slots.get(offset);
+		if (element == null) {
+			return null;
+		}
+		slots.lazySet(offset, null);
+		consumerIndex.lazySet(index + 1);
+		return element;
+	}
+
+	/**
+	 * Get the (approximate) number of elements in the buffer.
+	 *
+	 * @return number of elements
+	 */
+	int size() {
+		long size = producerIndex.get() - consumerIndex.get();
+		return (int) Math.max(0, Math.min(size, capacity()));
+	}
+
+	/**
+	 * Get the capacity of the buffer.
+	 *
+	 * @return capacity
+	 */
+	int capacity() {
+		return mask + 1;
+	}
+
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.logging.logback;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Marker;
+import org.slf4j.event.KeyValuePair;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.LoggerContextVO;
+
+/**
+ * {@link ILoggingEvent} that delegates to another event, already prepared for deferred processing, but with its
+ * own copy of the MDC. It is used by {@link AsyncBatchAppender} when the MDC of the original event was already
+ * set and it cannot be replaced.
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+final class SnapshotLoggingEvent implements ILoggingEvent {
+
+	private final ILoggingEvent event;
+
+	private final Map<String, String> mdcPropertyMap;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param event event prepared for deferred processing
+	 * @param mdcPropertyMap copy of the MDC owned by this event
+	 */
+	SnapshotLoggingEvent(ILoggingEvent event, Map<String, String> mdcPropertyMap) {
+		this.event = event;
+		this.mdcPropertyMap = mdcPropertyMap;
+	}
+
+	@Override
+	public String getThreadName() {
+		return event.getThreadName();
+	}
+
+	@Override
+	public Level getLevel() {
+		return event.getLevel();
+	}
+
+	@Override
+	public String getMessage() {
+		return event.getMessage();
+	}
+
+	@Override
+	public Object[] getArgumentArray() {
+		return event.getArgumentArray();
+	}
+
+	@Override
+	public String getFormattedMessage() {
+		return event.getFormattedMessage();
+	}
+
+	@Override
+	public String getLoggerName() {
+		return event.getLoggerName();
+	}
+
+	@Override
+	public LoggerContextVO getLoggerContextVO() {
+		return event.getLoggerContextVO();
+	}
+
+	@Override
+	public IThrowableProxy getThrowableProxy() {
+		return event.getThrowableProxy();
+	}
+
+	@Override
+	public StackTraceElement[] getCallerData() {
+		return event.getCallerData();
+	}
+
+	@Override
+	public boolean hasCallerData() {
+		return event.hasCallerData();
+	}
+
+	@SuppressWarnings("deprecation")
+	@Override
+	public Marker getMarker() {
+		return event.getMarker();
+	}
+
+	@Override
+	public List<Marker> getMarkerList() {
+		return event.getMarkerList();
+	}
+
+	@Override
+	public Map<String, String> getMDCPropertyMap() {
+		return mdcPropertyMap;
+	}
+
+	@Override
+	public Map<String, String> getMdc() {
+		return mdcPropertyMap;
+	}
+
+	@Override
+	public long getTimeStamp() {
+		return event.getTimeStamp();
+	}
+
+	@Override
+	public int getNanoseconds() {
+		return event.getNanoseconds();
+	}
+
+	@Override
+	public Instant getInstant() {
+		return event.getInstant();
+	}
+
+	@Override
+	public long getSequenceNumber() {
+		return event.getSequenceNumber();
+	}
+
+	@Override
+	public List<KeyValuePair> getKeyValuePairs() {
+		return event.getKeyValuePairs();
+	}
+
+	@Override
+	public void prepareForDeferredProcessing() {
+		// The delegate is already prepared and the MDC is a copy
+	}
+
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of latencies with logarithmic buckets (in the style of HdrHistogram).
+ *
+ * The latencies are recorded in microseconds. Values lower than {@link #SUB_BUCKETS} are exact, and the rest of
+ * values are grouped in buckets whose width doubles with every power of 2, keeping {@link #SUB_BUCKETS}/2 buckets
+ * per power of 2 (a relative error lower than 3.2%). The maximum trackable latency is {@link #MAX_VALUE}
+ * microseconds (greater latencies are recorded as the maximum).
+ *
+ * Recording a value is a single atomic increment of a preallocated counter (no locks, no allocations).
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class LatencyHistogram {
+
+	/**
+	 * Number of bits for the exact values (and the precision of the rest of buckets).
+	 */
+	private static final int SUB_BUCKET_BITS = 6;
+
+	/**
+	 * Number of exact values.
+	 */
+	static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	/**
+	 * Number of buckets per power of 2 (for values greater than or equal to {@link #SUB_BUCKETS}).
+	 */
+	private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+
+	/**
+	 * Maximum trackable value: about 1 hour in microseconds.
+	 */
+	static final long MAX_VALUE = (1L << 32) - 1;
+
+	/**
+	 * Counters per bucket.
+	 */
+	private final AtomicLongArray counts = new AtomicLongArray(indexOf(MAX_VALUE) + 1);
+
+	/**
+	 * Maximum recorded value.
+	 */
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Record a latency.
+	 *
+	 * @param latency
+	 * @param unit
+	 */
+	public void record(long latency, TimeUnit unit) {
+		recordMicros(unit.toMicros(latency));
+	}
+
+	/**
+	 * Record a latency in microseconds.
+	 *
+	 * @param micros
+	 */
+	public void recordMicros(long micros) {
+		long value = Math.min(Math.max(micros, 0), MAX_VALUE);
+		counts.incrementAndGet(indexOf(value));
+		long currentMax = max.get();
+		while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+			currentMax = max.get();
+		}
+	}
+
+	/**
+	 * Take a snapshot of the histogram to calculate the percentiles.
+	 *
+	 * @return snapshot
+	 */
+	public Snapshot snapshot() {
+		long[] snapshotCounts = new long[counts.length()];
+		long total = 0;
+		for (int i = 0; i < snapshotCounts.length; i++) {
+			snapshotCounts[i] = counts.get(i);
+			total += snapshotCounts[i];
+		}
+		return new Snapshot(snapshotCounts, total, max.get());
+	}
+
+	/**
+	 * Get the bucket index of a value.
+	 *
+	 * @param value
+	 * @return index of the bucket
+	 */
+	static int indexOf(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+		return SUB_BUCKETS + (shift - 1) * HALF_SUB_BUCKETS + (int) ((value >>> shift) - HALF_SUB_BUCKETS);
+	}
+
+	/**
+	 * Get the highest value of a bucket.
+	 *
+	 * @param index
+	 * @return highest value in the bucket
+	 */
+	static long highestValueOf(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		int offset = index - SUB_BUCKETS;
+		int shift = offset / HALF_SUB_BUCKETS + 1;
+		long subBucket = offset % HALF_SUB_BUCKETS + HALF_SUB_BUCKETS;
+		return ((subBucket + 1) << shift) - 1;
+	}
+
+	/**
+	 * Immutable snapshot of a {@link LatencyHistogram}.
+	 */
+	public static class Snapshot {
+
+		private final long[] counts;
+
+		private final long count;
+
+		private final long max;
+
+		Snapshot(long[] counts, long count, long max) {
+			this.counts = counts;
+			this.count = count;
+			this.max = max;
+		}
+
+		/**
+		 * Get the number of recorded values.
+		 *
+		 * @return number of values
+		 */
+		public long getCount() {
+			return count;
+		}
+
+		/**
+		 * Get the maximum recorded value in microseconds.
+		 *
+		 * @return maximum value
+		 */
+		public long getMaxMicros() {
+			return max;
+		}
+
+		/**
+		 * Get the value (in microseconds) at a percentile. The value is the highest value of the bucket
+		 * (but never greater than the maximum recorded value).
+		 *
+		 * @param percentile percentile between 0 and 100 (e.g. 99.9)
+		 * @return value at the percentile or 0 if there are no values
+		 */
+		public long getValueAtPercentile(double percentile) {
+			if (count == 0) {
+				return 0;
+			}
+			long target = Math.max(1, (long) Math.ceil(count * Math.min(percentile, 100.0) / 100.0));
+			long accumulated = 0;
+			for (int i = 0; i < counts.length; i++) {
+				accumulated += counts[i];
+				if (accumulated >= target) {
+					return Math.min(highestValueOf(i), max);
+				}
+			}
+			return max;
+		}
+
+	}
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Recorder of latencies per route (e.g. the best matching path pattern) and per status class (1xx, ..., 5xx).
+ *
+ * Each route and status class has its own {@link LatencyHistogram}. The number of routes is bounded: when it is
+ * reached, the latencies of new routes are recorded in the route {@link #OTHER_ROUTE}.
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class LatencyRecorder {
+
+	/**
+	 * Route for the requests without route or when the maximum number of routes is reached.
+	 */
+	public static final String OTHER_ROUTE = "other";
+
+	/**
+	 * Default maximum number of routes.
+	 */
+	public static final int DEFAULT_MAX_ROUTES = 1000;
+
+	/**
+	 * Names of the status classes. The index is the status code divided by 100 (0 for unknown status).
+	 */
+	private static final String[] STATUS_CLASSES = { "unknown", "1xx", "2xx", "3xx", "4xx", "5xx" };
+
+	/**
+	 * Histograms per route. Each route has an array of histograms indexed by status class (lazily created
+	 * without locks).
+	 */
+	private final Map<String, AtomicReferenceArray<LatencyHistogram>> routes = new ConcurrentHashMap<>();
+
+	private final int maxRoutes;
+
+	/**
+	 * Constructor with the default maximum number of routes.
+	 */
+	public LatencyRecorder() {
+		this(DEFAULT_MAX_ROUTES);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param maxRoutes maximum number of routes
+	 */
+	public LatencyRecorder(int maxRoutes) {
+		this.maxRoutes = maxRoutes;
+	}
+
+	/**
+	 * Record a latency.
+	 *
+	 * @param route route (if null, {@link #OTHER_ROUTE})
+	 * @param status HTTP status code (0 if unknown)
+	 * @param latency
+	 * @param unit
+	 */
+	public void record(String route, int status, long latency, TimeUnit unit) {
+		int statusClass = (status >= 100 && status < 600) ? status / 100 : 0;
+		AtomicReferenceArray<LatencyHistogram> histograms = getHistograms(route);
+		LatencyHistogram histogram = histograms.get(statusClass);
+		if (histogram == null) {
+			histograms.compareAndSet(statusClass, null, new LatencyHistogram());
+			histogram = histograms.get(statusClass);
+		}
+		histogram.record(latency, unit);
+	}
+
+	/**
+	 * Iterate over the recorded histograms.
+	 *
+	 * @param consumer consumer of the route, the status class (e.g. "2xx") and a snapshot of the histogram
+	 */
+	public void forEach(HistogramConsumer consumer) {
+		routes.forEach((route, histograms) -> {
+			for (int i = 0; i < histograms.length(); i++) {
+				LatencyHistogram histogram = histograms.get(i);
+				if (histogram != null) {
+					consumer.accept(route, STATUS_CLASSES[i], histogram.snapshot());
+				}
+			}
+		});
+	}
+
+	private AtomicReferenceArray<LatencyHistogram> getHistograms(String route) {
+		String key = (route == null) ? OTHER_ROUTE : route;
+		AtomicReferenceArray<LatencyHistogram> histograms = routes.get(key);
+		if (histograms != null) {
+			return histograms;
+		}
+		if (routes.size() >= maxRoutes) {
+			key = OTHER_ROUTE;
+		}
+		return routes.computeIfAbsent(key, k -> new AtomicReferenceArray<>(STATUS_CLASSES.length));
+	}
+
+	/**
+	 * Consumer of the histograms (see {@link LatencyRecorder#forEach(HistogramConsumer)}).
+	 */
+	@FunctionalInterface
+	public interface HistogramConsumer {
+
+		/**
+		 * Consume a histogram.
+		 *
+		 * @param route
+		 * @param statusClass
+		 * @param snapshot
+		 */
+		void accept(String route, String statusClass, LatencyHistogram.Snapshot snapshot);
+
+	}
+
+}
@@ -4,6 +4,10 @@
 
 package com.elevenpaths.almaraz.webclientfilters;
 
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.web.reactive.function.client.ClientRequest;
 import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
@@ -11,8 +15,12 @@ import org.springframework.web.reactive.function.client.ExchangeFunction;
 import org.springframework.web.reactive.function.client.WebClient;
 
 import com.elevenpaths.almaraz.context.RequestContext;
+import com.elevenpaths.almaraz.exceptions.GatewayTimeoutException;
+import com.elevenpaths.almaraz.logging.AccessLogSampler;
+import com.elevenpaths.almaraz.webfilters.DeadlineWebFilter;
 import com.elevenpaths.almaraz.webfilters.RequestContextWebFilter;
 
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 /**
@@ -20,6 +28,14 @@ import reactor.core.publisher.Mono;
  * by a {@link WebClient}.
  * The correlator is obtained from the {@link RequestContext}.
  *
+ * If the {@link RequestContext} contains the sampling decision of the access logs (see {@link AccessLogSampler}),
+ * it is also propagated in the sampled header so that a sampled request is logged end to end.
+ *
+ * If the {@link RequestContext} contains a deadline (see {@link DeadlineWebFilter}), the remaining time is
+ * applied as the timeout of the request, including the response body (failing with a
+ * {@link GatewayTimeoutException}), and it is propagated in the timeout header (in milliseconds, rounded up) so
+ * that the other services share the same deadline.
+ *
  * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
  *
  */
@@ -30,6 +46,16 @@ public class CorrelatorWebClientFilter implements ExchangeFilterFunction {
 	 */
 	private final String correlatorHeader;
 
+	/**
+	 * HTTP header with the sampling decision.
+	 */
+	private final String sampledHeader;
+
+	/**
+	 * HTTP header with the remaining time until the deadline (in milliseconds).
+	 */
+	private final String timeoutHeader;
+
 	/**
 	 * Default constructor. It uses the default correlator header.
 	 */
@@ -43,16 +69,82 @@ public class CorrelatorWebClientFilter implements ExchangeFilterFunction {
 	 * @param correlatorHeader
 	 */
 	public CorrelatorWebClientFilter(String correlatorHeader) {
+		this(correlatorHeader, AccessLogSampler.DEFAULT_SAMPLED_HEADER);
+	}
+
+	/**
+	 * Constructor with custom correlator and sampled headers.
+	 *
+	 * @param correlatorHeader
+	 * @param sampledHeader
+	 */
+	public CorrelatorWebClientFilter(String correlatorHeader, String sampledHeader) {
+		this(correlatorHeader, sampledHeader, DeadlineWebFilter.DEFAULT_TIMEOUT_HEADER);
+	}
+
+	/**
+	 * Constructor with custom correlator, sampled and timeout headers.
+	 *
+	 * @param correlatorHeader
+	 * @param sampledHeader
+	 * @param timeoutHeader
+	 */
+	public CorrelatorWebClientFilter(String correlatorHeader, String sampledHeader, String timeoutHeader) {
 		this.correlatorHeader = correlatorHeader;
+		this.sampledHeader = sampledHeader;
+		this.timeoutHeader = timeoutHeader;
 	}
 
 	@Override
 	public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
-		return RequestContext.context()
-				.map(ctxt -> ClientRequest.from(request)
-						.header(correlatorHeader, ctxt.getCorrelator())
-						.build())
-				.flatMap(next::exchange);
+		return Mono.deferContextual(ctxt -> {
+			RequestContext requestContext = RequestContext.from(ctxt);
+			ClientRequest.Builder builder = ClientRequest.from(request)
+					.header(correlatorHeader, requestContext.getCorrelator());
+			Boolean sampled = requestContext.getSampled();
+			if (sampled != null && sampledHeader != null) {
+				builder.header(sampledHeader, sampled.toString());
+			}
+			Duration remainingTime = requestContext.getRemainingTime();
+			if (remainingTime == null) {
+				return next.exchange(builder.build());
+			}
+			if (remainingTime.isZero()) {
+				return Mono.error(GatewayTimeoutException.INSTANCE);
+			}
+			if (timeoutHeader != null) {
+				builder.header(timeoutHeader, Long.toString(getTimeoutMillis(remainingTime)));
+			}
+			return next.exchange(builder.build())
+					.timeout(remainingTime, Mono.error(GatewayTimeoutException.INSTANCE))
+					.map(response -> response.mutate()
+							.body(body -> applyDeadline(body, requestContext))
+							.build());
+		});
+	}
+
+	/**
+	 * Apply the deadline of the request to the response body, so that a slow body is also cut off when the
+	 * deadline expires (and not only the response headers).
+	 *
+	 * @param body
+	 * @param requestContext
+	 * @return response body failing with {@link GatewayTimeoutException} if the deadline expires
+	 */
+	private Flux<DataBuffer> applyDeadline(Flux<DataBuffer> body, RequestContext requestContext) {
+		Mono<Long> deadline = Mono.defer(() -> Mono.delay(requestContext.getRemainingTime()));
+		return body.timeout(deadline, dataBuffer -> deadline, Flux.error(GatewayTimeoutException.INSTANCE));
+	}
+
+	/**
+	 * Get the value of the timeout header in milliseconds (rounded up, so that a remaining time lower than one
+	 * millisecond is not sent as 0).
+	 *
+	 * @param remainingTime
+	 * @return milliseconds
+	 */
+	static long getTimeoutMillis(Duration remainingTime) {
+		return (remainingTime.toNanos() + TimeUnit.MILLISECONDS.toNanos(1) - 1) / TimeUnit.MILLISECONDS.toNanos(1);
 	}
 
 }
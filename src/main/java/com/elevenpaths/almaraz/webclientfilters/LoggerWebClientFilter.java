@@ -3,15 +3,19 @@
  */
 
 package com.elevenpaths.almaraz.webclientfilters;
-import java.util.UUID;
+
+import java.time.Duration;
 
 import org.slf4j.MDC;
+import org.slf4j.event.Level;
 import org.springframework.web.reactive.function.client.ClientRequest;
 import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
 import org.springframework.web.reactive.function.client.ExchangeFunction;
 
 import com.elevenpaths.almaraz.context.ContextField;
+import com.elevenpaths.almaraz.context.generators.RandomUUIDGenerator;
+import com.elevenpaths.almaraz.context.generators.TransactionIdGenerator;
 import com.elevenpaths.almaraz.logging.ReactiveLogger;
 
 import lombok.extern.slf4j.Slf4j;
@@ -26,13 +30,35 @@ import reactor.core.publisher.Mono;
 @Slf4j
 public class LoggerWebClientFilter implements ExchangeFilterFunction {
 
+	/**
+	 * Generator of the transaction ID for each request sent by the web client.
+	 */
+	private final TransactionIdGenerator transactionIdGenerator;
+
+	/**
+	 * Default constructor. It generates random UUIDs as transaction IDs.
+	 */
+	public LoggerWebClientFilter() {
+		this(null);
+	}
+
+	/**
+	 * Constructor with custom transaction ID generator.
+	 *
+	 * @param transactionIdGenerator
+	 */
+	public LoggerWebClientFilter(TransactionIdGenerator transactionIdGenerator) {
+		this.transactionIdGenerator = transactionIdGenerator == null ? new RandomUUIDGenerator() : transactionIdGenerator;
+	}
+
 	@Override
 	public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
-		long start = System.currentTimeMillis();
-		String transactionId = UUID.randomUUID().toString();
+		long start = System.nanoTime();
+		String transactionId = transactionIdGenerator.generate();
 		return ReactiveLogger.log(() -> logRequest(request, transactionId))
 				.then(next.exchange(request))
-				.doOnEach(ReactiveLogger.logOnNext((response) -> logResponse(response, start, transactionId)));
+				.doOnEach(ReactiveLogger.logOnNext(log, Level.INFO,
+						(response) -> logResponse(response, Duration.ofNanos(System.nanoTime() - start), transactionId)));
 	}
 
 	/**
@@ -50,19 +76,39 @@ public class LoggerWebClientFilter implements ExchangeFilterFunction {
 
 	/**
 	 * Log the response.
+	 * It is invoked by {@link #logResponse(ClientResponse, Duration, String)} so that existing overrides keep
+	 * working.
 	 *
 	 * @param response
-	 * @param start Timestamp when the request was received to calculate the latency.
+	 * @param start Timestamp (see {@link System#currentTimeMillis()}) when the request was sent to calculate
+	 *        the latency.
 	 * @param transactionId
+	 * @deprecated Override {@link #logResponse(ClientResponse, Duration, String)} instead.
 	 */
+	@Deprecated
 	protected void logResponse(ClientResponse response, long start, String transactionId) {
+		Duration latency = Duration.ofMillis(System.currentTimeMillis() - start);
 		String statusCode = response.statusCode() != null 
 			? statusCode = Integer.toString(response.statusCode().value()) 
 			: "";
 		MDC.put(ContextField.STATUS, statusCode);
-		MDC.put(ContextField.LATENCY, Long.toString(System.currentTimeMillis() - start));
+		MDC.put(ContextField.LATENCY, Long.toString(latency.toMillis()));
 		MDC.put(ContextField.TRANSACTION_ID, transactionId);
 		log.info("Client response");
 	}
 
+	/**
+	 * Log the response.
+	 * By default, it delegates to the deprecated {@link #logResponse(ClientResponse, long, String)} with the
+	 * timestamp that corresponds to the latency.
+	 *
+	 * @param response
+	 * @param latency time to receive the response (measured with {@link System#nanoTime()})
+	 * @param transactionId
+	 */
+	@SuppressWarnings("deprecation")
+	protected void logResponse(ClientResponse response, Duration latency, String transactionId) {
+		logResponse(response, System.currentTimeMillis() - latency.toMillis(), transactionId);
+	}
+
 }
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.webfilters;
+
+import org.springframework.boot.info.BuildProperties;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+import com.elevenpaths.almaraz.AlmarazConfiguration;
+import com.elevenpaths.almaraz.context.RequestContext;
+import com.elevenpaths.almaraz.exceptions.NotFoundException;
+import com.elevenpaths.almaraz.logging.DebugLogBuffer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+/**
+ * Reactive {@link WebFilter} that fuses the Almaraz web filters into a single filter:
+ * {@link VersionWebFilter}, {@link RequestContextWebFilter}, {@link LoggerWebFilter}, {@link ErrorWebFilter},
+ * {@link CompleteLocationHeaderWebFilter} and {@link BasePathWebFilter}.
+ *
+ * The output (response and log entries) is the same as the pipeline of separate web filters
+ * (see {@link AlmarazConfiguration}), but the request is processed in a single {@link #filter(ServerWebExchange, WebFilterChain)}
+ * invocation with a single beforeCommit action (correlator header, response log entry and location header),
+ * reducing the per-request overhead. The web filters passed to the constructor provide the configuration
+ * and the customizations (e.g. overridden methods) but they must not be registered in the pipeline.
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class AlmarazWebFilter implements WebFilter {
+
+	/**
+	 * Version web filter. If null, the version API is not available.
+	 */
+	private final VersionWebFilter versionWebFilter;
+
+	/**
+	 * Request context web filter.
+	 */
+	private final RequestContextWebFilter requestContextWebFilter;
+
+	/**
+	 * Logger web filter. If null, the requests are not logged.
+	 */
+	private final LoggerWebFilter loggerWebFilter;
+
+	/**
+	 * Error web filter. If null, the errors are not handled.
+	 */
+	private final ErrorWebFilter errorWebFilter;
+
+	/**
+	 * Location header web filter. If null, the location header is not modified.
+	 */
+	private final CompleteLocationHeaderWebFilter completeLocationHeaderWebFilter;
+
+	/**
+	 * Base path web filter. If null, the request is not modified.
+	 */
+	private final BasePathWebFilter basePathWebFilter;
+
+	/**
+	 * Constructor with the same web filters as {@link AlmarazConfiguration}.
+	 *
+	 * @param basePath
+	 * @param objectMapper
+	 * @param buildProperties if null, the version API is not available.
+	 */
+	public AlmarazWebFilter(String basePath, ObjectMapper objectMapper, BuildProperties buildProperties) {
+		this((buildProperties == null) ? null : new VersionWebFilter(objectMapper, buildProperties),
+				new RequestContextWebFilter(),
+				new LoggerWebFilter(),
+				new ErrorWebFilter(objectMapper),
+				new CompleteLocationHeaderWebFilter(),
+				new BasePathWebFilter(basePath));
+	}
+
+	/**
+	 * Constructor with the web filters to be fused. Any web filter, but the {@link RequestContextWebFilter},
+	 * can be null to disable it.
+	 *
+	 * @param versionWebFilter
+	 * @param requestContextWebFilter if null, a {@link RequestContextWebFilter} with default settings.
+	 * @param loggerWebFilter
+	 * @param errorWebFilter
+	 * @param completeLocationHeaderWebFilter
+	 * @param basePathWebFilter
+	 */
+	public AlmarazWebFilter(VersionWebFilter versionWebFilter, RequestContextWebFilter requestContextWebFilter,
+			LoggerWebFilter loggerWebFilter, ErrorWebFilter errorWebFilter,
+			CompleteLocationHeaderWebFilter completeLocationHeaderWebFilter, BasePathWebFilter basePathWebFilter) {
+		this.versionWebFilter = versionWebFilter;
+		this.requestContextWebFilter = (requestContextWebFilter == null)
+				? new RequestContextWebFilter()
+				: requestContextWebFilter;
+		this.loggerWebFilter = loggerWebFilter;
+		this.errorWebFilter = errorWebFilter;
+		this.completeLocationHeaderWebFilter = completeLocationHeaderWebFilter;
+		this.basePathWebFilter = basePathWebFilter;
+	}
+
+	/**
+	 * Implementation of the web filter that applies, in order, the logic of the fused web filters.
+	 */
+	@Override
+	public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+		if (versionWebFilter != null && versionWebFilter.isGetVersion(exchange)) {
+			return versionWebFilter.renderVersionResponse(exchange);
+		}
+		RequestContext requestContext = requestContextWebFilter.buildRequestContext(exchange.getRequest());
+		long start = System.nanoTime();
+		return Mono.deferContextual(ctxt -> {
+			boolean sampled = loggerWebFilter != null && loggerWebFilter.isSampled(exchange, requestContext);
+			DebugLogBuffer debugLogBuffer = (loggerWebFilter == null)
+					? null
+					: loggerWebFilter.acquireDebugLogBuffer(requestContext);
+			boolean completeLocation = completeLocationHeaderWebFilter != null
+					&& completeLocationHeaderWebFilter.isLocationMethod(exchange);
+			exchange.getResponse().beforeCommit(() -> {
+				requestContextWebFilter.setCorrelatorHeader(exchange, requestContext);
+				if (loggerWebFilter != null) {
+					loggerWebFilter.onCommit(exchange, ctxt, start, sampled);
+				}
+				if (completeLocation) {
+					completeLocationHeaderWebFilter.completeLocationHeader(exchange);
+				}
+				return Mono.empty();
+			});
+			if (loggerWebFilter != null) {
+				loggerWebFilter.onRequest(exchange, ctxt, sampled);
+			}
+			Mono<Void> filtered = filterBasePath(exchange, chain);
+			if (errorWebFilter != null) {
+				filtered = filtered.onErrorResume(t -> errorWebFilter.buildErrorResponse(exchange, t));
+			}
+			if (loggerWebFilter == null || !loggerWebFilter.requiresFinally(debugLogBuffer)) {
+				return filtered;
+			}
+			return filtered.doFinally(signalType -> loggerWebFilter.onFinally(
+					exchange, ctxt, start, sampled, signalType, requestContext, debugLogBuffer));
+		}).contextWrite(Context.of(RequestContext.class, requestContext));
+	}
+
+	/**
+	 * Continue the chain with the base path applied to the exchange.
+	 *
+	 * @param exchange
+	 * @param chain
+	 * @return Mono
+	 */
+	private Mono<Void> filterBasePath(ServerWebExchange exchange, WebFilterChain chain) {
+		if (basePathWebFilter == null) {
+			return chain.filter(exchange);
+		}
+		ServerWebExchange basePathExchange = basePathWebFilter.applyBasePath(exchange);
+		if (basePathExchange == null) {
+			return Mono.error(NotFoundException.INSTANCE);
+		}
+		return chain.filter(basePathExchange);
+	}
+
+}
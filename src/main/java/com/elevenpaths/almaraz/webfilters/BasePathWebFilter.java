@@ -4,7 +4,13 @@
 
 package com.elevenpaths.almaraz.webfilters;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.http.server.RequestPath;
 import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
 import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.server.WebFilter;
 import org.springframework.web.server.WebFilterChain;
@@ -18,6 +24,13 @@ import reactor.core.publisher.Mono;
  * The goal is to make it configurable and avoid repeating the base path in the
  * controller.
  *
+ * Several base paths are supported (e.g. "/v1", "/v2" and "/internal"). The base paths are compiled into
+ * a prefix tree of path segments so that the base path of a request (the longest matching one) is resolved
+ * with a single scan of the request path. The request is decorated to set up the context path; the decorator
+ * only overrides the request path, so that the headers are not copied (as with {@link ServerHttpRequest#mutate()}).
+ * The request is not decorated if its context path is already the base path (e.g. set up by a previous filter),
+ * but note that the context path of the received requests is empty.
+ *
  * Note that configuration property <b>server.servlet.context-path</b> is not actually working.
  *
  * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
@@ -26,9 +39,9 @@ import reactor.core.publisher.Mono;
 public class BasePathWebFilter implements WebFilter {
 
 	/**
-	 * Base path.
+	 * Root of the prefix tree of base paths. If null, there is no base path and the requests are not modified.
 	 */
-	private final String basePath;
+	private final Node root;
 
 	/**
 	 * Constructor.
@@ -36,23 +49,195 @@ public class BasePathWebFilter implements WebFilter {
 	 * @param basePath
 	 */
 	public BasePathWebFilter(String basePath) {
-		this.basePath = basePath;
+		this((basePath == null) ? Collections.emptyList() : Arrays.asList(basePath));
+	}
+
+	/**
+	 * Constructor with several base paths.
+	 *
+	 * @param basePaths
+	 */
+	public BasePathWebFilter(List<String> basePaths) {
+		Node node = null;
+		for (String basePath : basePaths) {
+			String normalizedBasePath = normalize(basePath);
+			if (normalizedBasePath != null) {
+				if (node == null) {
+					node = new Node();
+				}
+				node.add(normalizedBasePath);
+			}
+		}
+		this.root = node;
 	}
 
 	/**
 	 * Implementation of the web filter that modifies the request to set up the context path
-	 * with the {@link #basePath}.
-	 * Note that if the request URI does not start with the {@link #basePath}, then it throws
+	 * with the base path.
+	 * Note that if the request URI does not start with any base path, then it fails with
 	 * a {@link NotFoundException}.
 	 */
 	@Override
 	public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
-		try {
-			ServerHttpRequest request = exchange.getRequest().mutate().contextPath(basePath).build();
-			return chain.filter(exchange.mutate().request(request).build());
-		} catch (IllegalArgumentException e) {
-			return Mono.error(new NotFoundException());
+		ServerWebExchange basePathExchange = applyBasePath(exchange);
+		if (basePathExchange == null) {
+			return Mono.error(NotFoundException.INSTANCE);
+		}
+		return chain.filter(basePathExchange);
+	}
+
+	/**
+	 * Mutate the exchange to set up the context path with the base path. The exchange is not mutated if
+	 * there is no base path or if the context path is already the base path. Otherwise, the request is
+	 * decorated with a {@link BasePathRequest}.
+	 *
+	 * @param exchange
+	 * @return exchange or null if the request URI does not start with any base path
+	 */
+	protected ServerWebExchange applyBasePath(ServerWebExchange exchange) {
+		if (root == null) {
+			return exchange;
+		}
+		ServerHttpRequest request = exchange.getRequest();
+		RequestPath requestPath = request.getPath();
+		String basePath = root.match(requestPath.value());
+		if (basePath == null) {
+			return null;
 		}
+		if (basePath.equals(requestPath.contextPath().value())) {
+			return exchange;
+		}
+		return exchange.mutate()
+				.request(new BasePathRequest(request, requestPath.modifyContextPath(basePath)))
+				.build();
+	}
+
+	/**
+	 * Normalize a base path: it starts with "/" and it does not end with "/".
+	 *
+	 * @param basePath
+	 * @return normalized base path or null if there is no base path (e.g. "/")
+	 */
+	private static String normalize(String basePath) {
+		if (basePath == null) {
+			return null;
+		}
+		int end = basePath.length();
+		while (end > 0 && basePath.charAt(end - 1) == '/') {
+			end--;
+		}
+		if (end == 0) {
+			return null;
+		}
+		String normalized = basePath.substring(0, end);
+		return (normalized.charAt(0) == '/') ? normalized : "/" + normalized;
+	}
+
+	/**
+	 * Request with the context path set up. Unlike {@link ServerHttpRequest#mutate()}, it does not copy the
+	 * headers of the request.
+	 */
+	private static class BasePathRequest extends ServerHttpRequestDecorator {
+
+		private final RequestPath path;
+
+		BasePathRequest(ServerHttpRequest request, RequestPath path) {
+			super(request);
+			this.path = path;
+		}
+
+		@Override
+		public RequestPath getPath() {
+			return path;
+		}
+
+	}
+
+	/**
+	 * Node of the prefix tree of base paths. Each child corresponds to a path segment.
+	 */
+	private static class Node {
+
+		private String[] segments = new String[0];
+
+		private Node[] children = new Node[0];
+
+		/**
+		 * Base path if the path until this node is a base path.
+		 */
+		private String basePath;
+
+		/**
+		 * Add a normalized base path to the tree.
+		 *
+		 * @param path
+		 */
+		void add(String path) {
+			Node node = this;
+			int start = 1;
+			while (start <= path.length()) {
+				int end = path.indexOf('/', start);
+				if (end < 0) {
+					end = path.length();
+				}
+				node = node.getOrAddChild(path.substring(start, end));
+				start = end + 1;
+			}
+			node.basePath = path;
+		}
+
+		/**
+		 * Find the longest base path that is a prefix (of whole segments) of the path.
+		 *
+		 * @param path
+		 * @return base path or null if not found
+		 */
+		String match(String path) {
+			Node node = this;
+			String matched = null;
+			int start = 1;
+			int length = path.length();
+			while (start <= length) {
+				int end = path.indexOf('/', start);
+				if (end < 0) {
+					end = length;
+				}
+				node = node.getChild(path, start, end);
+				if (node == null) {
+					break;
+				}
+				if (node.basePath != null) {
+					matched = node.basePath;
+				}
+				start = end + 1;
+			}
+			return matched;
+		}
+
+		private Node getChild(String path, int start, int end) {
+			int segmentLength = end - start;
+			for (int i = 0; i < segments.length; i++) {
+				String segment = segments[i];
+				if (segment.length() == segmentLength && path.regionMatches(start, segment, 0, segmentLength)) {
+					return children[i];
+				}
+			}
+			return null;
+		}
+
+		private Node getOrAddChild(String segment) {
+			for (int i = 0; i < segments.length; i++) {
+				if (segments[i].equals(segment)) {
+					return children[i];
+				}
+			}
+			segments = Arrays.copyOf(segments, segments.length + 1);
+			children = Arrays.copyOf(children, children.length + 1);
+			segments[segments.length - 1] = segment;
+			children[children.length - 1] = new Node();
+			return children[children.length - 1];
+		}
+
 	}
 
 }
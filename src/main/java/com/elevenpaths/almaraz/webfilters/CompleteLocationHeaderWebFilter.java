@@ -5,12 +5,14 @@
 package com.elevenpaths.almaraz.webfilters;
 
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
 
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.server.WebFilter;
 import org.springframework.web.server.WebFilterChain;
-import org.springframework.web.util.UriTemplate;
 
 import reactor.core.publisher.Mono;
 
@@ -21,27 +23,232 @@ import reactor.core.publisher.Mono;
  *
  * It simplifies the creation of location headers in REST APIs.
  *
+ * The relative location is resolved (RFC 3986, section 5.2) against the request URI considered as a collection,
+ * that is, with a trailing slash and without query. For example, with request URI "/api/resources":
+ * <ul>
+ * <li>"3" is resolved to "/api/resources/3"</li>
+ * <li>"../other/3" is resolved to "/api/other/3"</li>
+ * <li>"3?view=full" is resolved to "/api/resources/3?view=full"</li>
+ * </ul>
+ * The characters not allowed in a URI (e.g. spaces or non-ASCII characters) are percent-encoded (UTF-8).
+ * Absolute locations (with scheme or starting with "/") are not modified.
+ *
+ * Optionally, the web filter only applies to some HTTP methods (e.g. {@link #LOCATION_METHODS}) so that
+ * the requests with other methods are not processed.
+ *
  * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
  *
  */
 public class CompleteLocationHeaderWebFilter implements WebFilter {
 
+	/**
+	 * HTTP methods whose responses usually include a location header for a created resource.
+	 */
+	public static final Set<HttpMethod> LOCATION_METHODS = Set.of(HttpMethod.POST, HttpMethod.PUT, HttpMethod.PATCH);
+
+	private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+	/**
+	 * HTTP methods to complete the location header. If null, all the methods.
+	 */
+	private final Set<HttpMethod> methods;
+
+	/**
+	 * Constructor for all the HTTP methods.
+	 */
+	public CompleteLocationHeaderWebFilter() {
+		this(null);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param methods HTTP methods to complete the location header (e.g. {@link #LOCATION_METHODS}). If null,
+	 *        all the methods.
+	 */
+	public CompleteLocationHeaderWebFilter(Set<HttpMethod> methods) {
+		this.methods = methods;
+	}
+
 	/**
 	 * Implementation of the web filter that modifies the response if there is a location header
 	 * and it is a relative path.
 	 */
 	@Override
 	public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
-		exchange.getResponse().beforeCommit(() -> {
-			HttpHeaders httpHeaders = exchange.getResponse().getHeaders();
-			URI uriLocation = httpHeaders.getLocation();
-			if (uriLocation != null && uriLocation.getPath() != null && !uriLocation.getPath().startsWith("/")) {
-				URI newUriLocation = new UriTemplate("{requestUri}/{locationUri}")
-						.expand(exchange.getRequest().getURI(), httpHeaders.getLocation());
-				httpHeaders.setLocation(newUriLocation);
-			}
-			return Mono.empty();
-		});
+		if (isLocationMethod(exchange)) {
+			exchange.getResponse().beforeCommit(() -> {
+				completeLocationHeader(exchange);
+				return Mono.empty();
+			});
+		}
 		return chain.filter(exchange);
 	}
+
+	/**
+	 * Check if the location header must be completed for the request method.
+	 *
+	 * @param exchange
+	 * @return true if the method is configured
+	 */
+	protected boolean isLocationMethod(ServerWebExchange exchange) {
+		return methods == null || methods.contains(exchange.getRequest().getMethod());
+	}
+
+	/**
+	 * Make the location header absolute if it is a relative path.
+	 *
+	 * @param exchange
+	 */
+	protected void completeLocationHeader(ServerWebExchange exchange) {
+		HttpHeaders httpHeaders = exchange.getResponse().getHeaders();
+		String location = httpHeaders.getFirst(HttpHeaders.LOCATION);
+		if (location == null || location.isEmpty() || location.charAt(0) == '/' || hasScheme(location)) {
+			return;
+		}
+		httpHeaders.set(HttpHeaders.LOCATION, resolve(exchange.getRequest().getURI(), location));
+	}
+
+	/**
+	 * Resolve a relative reference (without scheme and not starting with "/") against the request URI
+	 * considered as a collection (with trailing slash and without query).
+	 *
+	 * @param requestUri
+	 * @param reference
+	 * @return resolved URI
+	 */
+	static String resolve(URI requestUri, String reference) {
+		int fragmentIndex = reference.indexOf('#');
+		int queryIndex = reference.indexOf('?');
+		if (fragmentIndex >= 0 && queryIndex > fragmentIndex) {
+			queryIndex = -1;
+		}
+		int pathEnd = (queryIndex >= 0) ? queryIndex : (fragmentIndex >= 0) ? fragmentIndex : reference.length();
+
+		StringBuilder sb = new StringBuilder(64 + reference.length());
+		if (requestUri.getScheme() != null) {
+			sb.append(requestUri.getScheme()).append(':');
+		}
+		if (requestUri.getRawAuthority() != null) {
+			sb.append("//").append(requestUri.getRawAuthority());
+		}
+		int pathStart = sb.length();
+		String basePath = requestUri.getRawPath();
+		if (basePath == null || basePath.isEmpty()) {
+			sb.append('/');
+		} else {
+			sb.append(basePath);
+			if (basePath.charAt(basePath.length() - 1) != '/') {
+				sb.append('/');
+			}
+		}
+		appendEncoded(sb, reference, 0, pathEnd);
+		removeDotSegments(sb, pathStart);
+		appendEncoded(sb, reference, pathEnd, reference.length());
+		return sb.toString();
+	}
+
+	/**
+	 * Check if the reference starts with a scheme (RFC 3986, section 3.1) so that it is an absolute URI.
+	 *
+	 * @param reference
+	 * @return true if there is a scheme
+	 */
+	static boolean hasScheme(String reference) {
+		if (!isAlpha(reference.charAt(0))) {
+			return false;
+		}
+		for (int i = 1; i < reference.length(); i++) {
+			char c = reference.charAt(i);
+			if (c == ':') {
+				return true;
+			}
+			if (!isAlpha(c) && !(c >= '0' && c <= '9') && c != '+' && c != '-' && c != '.') {
+				return false;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Remove the dot segments ("." and "..") of the path (RFC 3986, section 5.2.4) that starts at pathStart
+	 * and ends at the end of the builder. The path must start with "/".
+	 *
+	 * @param sb
+	 * @param pathStart
+	 */
+	static void removeDotSegments(StringBuilder sb, int pathStart) {
+		String path = sb.substring(pathStart);
+		if (path.indexOf('.') < 0) {
+			return;
+		}
+		sb.setLength(pathStart);
+		int i = 0;
+		int length = path.length();
+		while (i < length) {
+			// path[i] is always a "/"
+			int end = path.indexOf('/', i + 1);
+			if (end < 0) {
+				end = length;
+			}
+			int segmentLength = end - i - 1;
+			boolean last = end == length;
+			if (segmentLength == 1 && path.charAt(i + 1) == '.') {
+				if (last) {
+					sb.append('/');
+				}
+			} else if (segmentLength == 2 && path.charAt(i + 1) == '.' && path.charAt(i + 2) == '.') {
+				int previous = sb.lastIndexOf("/");
+				sb.setLength(Math.max(previous, pathStart));
+				if (last) {
+					sb.append('/');
+				}
+			} else {
+				sb.append(path, i, end);
+			}
+			i = end;
+		}
+		if (sb.length() == pathStart) {
+			sb.append('/');
+		}
+	}
+
+	/**
+	 * Append a substring percent-encoding (UTF-8) the characters that are not allowed in a URI. The valid
+	 * percent-encoded triplets and the first "#" (fragment delimiter) are kept.
+	 *
+	 * @param sb
+	 * @param s
+	 * @param start
+	 * @param end
+	 */
+	static void appendEncoded(StringBuilder sb, String s, int start, int end) {
+		for (int i = start; i < end; i++) {
+			char c = s.charAt(i);
+			if (c == '%' && i + 2 < end && isHex(s.charAt(i + 1)) && isHex(s.charAt(i + 2))) {
+				sb.append(c);
+			} else if (c == '#' ? s.indexOf('#') == i : (c < 0x80 && c != '%' && isAllowed(c))) {
+				sb.append(c);
+			} else {
+				int codePointEnd = Character.isHighSurrogate(c) && i + 1 < end ? i + 2 : i + 1;
+				for (byte b : s.substring(i, codePointEnd).getBytes(StandardCharsets.UTF_8)) {
+					sb.append('%').append(HEX[(b >> 4) & 0x0F]).append(HEX[b & 0x0F]);
+				}
+				i = codePointEnd - 1;
+			}
+		}
+	}
+
+	private static boolean isAllowed(char c) {
+		return isAlpha(c) || (c >= '0' && c <= '9') || "-._~:/?@!$&'()*+,;=".indexOf(c) >= 0;
+	}
+
+	private static boolean isAlpha(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+	}
+
+	private static boolean isHex(char c) {
+		return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+	}
+
 }
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.webfilters;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import com.elevenpaths.almaraz.exceptions.ServiceUnavailableException;
+import com.elevenpaths.almaraz.limiter.AdaptiveConcurrencyLimiter;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Reactive {@link WebFilter} to shed load with an {@link AdaptiveConcurrencyLimiter}. The requests beyond
+ * the concurrency limit are rejected immediately with {@link ServiceUnavailableException#INSTANCE} (503
+ * response), so that the latency of the accepted requests does not grow under overload.
+ *
+ * The limit is adapted with the latency of each request (measured with {@link System#nanoTime()}, like the
+ * {@link LoggerWebFilter}). The cancelled requests release their permit without latency sample.
+ *
+ * The health endpoints ({@link #DEFAULT_EXEMPT_PATHS}) and the priority routes (see {@link #exempt(String)})
+ * are never rejected, and they are not counted as in-flight requests.
+ *
+ * This web filter must be after the {@link ErrorWebFilter} (to generate the error response).
+ *
+ * <code>
+ * new ConcurrencyLimitWebFilter(new AdaptiveConcurrencyLimiter())
+ *     .exempt("/api/admin/**");
+ * </code>
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class ConcurrencyLimitWebFilter implements WebFilter {
+
+	/**
+	 * Default exempt paths (health endpoints).
+	 */
+	public static final List<String> DEFAULT_EXEMPT_PATHS = List.of(VersionWebFilter.DEFAULT_PATH, "/health", "/ready");
+
+	/**
+	 * Parser of the path patterns.
+	 */
+	private static final PathPatternParser PARSER = PathPatternParser.defaultInstance;
+
+	private final AdaptiveConcurrencyLimiter limiter;
+
+	/**
+	 * Exempt path patterns.
+	 */
+	private final List<PathPattern> exemptPatterns = new ArrayList<>();
+
+	/**
+	 * Constructor with the default exempt paths.
+	 *
+	 * @param limiter
+	 */
+	public ConcurrencyLimitWebFilter(AdaptiveConcurrencyLimiter limiter) {
+		this(limiter, DEFAULT_EXEMPT_PATHS);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param limiter
+	 * @param exemptPathPatterns path patterns that are exempt from the limit. If null, there is no exempt path.
+	 */
+	public ConcurrencyLimitWebFilter(AdaptiveConcurrencyLimiter limiter, List<String> exemptPathPatterns) {
+		this.limiter = limiter;
+		if (exemptPathPatterns != null) {
+			exemptPathPatterns.forEach(this::exempt);
+		}
+	}
+
+	/**
+	 * Add a path pattern (e.g. a priority route) that is exempt from the limit.
+	 *
+	 * @param pathPattern path pattern (e.g. /api/admin/**)
+	 * @return this web filter
+	 */
+	public ConcurrencyLimitWebFilter exempt(String pathPattern) {
+		exemptPatterns.add(PARSER.parse(pathPattern));
+		return this;
+	}
+
+	/**
+	 * Web filter implementation to acquire a permit for the request, and release it (with the latency) when the
+	 * request processing is finished.
+	 */
+	@Override
+	public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+		if (isExempt(exchange)) {
+			return chain.filter(exchange);
+		}
+		if (!limiter.tryAcquire()) {
+			return Mono.error(ServiceUnavailableException.INSTANCE);
+		}
+		long start = System.nanoTime();
+		return chain.filter(exchange)
+				.doFinally(signalType -> {
+					if (signalType == SignalType.CANCEL) {
+						limiter.release();
+					} else {
+						limiter.release(System.nanoTime() - start);
+					}
+				});
+	}
+
+	/**
+	 * Check if the request path matches an exempt path pattern.
+	 *
+	 * @param exchange
+	 * @return true if exempt
+	 */
+	protected boolean isExempt(ServerWebExchange exchange) {
+		if (exemptPatterns.isEmpty()) {
+			return false;
+		}
+		PathContainer path = exchange.getRequest().getPath().pathWithinApplication();
+		for (PathPattern pattern : exemptPatterns) {
+			if (pattern.matches(path)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
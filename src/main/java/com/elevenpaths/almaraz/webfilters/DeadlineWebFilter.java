@@ -0,0 +1,276 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.webfilters;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import com.elevenpaths.almaraz.context.RequestContext;
+import com.elevenpaths.almaraz.exceptions.GatewayTimeoutException;
+import com.elevenpaths.almaraz.webclientfilters.CorrelatorWebClientFilter;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive {@link WebFilter} to enforce a deadline on each request. The timeout of the request is obtained from:
+ * <ul>
+ * <li>The timeout header (by default, {@link #DEFAULT_TIMEOUT_HEADER}) with the timeout in milliseconds.</li>
+ * <li>The gRPC header {@link #GRPC_TIMEOUT_HEADER} (e.g. "100m" for 100 milliseconds).</li>
+ * <li>The timeout of the first path pattern matching the request path, or the default timeout.</li>
+ * </ul>
+ * If the request contains a timeout header and there is also a configured timeout, the lowest one is applied.
+ * The timeouts are capped by {@link #MAX_TIMEOUT}.
+ *
+ * The deadline is stored in the {@link RequestContext} so that the {@link CorrelatorWebClientFilter} applies the
+ * remaining time as the timeout of the outbound requests (and forwards it in the timeout header). When the deadline
+ * expires, the request processing is cancelled with a {@link GatewayTimeoutException} (504 response).
+ *
+ * This web filter must be after the {@link RequestContextWebFilter} and the {@link ErrorWebFilter} (to generate the
+ * error response).
+ *
+ * <code>
+ * new DeadlineWebFilter(Duration.ofSeconds(10))
+ *     .timeout("/api/reports/**", Duration.ofSeconds(30));
+ * </code>
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class DeadlineWebFilter implements WebFilter {
+
+	/**
+	 * Default HTTP header with the timeout of the request in milliseconds.
+	 */
+	public static final String DEFAULT_TIMEOUT_HEADER = "X-Request-Timeout";
+
+	/**
+	 * gRPC header with the timeout of the request.
+	 */
+	public static final String GRPC_TIMEOUT_HEADER = "grpc-timeout";
+
+	/**
+	 * Maximum timeout. Longer timeouts (e.g. sent by a client) are capped to this value.
+	 */
+	public static final Duration MAX_TIMEOUT = Duration.ofDays(1);
+
+	/**
+	 * Parser of the path patterns.
+	 */
+	private static final PathPatternParser PARSER = PathPatternParser.defaultInstance;
+
+	/**
+	 * Timeouts per path pattern (ordered).
+	 */
+	private final List<PathTimeout> pathTimeouts = new ArrayList<>();
+
+	/**
+	 * Timeout when no path pattern matches the request path. If null, only the timeout headers are applied.
+	 */
+	private final Duration defaultTimeout;
+
+	/**
+	 * HTTP header with the timeout of the request in milliseconds.
+	 */
+	private final String timeoutHeader;
+
+	/**
+	 * Default constructor. Only the timeout headers are applied.
+	 */
+	public DeadlineWebFilter() {
+		this(null);
+	}
+
+	/**
+	 * Constructor with default timeout.
+	 *
+	 * @param defaultTimeout timeout when no path pattern matches the request path. If null, only the timeout
+	 *        headers are applied.
+	 */
+	public DeadlineWebFilter(Duration defaultTimeout) {
+		this(defaultTimeout, DEFAULT_TIMEOUT_HEADER);
+	}
+
+	/**
+	 * Constructor with default timeout and custom timeout header.
+	 *
+	 * @param defaultTimeout timeout when no path pattern matches the request path. If null, only the timeout
+	 *        headers are applied.
+	 * @param timeoutHeader HTTP header with the timeout in milliseconds. If null, then {@link #DEFAULT_TIMEOUT_HEADER}.
+	 */
+	public DeadlineWebFilter(Duration defaultTimeout, String timeoutHeader) {
+		this.defaultTimeout = defaultTimeout;
+		this.timeoutHeader = (timeoutHeader == null) ? DEFAULT_TIMEOUT_HEADER : timeoutHeader;
+	}
+
+	/**
+	 * Add a timeout for the requests whose path matches a pattern. The patterns are evaluated in the same order
+	 * they are added.
+	 *
+	 * @param pathPattern path pattern (e.g. /api/resources/**)
+	 * @param timeout
+	 * @return this web filter
+	 */
+	public DeadlineWebFilter timeout(String pathPattern, Duration timeout) {
+		pathTimeouts.add(new PathTimeout(PARSER.parse(pathPattern), timeout));
+		return this;
+	}
+
+	/**
+	 * Web filter implementation to store the deadline in the {@link RequestContext} and to cancel the request
+	 * processing when it expires.
+	 */
+	@Override
+	public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+		Duration timeout = getTimeout(exchange);
+		if (timeout == null) {
+			return chain.filter(exchange);
+		}
+		return Mono.deferContextual(ctxt -> {
+			RequestContext.from(ctxt).setDeadline(System.nanoTime() + timeout.toNanos());
+			if (timeout.isZero()) {
+				return Mono.error(GatewayTimeoutException.INSTANCE);
+			}
+			return chain.filter(exchange)
+					.timeout(timeout, Mono.error(GatewayTimeoutException.INSTANCE));
+		});
+	}
+
+	/**
+	 * Get the timeout of the request: the lowest one between the timeout header and the configured timeout
+	 * (for the request path or the default timeout).
+	 *
+	 * @param exchange
+	 * @return timeout or null if the request has no timeout
+	 */
+	protected Duration getTimeout(ServerWebExchange exchange) {
+		HttpHeaders headers = exchange.getRequest().getHeaders();
+		Duration requestTimeout = parseTimeout(headers.getFirst(timeoutHeader));
+		if (requestTimeout == null) {
+			requestTimeout = parseGrpcTimeout(headers.getFirst(GRPC_TIMEOUT_HEADER));
+		}
+		Duration configuredTimeout = getConfiguredTimeout(exchange);
+		if (requestTimeout == null) {
+			return cap(configuredTimeout);
+		}
+		if (configuredTimeout == null || requestTimeout.compareTo(configuredTimeout) < 0) {
+			return cap(requestTimeout);
+		}
+		return cap(configuredTimeout);
+	}
+
+	/**
+	 * Cap a timeout to {@link #MAX_TIMEOUT}.
+	 *
+	 * @param timeout
+	 * @return capped timeout (or null)
+	 */
+	private static Duration cap(Duration timeout) {
+		return (timeout != null && timeout.compareTo(MAX_TIMEOUT) > 0) ? MAX_TIMEOUT : timeout;
+	}
+
+	/**
+	 * Get the timeout of the first path pattern matching the request path (or the default timeout).
+	 *
+	 * @param exchange
+	 * @return timeout
+	 */
+	private Duration getConfiguredTimeout(ServerWebExchange exchange) {
+		if (pathTimeouts.isEmpty()) {
+			return defaultTimeout;
+		}
+		PathContainer path = exchange.getRequest().getPath().pathWithinApplication();
+		for (PathTimeout pathTimeout : pathTimeouts) {
+			if (pathTimeout.pattern.matches(path)) {
+				return pathTimeout.timeout;
+			}
+		}
+		return defaultTimeout;
+	}
+
+	/**
+	 * Parse a timeout in milliseconds.
+	 *
+	 * @param value
+	 * @return timeout (capped to {@link #MAX_TIMEOUT}) or null if the value is missing or invalid
+	 */
+	static Duration parseTimeout(String value) {
+		if (value == null) {
+			return null;
+		}
+		try {
+			long millis = Long.parseLong(value.trim());
+			return (millis < 0) ? null : cap(Duration.ofMillis(millis));
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Parse a gRPC timeout: up to 8 digits followed by the unit (H, M, S, m, u or n).
+	 *
+	 * @param value
+	 * @return timeout (capped to {@link #MAX_TIMEOUT}) or null if the value is missing or invalid
+	 */
+	static Duration parseGrpcTimeout(String value) {
+		return cap(parseGrpcDuration(value));
+	}
+
+	private static Duration parseGrpcDuration(String value) {
+		if (value == null || value.length() < 2 || value.length() > 9) {
+			return null;
+		}
+		long amount = 0;
+		for (int i = 0; i < value.length() - 1; i++) {
+			char c = value.charAt(i);
+			if (c < '0' || c > '9') {
+				return null;
+			}
+			amount = amount * 10 + (c - '0');
+		}
+		switch (value.charAt(value.length() - 1)) {
+		case 'H':
+			return Duration.ofHours(amount);
+		case 'M':
+			return Duration.ofMinutes(amount);
+		case 'S':
+			return Duration.ofSeconds(amount);
+		case 'm':
+			return Duration.ofMillis(amount);
+		case 'u':
+			return Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(amount));
+		case 'n':
+			return Duration.ofNanos(amount);
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * Timeout for a path pattern.
+	 */
+	private static class PathTimeout {
+
+		private final PathPattern pattern;
+
+		private final Duration timeout;
+
+		PathTimeout(PathPattern pattern, Duration timeout) {
+			this.pattern = pattern;
+			this.timeout = timeout;
+		}
+
+	}
+
+}
@@ -4,8 +4,17 @@
 
 package com.elevenpaths.almaraz.webfilters;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
 import org.slf4j.MDC;
 import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
@@ -18,16 +27,25 @@ import org.springframework.web.server.WebFilter;
 import org.springframework.web.server.WebFilterChain;
 
 import com.elevenpaths.almaraz.context.ContextField;
+import com.elevenpaths.almaraz.context.LogBuffer;
 import com.elevenpaths.almaraz.context.RequestContext;
+import com.elevenpaths.almaraz.exceptions.GatewayTimeoutException;
 import com.elevenpaths.almaraz.exceptions.ResponseException;
 import com.elevenpaths.almaraz.exceptions.ServerException;
+import com.elevenpaths.almaraz.exceptions.ServiceUnavailableException;
+import com.elevenpaths.almaraz.logging.DebugLogBuffer;
+import com.elevenpaths.almaraz.logging.ErrorLogDeduplicator;
+import com.elevenpaths.almaraz.logging.MDCServerWebExchange;
 import com.elevenpaths.almaraz.logging.ReactiveLogger;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
 import reactor.core.publisher.Mono;
 
 /**
@@ -43,13 +61,39 @@ import reactor.core.publisher.Mono;
  *
  */
 @Slf4j
-public class ErrorWebFilter implements WebFilter {
+public class ErrorWebFilter implements WebFilter, AutoCloseable {
+
+	/**
+	 * Maximum number of cached error response bodies (only the shared exceptions are cached).
+	 */
+	public static final int MAX_CACHED_ERROR_BODIES = 256;
+
+	/**
+	 * Initial capacity of the buffer for the error response bodies with details.
+	 */
+	private static final int INITIAL_ERROR_BODY_CAPACITY = 256;
 
 	/**
 	 * Marshaller of error responses into JSON.
 	 */
 	private final ObjectMapper objectMapper;
 
+	/**
+	 * Deduplication of server error logs. If null, every server error is logged.
+	 */
+	private final ErrorLogDeduplicator errorLogDeduplicator;
+
+	/**
+	 * Scheduled summaries of the suppressed server error logs. It is null until the first error is suppressed,
+	 * and a disposed task after closing the web filter.
+	 */
+	private final AtomicReference<Disposable> summaries = new AtomicReference<>();
+
+	/**
+	 * Cache of the serialized error response bodies of the shared exceptions.
+	 */
+	private final Map<ErrorBodyKey, byte[]> errorBodies = new ConcurrentHashMap<>();
+
 	/**
 	 * Constructor.
 	 */
@@ -63,7 +107,32 @@ public class ErrorWebFilter implements WebFilter {
 	 * @param objectMapper
 	 */
 	public ErrorWebFilter(ObjectMapper objectMapper) {
+		this(objectMapper, null);
+	}
+
+	/**
+	 * Constructor with deduplication of server error logs. When the first error is suppressed, the summaries
+	 * of the suppressed errors are scheduled once per window (even if no other error happens) until the web
+	 * filter is closed.
+	 *
+	 * @param objectMapper
+	 * @param errorLogDeduplicator deduplication of server error logs. If null, every server error is logged.
+	 */
+	public ErrorWebFilter(ObjectMapper objectMapper, ErrorLogDeduplicator errorLogDeduplicator) {
 		this.objectMapper = objectMapper;
+		this.errorLogDeduplicator = errorLogDeduplicator;
+	}
+
+	/**
+	 * Cancel the scheduled summaries of the suppressed server error logs. They are not scheduled anymore
+	 * after closing the web filter. Spring invokes it when the bean is destroyed.
+	 */
+	@Override
+	public void close() {
+		Disposable task = summaries.getAndSet(Disposables.disposed());
+		if (task != null) {
+			task.dispose();
+		}
 	}
 
 	/**
@@ -78,7 +147,8 @@ public class ErrorWebFilter implements WebFilter {
 
 	/**
 	 * Convert the exception into a {@link ResponseException} and render it as
-	 * a body response.
+	 * a body response. The error is logged with the request metadata (method, path, query params and
+	 * remote address).
 	 *
 	 * @param exchange
 	 * @param t
@@ -86,19 +156,157 @@ public class ErrorWebFilter implements WebFilter {
 	 */
 	protected Mono<Void> buildErrorResponse(ServerWebExchange exchange, Throwable t) {
 		ResponseException e = getResponseException(t);
-		HttpStatusCode status = e.getStatus();
-		MultiValueMap<String, String> headers = null;
-		byte[] bodyBytes = null;
+		return Mono.empty()
+				.doOnEach(ReactiveLogger.logOnComplete(() -> {
+					MDCServerWebExchange.putRequestFields(exchange);
+					logError(e);
+				}))
+				.then(RequestContext.context())
+				.doOnNext(requestContext -> {
+					if (isRejection(e)) {
+						discardDebugLogBuffer(requestContext);
+					} else if (isFlushRequired(e)) {
+						flushDebugLogBuffer(requestContext);
+					}
+				})
+				.then(Mono.defer(() -> renderErrorResponse(exchange, e)));
+	}
+
+	/**
+	 * Render the error response of a {@link ResponseException}.
+	 * The body of the errors without details is obtained with {@link #getErrorResponseBody(ResponseException)}
+	 * (it is serialized once for the shared exceptions). The body of the errors with details is written into a
+	 * {@link DataBuffer} (see {@link #writeErrorResponseBody(ResponseException, DataBufferFactory)}).
+	 * Both bodies are built by {@link #buildErrorResponseBody(ResponseException)}.
+	 *
+	 * @param exchange
+	 * @param e
+	 * @return a completed {@link Mono}
+	 */
+	protected Mono<Void> renderErrorResponse(ServerWebExchange exchange, ResponseException e) {
+		if (e.getError() == null || e.getDetailMap() == null) {
+			byte[] bodyBytes;
+			try {
+				bodyBytes = getErrorResponseBody(e);
+			} catch (JsonProcessingException e1) {
+				log.error("Error marshalling exception", e1);
+				return renderErrorResponse(exchange, HttpStatus.INTERNAL_SERVER_ERROR, null, null);
+			}
+			return renderErrorResponse(exchange, e.getStatus(), bodyBytes, e.getHeaders());
+		}
+		ServerHttpResponse response = exchange.getResponse();
+		DataBuffer buffer;
 		try {
-			bodyBytes = marshalErrorResponseBody(e);
-			headers = e.getHeaders();
-		} catch (JsonProcessingException e1) {
+			buffer = writeErrorResponseBody(e, response.bufferFactory());
+		} catch (IOException e1) {
 			log.error("Error marshalling exception", e1);
-			status = HttpStatus.INTERNAL_SERVER_ERROR;
+			return renderErrorResponse(exchange, HttpStatus.INTERNAL_SERVER_ERROR, null, null);
+		}
+		response.setStatusCode(e.getStatus());
+		if (e.getHeaders() != null) {
+			response.getHeaders().addAll(e.getHeaders());
+		}
+		response.getHeaders().add(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+		return response.writeWith(Mono.just(buffer));
+	}
+
+	/**
+	 * Get the serialized body of an error response without details. The body of the shared exceptions
+	 * (see {@link ResponseException#isShared()}) is cached by error and reason (up to
+	 * {@link #MAX_CACHED_ERROR_BODIES} entries). Other exceptions are not cached because their reason may be
+	 * dynamic (e.g. the invalid field). The cached byte arrays must not be modified.
+	 *
+	 * @param e
+	 * @return byte array of the error response
+	 * @throws JsonProcessingException
+	 */
+	protected byte[] getErrorResponseBody(ResponseException e) throws JsonProcessingException {
+		if (e.getError() == null) {
+			return null;
+		}
+		if (!e.isShared()) {
+			return marshalErrorResponseBody(e);
+		}
+		ErrorBodyKey key = new ErrorBodyKey(e.getError(), e.getReason());
+		byte[] bodyBytes = errorBodies.get(key);
+		if (bodyBytes == null) {
+			bodyBytes = marshalErrorResponseBody(e);
+			if (bodyBytes != null && errorBodies.size() < MAX_CACHED_ERROR_BODIES) {
+				errorBodies.putIfAbsent(key, bodyBytes);
+			}
+		}
+		return bodyBytes;
+	}
+
+	/**
+	 * Write the error response body, with details, into a {@link DataBuffer} with the writer of the
+	 * {@link ObjectMapper}. The buffer is released if the serialization fails.
+	 *
+	 * @param e
+	 * @param bufferFactory
+	 * @return buffer with the error response
+	 * @throws IOException
+	 */
+	protected DataBuffer writeErrorResponseBody(ResponseException e, DataBufferFactory bufferFactory)
+			throws IOException {
+		DataBuffer buffer = bufferFactory.allocateBuffer(INITIAL_ERROR_BODY_CAPACITY);
+		try (OutputStream outputStream = buffer.asOutputStream()) {
+			objectMapper.writer().writeValue(outputStream, buildErrorResponseBody(e));
+		} catch (IOException | RuntimeException e1) {
+			DataBufferUtils.release(buffer);
+			throw e1;
+		}
+		return buffer;
+	}
+
+	/**
+	 * Check if the log entries buffered for the request must be written. Only server errors (like
+	 * {@link LoggerWebFilter}) so that a storm of client errors does not write every debug entry.
+	 *
+	 * @param e
+	 * @return true if the debug log buffer must be flushed
+	 */
+	protected boolean isFlushRequired(ResponseException e) {
+		HttpStatusCode status = e.getStatus();
+		return e instanceof ServerException || (status != null && status.is5xxServerError());
+	}
+
+	/**
+	 * Check if the error is an expected rejection of the request: load shedding
+	 * ({@link ServiceUnavailableException}) or an expired deadline ({@link GatewayTimeoutException}).
+	 * These errors are frequent under overload (and they may be triggered by the clients), so that they are
+	 * logged with warn level and the debug log buffer is discarded.
+	 *
+	 * @param e
+	 * @return true if the error is an expected rejection
+	 */
+	protected boolean isRejection(ResponseException e) {
+		return e instanceof ServiceUnavailableException || e instanceof GatewayTimeoutException;
+	}
+
+	/**
+	 * Discard the log entries buffered for the request (see {@link DebugLogBuffer}), if any.
+	 *
+	 * @param requestContext
+	 */
+	protected void discardDebugLogBuffer(RequestContext requestContext) {
+		LogBuffer debugLogBuffer = requestContext.getDebugLogBuffer();
+		if (debugLogBuffer != null) {
+			debugLogBuffer.discard();
+		}
+	}
+
+	/**
+	 * Write the log entries buffered for the request (see {@link DebugLogBuffer}), if any, so that the
+	 * debug information of the failed request is available.
+	 *
+	 * @param requestContext
+	 */
+	protected void flushDebugLogBuffer(RequestContext requestContext) {
+		LogBuffer debugLogBuffer = requestContext.getDebugLogBuffer();
+		if (debugLogBuffer != null) {
+			debugLogBuffer.flush();
 		}
-		return Mono.empty()
-				.doOnEach(ReactiveLogger.logOnComplete(() -> logError(e)))
-				.then(renderErrorResponse(exchange, status, bodyBytes, headers));
 	}
 
 	/**
@@ -112,15 +320,26 @@ public class ErrorWebFilter implements WebFilter {
 		if (e.getError() == null) {
 			return null;
 		}
+		return objectMapper.writer().writeValueAsBytes(buildErrorResponseBody(e));
+	}
+
+	/**
+	 * Build the error response body. The details are serialized when the body is written, without
+	 * converting them into a tree.
+	 *
+	 * @param e
+	 * @return JSON node with the error response
+	 */
+	protected ObjectNode buildErrorResponseBody(ResponseException e) {
 		ObjectNode node = JsonNodeFactory.instance.objectNode();
 		node.put("error", e.getError());
 		if (e.getReason() != null) {
 			node.put("error_description", e.getReason());
 		}
 		if (e.getDetailMap() != null) {
-			node.set("error_details", objectMapper.valueToTree(e.getDetailMap()));
+			node.putPOJO("error_details", e.getDetailMap());
 		}
-		return objectMapper.writer().writeValueAsBytes(node);
+		return node;
 	}
 
 	/**
@@ -143,7 +362,7 @@ public class ErrorWebFilter implements WebFilter {
 			return Mono.empty();
 		}
 		response.getHeaders().add(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
-		DataBuffer buffer = response.bufferFactory().wrap(bodyBytes);
+		DataBuffer buffer = response.bufferFactory().wrap(ByteBuffer.wrap(bodyBytes).asReadOnlyBuffer());
 		return response.writeWith(Mono.just(buffer));
 	}
 
@@ -169,17 +388,65 @@ public class ErrorWebFilter implements WebFilter {
 
 	/**
 	 * Log an error. It uses the {@link ContextField#ERROR} to save the error identifier.
+	 * The expected rejections (see {@link #isRejection(ResponseException)}) are logged with warn level.
+	 * With an {@link ErrorLogDeduplicator}, the duplicated server errors are suppressed and summarized.
 	 *
 	 * @param e
 	 */
 	protected void logError(ResponseException e) {
 		MDC.put(ContextField.ERROR, e.getError());
 		MDC.put(ContextField.REASON, e.getReason());
-		if (e instanceof ServerException) {
+		if (!(e instanceof ServerException)) {
+			log.info("Error");
+		} else if (isRejection(e)) {
+			log.warn("Error");
+		} else if (errorLogDeduplicator == null) {
 			log.error("Error", e.getCause());
 		} else {
-			log.info("Error");
+			errorLogDeduplicator.summarize(this::logSummary);
+			Throwable cause = (e.getCause() == null) ? e : e.getCause();
+			long suppressed = errorLogDeduplicator.record(cause, e.getError());
+			if (suppressed == 0) {
+				log.error("Error", e.getCause());
+			} else if (suppressed > 0) {
+				log.error("Error (suppressed {} duplicated errors)", suppressed, e.getCause());
+			} else {
+				scheduleSummaries();
+			}
+		}
+	}
+
+	/**
+	 * Schedule the summaries of the suppressed server error logs, if they are not scheduled yet (or the web
+	 * filter is closed).
+	 */
+	private void scheduleSummaries() {
+		if (summaries.get() != null) {
+			return;
 		}
+		Disposable task = errorLogDeduplicator.scheduleSummaries(this::logSummary);
+		if (!summaries.compareAndSet(null, task)) {
+			task.dispose();
+		}
+	}
+
+	/**
+	 * Log a summary of suppressed server errors.
+	 *
+	 * @param error description of the error
+	 * @param suppressed number of suppressed occurrences
+	 */
+	protected void logSummary(String error, Long suppressed) {
+		log.error("Suppressed {} duplicated errors: {}", suppressed, error);
+	}
+
+	/**
+	 * Key of the cached error response bodies.
+	 */
+	@Value
+	private static class ErrorBodyKey {
+		String error;
+		String reason;
 	}
 
 }
@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.webfilters;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+import com.elevenpaths.almaraz.metrics.LatencyRecorder;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Reactive {@link WebFilter} to record the latency of the requests per route and per status class
+ * with a {@link LatencyRecorder}, and to generate a response with the latency percentiles.
+ *
+ * The route is the best matching pattern of the request handler (e.g. "/api/resources/{id}"), so that
+ * the number of routes is bounded. The requests without handler are recorded in the route
+ * {@link LatencyRecorder#OTHER_ROUTE}.
+ *
+ * The response of the metrics API is a JSON array with an element per route and status class:
+ * <pre>
+ * [{"route":"/api/resources/{id}","status":"2xx","count":10,"p50":1.2,"p90":3.1,"p99":8.4,"p999":9.2,"max":9.2}]
+ * </pre>
+ * The latencies are in milliseconds.
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+@Slf4j
+public class LatencyMetricsWebFilter implements WebFilter {
+
+	/**
+	 * Default path where metrics API is available.
+	 */
+	public static final String DEFAULT_PATH = "/metrics";
+
+	/**
+	 * Marshaller of the metrics response into JSON.
+	 */
+	private final ObjectMapper objectMapper;
+
+	/**
+	 * Recorder of the latencies.
+	 */
+	private final LatencyRecorder recorder;
+
+	/**
+	 * Path where metrics API is available. By default, /metrics
+	 */
+	private final String path;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param objectMapper
+	 */
+	public LatencyMetricsWebFilter(ObjectMapper objectMapper) {
+		this(objectMapper, null, DEFAULT_PATH);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param objectMapper
+	 * @param recorder recorder of the latencies. If null, a {@link LatencyRecorder} with default settings.
+	 * @param path
+	 */
+	public LatencyMetricsWebFilter(ObjectMapper objectMapper, LatencyRecorder recorder, String path) {
+		this.objectMapper = objectMapper;
+		this.recorder = (recorder == null) ? new LatencyRecorder() : recorder;
+		this.path = path;
+	}
+
+	/**
+	 * Implementation of the web filter that replies with the latency metrics or, otherwise, records
+	 * the latency of the request when it is finished (completed, cancelled or failed).
+	 */
+	@Override
+	public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+		if (isGetMetrics(exchange)) {
+			return renderMetricsResponse(exchange);
+		}
+		long start = System.nanoTime();
+		return chain.filter(exchange)
+				.doFinally(signalType -> recorder.record(getRoute(exchange), getStatus(exchange, signalType),
+						System.nanoTime() - start, TimeUnit.NANOSECONDS));
+	}
+
+	/**
+	 * Get the recorder of the latencies.
+	 *
+	 * @return recorder
+	 */
+	public LatencyRecorder getRecorder() {
+		return recorder;
+	}
+
+	/**
+	 * Get the path where metrics API is available.
+	 *
+	 * @return path
+	 */
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * Check if the request matches with the metrics API.
+	 *
+	 * @param exchange
+	 * @return true if method is GET and request path is path (by default /metrics)
+	 */
+	protected boolean isGetMetrics(ServerWebExchange exchange) {
+		ServerHttpRequest request = exchange.getRequest();
+		return (HttpMethod.GET.equals(request.getMethod()) && request.getPath().value().equals(path));
+	}
+
+	/**
+	 * Get the route of the request: the best matching pattern of the handler.
+	 *
+	 * @param exchange
+	 * @return route or null if there is no handler
+	 */
+	protected String getRoute(ServerWebExchange exchange) {
+		Object pattern = exchange.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+		return (pattern == null) ? null : pattern.toString();
+	}
+
+	/**
+	 * Get the status code of the response. If the request failed without setting the status code,
+	 * it is considered an internal server error.
+	 *
+	 * @param exchange
+	 * @param signalType
+	 * @return status code or 0 if unknown
+	 */
+	private int getStatus(ServerWebExchange exchange, SignalType signalType) {
+		HttpStatusCode status = exchange.getResponse().getStatusCode();
+		if (status != null) {
+			return status.value();
+		}
+		return (signalType == SignalType.ON_ERROR) ? HttpStatus.INTERNAL_SERVER_ERROR.value() : 0;
+	}
+
+	/**
+	 * Convert the recorded latencies into a byte array to be rendered in the response.
+	 *
+	 * @return metrics as byte array
+	 * @throws JsonProcessingException
+	 */
+	protected byte[] marshalMetricsResponseBody() throws JsonProcessingException {
+		ArrayNode node = JsonNodeFactory.instance.arrayNode();
+		recorder.forEach((route, statusClass, snapshot) -> {
+			ObjectNode item = node.addObject();
+			item.put("route", route);
+			item.put("status", statusClass);
+			item.put("count", snapshot.getCount());
+			item.put("p50", toMillis(snapshot.getValueAtPercentile(50.0)));
+			item.put("p90", toMillis(snapshot.getValueAtPercentile(90.0)));
+			item.put("p99", toMillis(snapshot.getValueAtPercentile(99.0)));
+			item.put("p999", toMillis(snapshot.getValueAtPercentile(99.9)));
+			item.put("max", toMillis(snapshot.getMaxMicros()));
+		});
+		return objectMapper.writeValueAsBytes(node);
+	}
+
+	/**
+	 * Generate a response body with the latency percentiles as JSON. If the metrics cannot be marshalled,
+	 * the error is logged and the response is an internal server error without body.
+	 *
+	 * @param exchange
+	 * @return Mono<Void>
+	 */
+	protected Mono<Void> renderMetricsResponse(ServerWebExchange exchange) {
+		ServerHttpResponse response = exchange.getResponse();
+		byte[] bodyBytes;
+		try {
+			bodyBytes = marshalMetricsResponseBody();
+		} catch (JsonProcessingException e) {
+			log.error("Error marshalling metrics", e);
+			response.setStatusCode(HttpStatus.INTERNAL_SERVER_ERROR);
+			return response.setComplete();
+		}
+		response.setStatusCode(HttpStatus.OK);
+		response.getHeaders().add(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+		DataBuffer buffer = response.bufferFactory().wrap(bodyBytes);
+		return response.writeWith(Mono.just(buffer));
+	}
+
+	private static double toMillis(long micros) {
+		return micros / 1000.0;
+	}
+
+}
@@ -4,18 +4,26 @@
 
 package com.elevenpaths.almaraz.webfilters;
 
+import java.time.Duration;
+
 import org.slf4j.MDC;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.server.WebFilter;
 import org.springframework.web.server.WebFilterChain;
 
 import com.elevenpaths.almaraz.context.ContextField;
 import com.elevenpaths.almaraz.context.RequestContext;
+import com.elevenpaths.almaraz.logging.AccessLogSampler;
+import com.elevenpaths.almaraz.logging.DebugLogBuffer;
+import com.elevenpaths.almaraz.logging.DebugLogBufferPool;
 import com.elevenpaths.almaraz.logging.MDCServerWebExchange;
 import com.elevenpaths.almaraz.logging.ReactiveLogger;
 
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.util.context.ContextView;
 
 /**
  * Reactive {@link WebFilter} to log the request and response with contextual information.
@@ -26,6 +34,17 @@ import reactor.core.publisher.Mono;
  * so that it is possible to log not only the exception but also the response status code. The
  * error handler is responsible for converting an exception into a HTTP response.
  *
+ * The web filter supports two modes (see {@link Mode}):
+ * <ul>
+ * <li>{@link Mode#REQUEST_RESPONSE} (default): a log entry when the request is received and another
+ * log entry when the response is committed.</li>
+ * <li>{@link Mode#ACCESS}: a single access log entry when the request processing is finished (completed,
+ * cancelled or failed). The request log entry is only written with debug level.</li>
+ * </ul>
+ *
+ * Optionally, the log entries are sampled with an {@link AccessLogSampler}, and the debug log entries of
+ * each request are buffered with a {@link DebugLogBufferPool} (to be written only if the request fails).
+ *
  * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
  *
  */
@@ -33,20 +52,220 @@ import reactor.core.publisher.Mono;
 public class LoggerWebFilter implements WebFilter {
 
 	/**
-	 * Web filter implementation to write a log entry when the request is received and
-	 * another log entry when the response is completed.
+	 * Logging mode.
+	 */
+	public enum Mode {
+		/**
+		 * Log entries "Request" and "Response".
+		 */
+		REQUEST_RESPONSE,
+		/**
+		 * Single log entry "Access" with the request and response fields. The log entry "Request" is optional
+		 * (only if debug level is enabled).
+		 */
+		ACCESS
+	}
+
+	/**
+	 * Logging mode.
+	 */
+	private final Mode mode;
+
+	/**
+	 * Sampler of the access logs. If null, every request is logged.
+	 */
+	private final AccessLogSampler sampler;
+
+	/**
+	 * Pool of buffers for the debug log entries. If null, the debug log entries are not buffered.
+	 */
+	private final DebugLogBufferPool debugLogBufferPool;
+
+	/**
+	 * Constructor with the default mode: {@link Mode#REQUEST_RESPONSE}.
+	 */
+	public LoggerWebFilter() {
+		this(null);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param mode logging mode. If null, then {@link Mode#REQUEST_RESPONSE}.
+	 */
+	public LoggerWebFilter(Mode mode) {
+		this(mode, null);
+	}
+
+	/**
+	 * Constructor with sampling.
+	 *
+	 * @param mode logging mode. If null, then {@link Mode#REQUEST_RESPONSE}.
+	 * @param sampler sampler of the access logs. If null, every request is logged.
+	 */
+	public LoggerWebFilter(Mode mode, AccessLogSampler sampler) {
+		this(mode, sampler, null);
+	}
+
+	/**
+	 * Constructor with sampling and debug log buffering.
+	 *
+	 * @param mode logging mode. If null, then {@link Mode#REQUEST_RESPONSE}.
+	 * @param sampler sampler of the access logs. If null, every request is logged.
+	 * @param debugLogBufferPool pool of buffers for the debug log entries of each request. If null, the debug
+	 *        log entries are not buffered.
+	 */
+	public LoggerWebFilter(Mode mode, AccessLogSampler sampler, DebugLogBufferPool debugLogBufferPool) {
+		this.mode = (mode == null) ? Mode.REQUEST_RESPONSE : mode;
+		this.sampler = sampler;
+		this.debugLogBufferPool = debugLogBufferPool;
+	}
+
+	/**
+	 * Web filter implementation to write the log entries according to the {@link Mode}.
+	 * With sampling, the request log entry is only written if the request is sampled (head-based decision),
+	 * and the response (or access) log entry is written if the request is sampled or if it is forced by the
+	 * response (tail-based decision).
+	 * With debug log buffering, a {@link DebugLogBuffer} is stored in the {@link RequestContext}. It is flushed
+	 * if the request finishes with an error or a server error status, and discarded otherwise.
 	 */
 	@Override
 	public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
-		long start = System.currentTimeMillis();
-		exchange.getResponse().beforeCommit(() -> {
-			return Mono.empty()
-					.doOnEach(ReactiveLogger.logOnComplete(() -> logResponse(exchange, start)))
-					.then();
+		long start = System.nanoTime();
+		return Mono.deferContextual(ctxt -> {
+			RequestContext requestContext = RequestContext.from(ctxt);
+			boolean sampled = isSampled(exchange, requestContext);
+			DebugLogBuffer debugLogBuffer = acquireDebugLogBuffer(requestContext);
+			if (mode == Mode.REQUEST_RESPONSE) {
+				exchange.getResponse().beforeCommit(() -> Mono.fromRunnable(() ->
+						onCommit(exchange, ctxt, start, sampled)));
+			}
+			onRequest(exchange, ctxt, sampled);
+			Mono<Void> filtered = chain.filter(exchange);
+			if (!requiresFinally(debugLogBuffer)) {
+				return filtered;
+			}
+			return filtered.doFinally(signalType ->
+					onFinally(exchange, ctxt, start, sampled, signalType, requestContext, debugLogBuffer));
 		});
-		return Mono.empty()
-				.doOnEach(ReactiveLogger.logOnComplete(() -> logRequest(exchange)))
-				.then(chain.filter(exchange));
+	}
+
+	/**
+	 * Head-based sampling decision (see {@link AccessLogSampler#isSampled(ServerWebExchange, RequestContext)}).
+	 *
+	 * @param exchange
+	 * @param requestContext
+	 * @return true if the request is sampled (or there is no sampler)
+	 */
+	boolean isSampled(ServerWebExchange exchange, RequestContext requestContext) {
+		return sampler == null || sampler.isSampled(exchange, requestContext);
+	}
+
+	/**
+	 * Acquire a {@link DebugLogBuffer} for the request, if debug log buffering is enabled.
+	 *
+	 * @param requestContext
+	 * @return debug log buffer or null
+	 */
+	DebugLogBuffer acquireDebugLogBuffer(RequestContext requestContext) {
+		return (debugLogBufferPool == null) ? null : debugLogBufferPool.acquire(requestContext);
+	}
+
+	/**
+	 * Write the request log entry when the request is received. In {@link Mode#ACCESS}, it is only written
+	 * with debug level.
+	 *
+	 * @param exchange
+	 * @param ctxt
+	 * @param sampled
+	 */
+	void onRequest(ServerWebExchange exchange, ContextView ctxt, boolean sampled) {
+		if (!sampled) {
+			return;
+		}
+		if (mode == Mode.REQUEST_RESPONSE) {
+			ReactiveLogger.log(ctxt, () -> logRequest(exchange));
+		} else if (log.isDebugEnabled()) {
+			ReactiveLogger.log(ctxt, () -> logRequestStart(exchange));
+		}
+	}
+
+	/**
+	 * Write the response log entry when the response is committed ({@link Mode#REQUEST_RESPONSE} only).
+	 *
+	 * @param exchange
+	 * @param ctxt
+	 * @param start start time in nanoseconds (see {@link System#nanoTime()})
+	 * @param sampled
+	 */
+	void onCommit(ServerWebExchange exchange, ContextView ctxt, long start, boolean sampled) {
+		Duration latency = getLatency(start);
+		if (mode == Mode.REQUEST_RESPONSE && (sampled || isForced(exchange, latency))) {
+			ReactiveLogger.log(ctxt, () -> logResponse(exchange, latency));
+		}
+	}
+
+	/**
+	 * Check if {@link #onFinally(ServerWebExchange, ContextView, long, boolean, SignalType, RequestContext, DebugLogBuffer)}
+	 * is required when the request processing is finished.
+	 *
+	 * @param debugLogBuffer
+	 * @return true if the access log entry is written or there is a debug log buffer
+	 */
+	boolean requiresFinally(DebugLogBuffer debugLogBuffer) {
+		return mode == Mode.ACCESS || debugLogBuffer != null;
+	}
+
+	/**
+	 * Finish the logging of the request when the request processing is finished (completed, cancelled or
+	 * failed). In {@link Mode#ACCESS}, the access log entry is written here so that it is also written if the
+	 * request is cancelled or an error skips the response commit. The debug log buffer, if any, is flushed
+	 * if the request failed with an error or a server error status, and released.
+	 *
+	 * @param exchange
+	 * @param ctxt
+	 * @param start start time in nanoseconds (see {@link System#nanoTime()})
+	 * @param sampled
+	 * @param signalType
+	 * @param requestContext
+	 * @param debugLogBuffer
+	 */
+	void onFinally(ServerWebExchange exchange, ContextView ctxt, long start, boolean sampled, SignalType signalType,
+			RequestContext requestContext, DebugLogBuffer debugLogBuffer) {
+		if (mode == Mode.ACCESS) {
+			Duration latency = getLatency(start);
+			if (sampled || signalType == SignalType.ON_ERROR || isForced(exchange, latency)) {
+				ReactiveLogger.log(ctxt, () -> logAccess(exchange, latency));
+			}
+		}
+		if (debugLogBuffer != null) {
+			if (signalType == SignalType.ON_ERROR || isServerError(exchange)) {
+				debugLogBuffer.flush();
+			}
+			debugLogBufferPool.release(requestContext, debugLogBuffer);
+		}
+	}
+
+	/**
+	 * Check if the response has a server error status code (5xx).
+	 *
+	 * @param exchange
+	 * @return true if server error
+	 */
+	private boolean isServerError(ServerWebExchange exchange) {
+		HttpStatusCode status = exchange.getResponse().getStatusCode();
+		return status != null && status.is5xxServerError();
+	}
+
+	/**
+	 * Check if the log entry with the response is forced by the sampler (tail-based decision).
+	 *
+	 * @param exchange
+	 * @param latency
+	 * @return true if forced
+	 */
+	private boolean isForced(ServerWebExchange exchange, Duration latency) {
+		return sampler != null && sampler.isForced(exchange, latency.toMillis());
 	}
 
 	/**
@@ -55,21 +274,75 @@ public class LoggerWebFilter implements WebFilter {
 	 * @param exchange
 	 */
 	protected void logRequest(ServerWebExchange exchange) {
-		MDC.put(ContextField.METHOD, MDCServerWebExchange.getMethod(exchange));
-		MDC.put(ContextField.PATH, MDCServerWebExchange.getPath(exchange));
-		MDC.put(ContextField.QUERY, MDCServerWebExchange.getQueryParams(exchange));
-		MDC.put(ContextField.ADDRESS, MDCServerWebExchange.getRemoteAddress(exchange));
+		MDCServerWebExchange.putRequestFields(exchange);
 		log.info("Request");
 	}
 
 	/**
 	 * Log the response with status and latency as contextual information.
+	 * It is invoked by {@link #logResponse(ServerWebExchange, Duration)} so that existing overrides keep working.
+	 *
 	 * @param exchange
+	 * @param start Timestamp (see {@link System#currentTimeMillis()}) when the request was received to
+	 *        calculate the latency.
+	 * @deprecated Override {@link #logResponse(ServerWebExchange, Duration)} instead.
 	 */
+	@Deprecated
 	protected void logResponse(ServerWebExchange exchange, long start) {
-		MDC.put(ContextField.STATUS, MDCServerWebExchange.getStatusCode(exchange));
-		MDC.put(ContextField.LATENCY, Long.toString(System.currentTimeMillis() - start));
+		putResponseFields(exchange, Duration.ofMillis(System.currentTimeMillis() - start));
 		log.info("Response");
 	}
 
+	/**
+	 * Log the response with status and latency as contextual information.
+	 * By default, it delegates to the deprecated {@link #logResponse(ServerWebExchange, long)} with the
+	 * timestamp that corresponds to the latency.
+	 *
+	 * @param exchange
+	 * @param latency time to process the request (measured with {@link System#nanoTime()})
+	 */
+	@SuppressWarnings("deprecation")
+	protected void logResponse(ServerWebExchange exchange, Duration latency) {
+		logResponse(exchange, System.currentTimeMillis() - latency.toMillis());
+	}
+
+	/**
+	 * Log the request, with debug level, in {@link Mode#ACCESS}.
+	 *
+	 * @param exchange
+	 */
+	protected void logRequestStart(ServerWebExchange exchange) {
+		MDCServerWebExchange.putRequestFields(exchange);
+		log.debug("Request");
+	}
+
+	/**
+	 * Log the request and response contextual information in a single log entry ({@link Mode#ACCESS}).
+	 * Note that the status is not available if the request was cancelled before setting it.
+	 *
+	 * @param exchange
+	 * @param latency time to process the request (measured with {@link System#nanoTime()})
+	 */
+	protected void logAccess(ServerWebExchange exchange, Duration latency) {
+		MDCServerWebExchange.putRequestFields(exchange);
+		putResponseFields(exchange, latency);
+		log.info("Access");
+	}
+
+	private void putResponseFields(ServerWebExchange exchange, Duration latency) {
+		MDC.put(ContextField.STATUS, MDCServerWebExchange.getStatusCode(exchange));
+		MDC.put(ContextField.LATENCY, Long.toString(latency.toMillis()));
+	}
+
+	/**
+	 * Get the latency. It uses the monotonic clock {@link System#nanoTime()} so that the latency is not
+	 * affected by adjustments of the wall clock.
+	 *
+	 * @param start start time in nanoseconds
+	 * @return latency
+	 */
+	private static Duration getLatency(long start) {
+		return Duration.ofNanos(System.nanoTime() - start);
+	}
+
 }
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.webfilters;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+import com.elevenpaths.almaraz.context.RequestContext;
+import com.elevenpaths.almaraz.exceptions.TooManyRequestsException;
+import com.elevenpaths.almaraz.limiter.TokenBucketRateLimiter;
+import com.elevenpaths.almaraz.logging.MDCServerWebExchange;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive {@link WebFilter} to limit the rate of requests per key (client address, user or realm) with a
+ * {@link TokenBucketRateLimiter}. The requests beyond the rate limit are rejected with a
+ * {@link TooManyRequestsException} (429 response with a Retry-After header).
+ *
+ * This web filter must be after the {@link RequestContextWebFilter} and the {@link ErrorWebFilter} (to
+ * generate the error response). The keys {@link #USER} and {@link #REALM} require that the user and realm
+ * are populated in the {@link RequestContext} by a previous web filter (e.g. authentication); otherwise
+ * the client address is used.
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class RateLimitWebFilter implements WebFilter {
+
+	/**
+	 * Resolver of the rate limiting key of a request.
+	 */
+	@FunctionalInterface
+	public interface KeyResolver {
+
+		/**
+		 * Get the rate limiting key of a request.
+		 *
+		 * @param exchange
+		 * @param requestContext
+		 * @return key or null to skip the rate limiting
+		 */
+		String resolve(ServerWebExchange exchange, RequestContext requestContext);
+
+	}
+
+	/**
+	 * Key with the client address (see {@link MDCServerWebExchange#getRemoteAddress(ServerWebExchange)}).
+	 */
+	public static final KeyResolver REMOTE_ADDRESS = (exchange, requestContext) ->
+			MDCServerWebExchange.getRemoteAddress(exchange);
+
+	/**
+	 * Key with the user of the {@link RequestContext} or the client address if there is no user.
+	 */
+	public static final KeyResolver USER = (exchange, requestContext) ->
+			(requestContext.getUser() != null) ? requestContext.getUser() : REMOTE_ADDRESS.resolve(exchange, requestContext);
+
+	/**
+	 * Key with the realm of the {@link RequestContext} or the client address if there is no realm.
+	 */
+	public static final KeyResolver REALM = (exchange, requestContext) ->
+			(requestContext.getRealm() != null) ? requestContext.getRealm() : REMOTE_ADDRESS.resolve(exchange, requestContext);
+
+	private final TokenBucketRateLimiter rateLimiter;
+
+	private final KeyResolver keyResolver;
+
+	/**
+	 * Constructor with the key {@link #REMOTE_ADDRESS}.
+	 *
+	 * @param rateLimiter
+	 */
+	public RateLimitWebFilter(TokenBucketRateLimiter rateLimiter) {
+		this(rateLimiter, null);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param rateLimiter
+	 * @param keyResolver resolver of the key. If null, then {@link #REMOTE_ADDRESS}.
+	 */
+	public RateLimitWebFilter(TokenBucketRateLimiter rateLimiter, KeyResolver keyResolver) {
+		this.rateLimiter = rateLimiter;
+		this.keyResolver = (keyResolver == null) ? REMOTE_ADDRESS : keyResolver;
+	}
+
+	/**
+	 * Web filter implementation to acquire a permit for the request key. If there is no permit, the
+	 * request is rejected and the rest of the chain is not invoked.
+	 */
+	@Override
+	public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+		return Mono.deferContextual(ctxt -> {
+			String key = keyResolver.resolve(exchange, RequestContext.from(ctxt));
+			long wait = (key == null) ? 0 : rateLimiter.tryAcquire(key);
+			if (wait > 0) {
+				return Mono.error(new TooManyRequestsException(getRetryAfterSeconds(wait)));
+			}
+			return chain.filter(exchange);
+		});
+	}
+
+	/**
+	 * Get the value of the Retry-After header (seconds rounded up).
+	 *
+	 * @param wait time to wait in nanoseconds
+	 * @return seconds
+	 */
+	static long getRetryAfterSeconds(long wait) {
+		return (wait + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
+	}
+
+}
@@ -4,7 +4,6 @@
 
 package com.elevenpaths.almaraz.webfilters;
 
-import java.util.UUID;
 import java.util.function.Supplier;
 
 import org.springframework.http.server.reactive.ServerHttpRequest;
@@ -13,6 +12,8 @@ import org.springframework.web.server.WebFilter;
 import org.springframework.web.server.WebFilterChain;
 
 import com.elevenpaths.almaraz.context.RequestContext;
+import com.elevenpaths.almaraz.context.generators.RandomUUIDGenerator;
+import com.elevenpaths.almaraz.context.generators.TransactionIdGenerator;
 import com.elevenpaths.almaraz.logging.ReactiveLogger;
 
 import reactor.core.publisher.Mono;
@@ -25,7 +26,8 @@ import reactor.util.context.Context;
  *
  * The web filter also initializes the {@link RequestContext} with the correlator and transaction ID:
  * <ul>
- * <li><b>Transaction ID</b> - UUID for the request</li>
+ * <li><b>Transaction ID</b> - Identifier for the request generated with a {@link TransactionIdGenerator} (by default,
+ * a random UUID)</li>
  * <li><b>Correlator</b> - Identifier to correlate a request or flow of requests in a microservices architecture.
  * The correlator can be specified by the client using a HTTP header (by default, "Unica-Correlator"). Web clients should include this
  * correlator in a HTTP header to maintain it during the rest of the web flow.</li>
@@ -61,6 +63,11 @@ public class RequestContextWebFilter implements WebFilter {
 	 */
 	private final String correlatorHeader;
 
+	/**
+	 * Generator of the transaction ID for each request.
+	 */
+	private final TransactionIdGenerator transactionIdGenerator;
+
 	/**
 	 * Default constructor.
 	 */
@@ -93,8 +100,21 @@ public class RequestContextWebFilter implements WebFilter {
 	 * @param correlatorHeader
 	 */
 	public <T extends RequestContext> RequestContextWebFilter(Supplier<T> contextSupplier, String correlatorHeader) {
+		this(contextSupplier, correlatorHeader, null);
+	}
+
+	/**
+	 * Constructor with custom contextSupplier, correlator header and transaction ID generator.
+	 *
+	 * @param contextSupplier
+	 * @param correlatorHeader
+	 * @param transactionIdGenerator
+	 */
+	public <T extends RequestContext> RequestContextWebFilter(Supplier<T> contextSupplier, String correlatorHeader,
+			TransactionIdGenerator transactionIdGenerator) {
 		this.contextSupplier = contextSupplier == null ? DEFAULT_CONTEXT_SUPPLIER : contextSupplier;
 		this.correlatorHeader = correlatorHeader == null ? DEFAULT_CORRELATOR_HEADER : correlatorHeader;
+		this.transactionIdGenerator = transactionIdGenerator == null ? new RandomUUIDGenerator() : transactionIdGenerator;
 	}
 
 	/**
@@ -108,13 +128,23 @@ public class RequestContextWebFilter implements WebFilter {
 		ServerHttpRequest request = exchange.getRequest();
 		RequestContext requestContext = buildRequestContext(request);
 		exchange.getResponse().beforeCommit(() -> {
-			exchange.getResponse().getHeaders().set(correlatorHeader, requestContext.getCorrelator());
+			setCorrelatorHeader(exchange, requestContext);
 			return Mono.empty();
 		});
 		return chain.filter(exchange)
 				.contextWrite(Context.of(RequestContext.class, requestContext));
 	}
 
+	/**
+	 * Set the correlator HTTP header (with name {@link #correlatorHeader}) in the response.
+	 *
+	 * @param exchange
+	 * @param requestContext
+	 */
+	protected void setCorrelatorHeader(ServerWebExchange exchange, RequestContext requestContext) {
+		exchange.getResponse().getHeaders().set(correlatorHeader, requestContext.getCorrelator());
+	}
+
 	/**
 	 * Create a new {@link RequestContext} instance using {@link #newRequestContext()} and enrich
 	 * this context with the transaction ID and correlator using {@link #initRequestContext(RequestContext, ServerHttpRequest)}.
@@ -138,7 +168,7 @@ public class RequestContextWebFilter implements WebFilter {
 
 	/**
 	 * Initializes the {@link RequestContext} with the transaction ID and correlator.
-	 * The context instance includes a transaction ID (UUID) and a correlator (from the HTTP header of the request
+	 * The context instance includes a transaction ID (see {@link #getTransactionId()}) and a correlator (from the HTTP header of the request
 	 * or the transaction ID if not available the header).
 	 *
 	 * @param requestContext
@@ -154,12 +184,12 @@ public class RequestContextWebFilter implements WebFilter {
 	}
 
 	/**
-	 * Get the transaction ID using a random UUID.
+	 * Get the transaction ID using the {@link #transactionIdGenerator}.
 	 *
 	 * @return transaction ID
 	 */
 	protected String getTransactionId() {
-		return UUID.randomUUID().toString();
+		return transactionIdGenerator.generate();
 	}
 
 	/**
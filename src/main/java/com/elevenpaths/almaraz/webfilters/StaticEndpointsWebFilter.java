@@ -0,0 +1,344 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.webfilters;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.boot.info.BuildProperties;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive {@link WebFilter} to serve a table of static endpoints (e.g. version, health or readiness probes)
+ * with precomputed responses. It generalizes {@link VersionWebFilter}.
+ *
+ * The endpoint is found with an exact match of the raw request path (GET and HEAD methods). The responses
+ * include an ETag header so that a request with a matching If-None-Match header gets a 304 response, and
+ * they are gzipped if the client accepts it (and the gzipped body is smaller).
+ *
+ * This web filter should be the first one in the pipeline (e.g. with order 1) so that the requests to
+ * the static endpoints skip the rest of web filters (request context, logging...). Note that load balancer
+ * health checks may be a large share of the requests.
+ *
+ * The endpoints must be configured before processing requests:
+ * <pre>
+ * new StaticEndpointsWebFilter()
+ *     .version(objectMapper, buildProperties)
+ *     .health("/health")
+ *     .health("/ready")
+ *     .metrics(latencyMetricsWebFilter);
+ * </pre>
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class StaticEndpointsWebFilter implements WebFilter {
+
+	/**
+	 * Body of the health endpoints.
+	 */
+	public static final String DEFAULT_HEALTH_BODY = "{\"status\":\"UP\"}";
+
+	/**
+	 * Gzip content encoding.
+	 */
+	private static final String GZIP = "gzip";
+
+	/**
+	 * Endpoints by raw path.
+	 */
+	private final Map<String, Endpoint> endpoints = new HashMap<>();
+
+	/**
+	 * Add an endpoint with a static body.
+	 *
+	 * @param path raw request path (e.g. /health)
+	 * @param contentType
+	 * @param body
+	 * @return this web filter
+	 */
+	public StaticEndpointsWebFilter endpoint(String path, MediaType contentType, byte[] body) {
+		endpoints.put(path, new Endpoint(contentType, body));
+		return this;
+	}
+
+	/**
+	 * Add an endpoint with a dynamic body. The body, the ETag and the gzipped body are computed for each request.
+	 *
+	 * @param path raw request path (e.g. /metrics)
+	 * @param contentType
+	 * @param body
+	 * @return this web filter
+	 */
+	public StaticEndpointsWebFilter endpoint(String path, MediaType contentType, Supplier<byte[]> body) {
+		endpoints.put(path, new Endpoint(contentType, body));
+		return this;
+	}
+
+	/**
+	 * Add the version endpoint ({@link VersionWebFilter#DEFAULT_PATH}) with the {@link BuildProperties}.
+	 *
+	 * @param objectMapper
+	 * @param buildProperties
+	 * @return this web filter
+	 */
+	public StaticEndpointsWebFilter version(ObjectMapper objectMapper, BuildProperties buildProperties) {
+		byte[] body;
+		try {
+			body = objectMapper.writeValueAsBytes(buildProperties);
+		} catch (JsonProcessingException e) {
+			body = new byte[] {};
+		}
+		return endpoint(VersionWebFilter.DEFAULT_PATH, MediaType.APPLICATION_JSON, body);
+	}
+
+	/**
+	 * Add a health endpoint with the body {@link #DEFAULT_HEALTH_BODY}.
+	 *
+	 * @param path
+	 * @return this web filter
+	 */
+	public StaticEndpointsWebFilter health(String path) {
+		return endpoint(path, MediaType.APPLICATION_JSON, DEFAULT_HEALTH_BODY.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Add the latency metrics endpoint of a {@link LatencyMetricsWebFilter} (with its path).
+	 * The {@link LatencyMetricsWebFilter} is still required in the pipeline to record the latencies.
+	 *
+	 * @param latencyMetricsWebFilter
+	 * @return this web filter
+	 */
+	public StaticEndpointsWebFilter metrics(LatencyMetricsWebFilter latencyMetricsWebFilter) {
+		return endpoint(latencyMetricsWebFilter.getPath(), MediaType.APPLICATION_JSON,
+				latencyMetricsWebFilter::marshalMetricsResponseBody);
+	}
+
+	/**
+	 * Implementation of the web filter that replies to the requests to the static endpoints.
+	 */
+	@Override
+	public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+		ServerHttpRequest request = exchange.getRequest();
+		Endpoint endpoint = endpoints.get(request.getPath().value());
+		if (endpoint == null) {
+			return chain.filter(exchange);
+		}
+		HttpMethod method = request.getMethod();
+		if (!HttpMethod.GET.equals(method) && !HttpMethod.HEAD.equals(method)) {
+			return chain.filter(exchange);
+		}
+		return renderEndpointResponse(exchange, endpoint, HttpMethod.HEAD.equals(method));
+	}
+
+	/**
+	 * Generate the response of an endpoint.
+	 *
+	 * @param exchange
+	 * @param endpoint
+	 * @param head true if the request method is HEAD (no body)
+	 * @return Mono<Void>
+	 */
+	private Mono<Void> renderEndpointResponse(ServerWebExchange exchange, Endpoint endpoint, boolean head) {
+		HttpHeaders requestHeaders = exchange.getRequest().getHeaders();
+		Representation representation = endpoint.select(acceptsGzip(requestHeaders.get(HttpHeaders.ACCEPT_ENCODING)));
+		ServerHttpResponse response = exchange.getResponse();
+		HttpHeaders headers = response.getHeaders();
+		headers.set(HttpHeaders.ETAG, representation.etag);
+		if (endpoint.isGzipAvailable()) {
+			headers.set(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+		}
+		if (matchesETag(requestHeaders.get(HttpHeaders.IF_NONE_MATCH), representation.etag)) {
+			response.setStatusCode(HttpStatus.NOT_MODIFIED);
+			return response.setComplete();
+		}
+		response.setStatusCode(HttpStatus.OK);
+		headers.setContentType(endpoint.contentType);
+		headers.setContentLength(representation.body.length);
+		if (representation.gzip) {
+			headers.set(HttpHeaders.CONTENT_ENCODING, GZIP);
+		}
+		if (head) {
+			return response.setComplete();
+		}
+		DataBuffer buffer = response.bufferFactory().wrap(ByteBuffer.wrap(representation.body).asReadOnlyBuffer());
+		return response.writeWith(Mono.just(buffer));
+	}
+
+	/**
+	 * Check if the client accepts gzip content encoding (Accept-Encoding header with gzip or * without q=0).
+	 *
+	 * @param values values of the Accept-Encoding header
+	 * @return true if gzip is accepted
+	 */
+	static boolean acceptsGzip(List<String> values) {
+		if (values == null) {
+			return false;
+		}
+		for (String value : values) {
+			int start = 0;
+			while (start < value.length()) {
+				int end = value.indexOf(',', start);
+				if (end < 0) {
+					end = value.length();
+				}
+				int parametersStart = value.indexOf(';', start);
+				int nameEnd = (parametersStart >= 0 && parametersStart < end) ? parametersStart : end;
+				String name = value.substring(start, nameEnd).trim();
+				if (GZIP.equalsIgnoreCase(name) || "*".equals(name)) {
+					return nameEnd == end || !isZeroQuality(value.substring(nameEnd + 1, end));
+				}
+				start = end + 1;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isZeroQuality(String parameters) {
+		String parameter = parameters.trim();
+		if (!parameter.startsWith("q=") && !parameter.startsWith("Q=")) {
+			return false;
+		}
+		String quality = parameter.substring(2).trim();
+		for (int i = 0; i < quality.length(); i++) {
+			char c = quality.charAt(i);
+			if (c != '0' && c != '.') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Check if the If-None-Match header matches the ETag (weak comparison).
+	 *
+	 * @param values values of the If-None-Match header
+	 * @param etag
+	 * @return true if matching
+	 */
+	static boolean matchesETag(List<String> values, String etag) {
+		if (values == null) {
+			return false;
+		}
+		for (String value : values) {
+			if (value.indexOf(etag) >= 0 || "*".equals(value.trim())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Precomputed response body with its ETag.
+	 */
+	private static class Representation {
+
+		private final byte[] body;
+
+		private final String etag;
+
+		private final boolean gzip;
+
+		Representation(byte[] body, boolean gzip) {
+			this.body = body;
+			this.etag = "\"0" + DigestUtils.md5DigestAsHex(body) + "\"";
+			this.gzip = gzip;
+		}
+
+		/**
+		 * Create the gzipped representation of a body.
+		 *
+		 * @param body
+		 * @return gzipped representation or null if it is not smaller than the body
+		 */
+		static Representation gzip(byte[] body) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream(body.length);
+			try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+				gzipOut.write(body);
+			} catch (IOException e) {
+				return null;
+			}
+			byte[] gzipped = out.toByteArray();
+			return (gzipped.length < body.length) ? new Representation(gzipped, true) : null;
+		}
+
+	}
+
+	/**
+	 * Endpoint with a static body (precomputed representations) or a dynamic body.
+	 */
+	private static class Endpoint {
+
+		private final MediaType contentType;
+
+		private final Supplier<byte[]> supplier;
+
+		private final Representation identity;
+
+		private final Representation gzipped;
+
+		Endpoint(MediaType contentType, byte[] body) {
+			this.contentType = contentType;
+			this.supplier = null;
+			this.identity = new Representation(body, false);
+			this.gzipped = Representation.gzip(body);
+		}
+
+		Endpoint(MediaType contentType, Supplier<byte[]> supplier) {
+			this.contentType = contentType;
+			this.supplier = supplier;
+			this.identity = null;
+			this.gzipped = null;
+		}
+
+		/**
+		 * Check if there may be a gzipped representation (to include the Vary header).
+		 *
+		 * @return true if gzip is available
+		 */
+		boolean isGzipAvailable() {
+			return supplier != null || gzipped != null;
+		}
+
+		/**
+		 * Select the representation for the request.
+		 *
+		 * @param acceptsGzip
+		 * @return representation
+		 */
+		Representation select(boolean acceptsGzip) {
+			if (supplier == null) {
+				return (acceptsGzip && gzipped != null) ? gzipped : identity;
+			}
+			byte[] body = supplier.get();
+			Representation gzippedBody = acceptsGzip ? Representation.gzip(body) : null;
+			return (gzippedBody != null) ? gzippedBody : new Representation(body, false);
+		}
+
+	}
+
+}
@@ -25,6 +25,7 @@ public class AlmarazConfigurationTest {
 	public void beans() {
 		AlmarazConfiguration config = new AlmarazConfiguration("/api");
 		Assertions.assertNotNull(config.getJsonSchemaValidator());
+		Assertions.assertNotNull(config.getTransactionIdGenerator());
 		Assertions.assertNotNull(config.getContextWebFilter());
 		Assertions.assertNotNull(config.getLoggerWebFilter());
 		Assertions.assertNotNull(config.getErrorWebFilter());
@@ -7,12 +7,24 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.time.Duration;
+import java.util.HashMap;
 import java.util.Map;
 
 import org.junit.jupiter.api.Test;
 
+import com.elevenpaths.almaraz.logging.ReactiveLogger;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 import reactor.test.StepVerifier;
+import reactor.util.context.Context;
 
 
 /**
@@ -21,6 +33,7 @@ import reactor.test.StepVerifier;
  * @author Juan Hernando <juanantonio.hernandolabajo@telefonica.com>
  *
  */
+@Slf4j
 public class RequestContextTest {
 
 	@Test
@@ -59,6 +72,133 @@ public class RequestContextTest {
 		assertFalse(requestContext.getBoolean("customStr"));
 	}
 
+	@Test
+	public void requestContextMap() {
+		RequestContext requestContext = new RequestContext()
+				.setTransactionId("transId")
+				.setCorrelator("corr")
+				.put("customStr", "custom");
+
+		Map<String, String> context = requestContext.getContextMap();
+		assertEquals(3, context.size());
+		assertEquals("transId", context.get(ContextField.TRANSACTION_ID));
+		assertEquals("corr", context.get(ContextField.CORRELATOR));
+		assertEquals("custom", context.get("customStr"));
+		assertFalse(context.containsKey(ContextField.OPERATION));
+		assertEquals(Map.of("trans", "transId", "corr", "corr", "customStr", "custom"), new HashMap<>(context));
+
+		context.put(ContextField.OPERATION, "op");
+		context.remove(ContextField.CORRELATOR);
+		assertEquals("op", requestContext.getOperation());
+		assertNull(requestContext.getCorrelator());
+		assertEquals(3, context.size());
+	}
+
+	@Test
+	public void requestContextMapSnapshot() {
+		RequestContext requestContext = new RequestContext()
+				.setCorrelator("corr")
+				.put("customStr", "custom");
+
+		Map<String, String> snapshot = requestContext.getContextMapSnapshot();
+		requestContext.setOperation("op").put("customStr", "other").put("customNew", "new");
+
+		assertEquals(Map.of("corr", "corr", "customStr", "custom"), new HashMap<>(snapshot));
+		assertNull(snapshot.get(ContextField.OPERATION));
+		assertThrows(UnsupportedOperationException.class, () -> snapshot.put("key", "value"));
+	}
+
+	@Test
+	public void requestContextTypedValues() {
+		RequestContext requestContext = new RequestContext()
+				.put(ContextField.LATENCY, 25L)
+				.put("customBool", true)
+				.put("customObj", new StringBuilder("obj"))
+				.put("customNumber", "12");
+
+		assertEquals(Long.valueOf(25L), requestContext.getObject(ContextField.LATENCY));
+		assertEquals(Boolean.TRUE, requestContext.getObject("customBool"));
+		assertEquals("25", requestContext.getString(ContextField.LATENCY));
+		assertEquals("true", requestContext.getString("customBool"));
+		assertEquals("obj", requestContext.getString("customObj"));
+		assertEquals(Long.valueOf(12L), requestContext.getLong("customNumber"));
+		assertNull(requestContext.getLong("customBool"));
+
+		Map<String, String> context = requestContext.getContextMap();
+		assertEquals("25", context.get(ContextField.LATENCY));
+		assertEquals(Map.of("latency", "25", "customBool", "true", "customObj", "obj", "customNumber", "12"),
+				new HashMap<>(context));
+	}
+
+	@Test
+	public void requestContextConcurrentUpdates() {
+		RequestContext requestContext = new RequestContext().setCorrelator("corr");
+
+		Flux.range(0, 10000)
+				.flatMap(i -> updateContext(requestContext, i), 64)
+				.contextWrite(Context.of(RequestContext.class, requestContext))
+				.blockLast();
+
+		assertEquals(102, requestContext.getContextMap().size());
+		for (int i = 0; i < 100; i++) {
+			assertNotNull(requestContext.getLong("custom-" + i));
+		}
+	}
+
+	private Mono<Integer> updateContext(RequestContext requestContext, int i) {
+		return Mono.fromCallable(() -> {
+					requestContext.setOperation("op-" + i);
+					requestContext.put("custom-" + (i % 100), (long) i);
+					return i;
+				})
+				.subscribeOn(Schedulers.parallel())
+				.doOnEach(ReactiveLogger.logOnNext(value -> log.debug("Value {}", value)))
+				.doOnNext(value -> assertEquals("corr", new HashMap<>(requestContext.getContextMap()).get("corr")));
+	}
+
+	@Test
+	public void requestContextEmpty() {
+		RequestContext empty = RequestContext.empty();
+		empty.setCorrelator("corr").put("customStr", "custom");
+		empty.getContextMap().put("customStr", "custom");
+
+		assertNull(empty.getCorrelator());
+		assertNull(empty.getString("customStr"));
+		assertTrue(empty.getContextMap().isEmpty());
+		assertSame(empty, RequestContext.from(Context.empty()));
+	}
+
+	@Test
+	public void requestContextDeadline() {
+		RequestContext requestContext = new RequestContext();
+		assertNull(requestContext.getDeadline());
+		assertNull(requestContext.getRemainingTime());
+
+		requestContext.setDeadline(System.nanoTime() + Duration.ofHours(1).toNanos());
+		assertTrue(requestContext.getRemainingTime().compareTo(Duration.ofMinutes(59)) > 0);
+		assertFalse(requestContext.getContextMap().containsKey("deadline"));
+
+		requestContext.setDeadline(System.nanoTime() - 1);
+		assertEquals(Duration.ZERO, requestContext.getRemainingTime());
+
+		RequestContext.empty().setDeadline(System.nanoTime());
+		assertNull(RequestContext.empty().getDeadline());
+	}
+
+	@Test
+	public void requestContextFromContextView() {
+		RequestContext requestContext = new RequestContext();
+		assertSame(requestContext, RequestContext.from(Context.of(RequestContext.class, requestContext)));
+		assertSame(RequestContext.context(), RequestContext.context());
+
+		StepVerifier.create(RequestContext.context().contextWrite(Context.of(RequestContext.class, requestContext)))
+			.expectNext(requestContext)
+			.verifyComplete();
+		StepVerifier.create(RequestContext.context())
+			.expectNext(RequestContext.empty())
+			.verifyComplete();
+	}
+
 	@Test
 	public void requestContextReactiveStream() {
 		RequestContext requestContext = new RequestContext();
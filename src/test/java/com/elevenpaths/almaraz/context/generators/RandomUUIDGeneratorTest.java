@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.context.generators;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link RandomUUIDGenerator}.
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class RandomUUIDGeneratorTest {
+
+	@Test
+	public void generate() {
+		RandomUUIDGenerator generator = new RandomUUIDGenerator();
+		Set<String> ids = new HashSet<>();
+		for (int i = 0; i < 1000; i++) {
+			String id = generator.generate();
+			UUID uuid = UUID.fromString(id);
+			Assertions.assertEquals(id, uuid.toString());
+			Assertions.assertEquals(4, uuid.version());
+			Assertions.assertEquals(2, uuid.variant());
+			ids.add(id);
+		}
+		Assertions.assertEquals(1000, ids.size());
+	}
+
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.context.generators;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link SnowflakeGenerator}.
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class SnowflakeGeneratorTest {
+
+	@Test
+	public void generate() {
+		SnowflakeGenerator generator = new SnowflakeGenerator(5);
+		long id = Long.parseLong(generator.generate());
+		Assertions.assertEquals(5, (id >>> 12) & SnowflakeGenerator.MAX_NODE_ID);
+		long timestamp = (id >>> 22) + SnowflakeGenerator.EPOCH;
+		Assertions.assertTrue(Math.abs(System.currentTimeMillis() - timestamp) < 1000);
+	}
+
+	@Test
+	public void generateUniqueAndOrdered() {
+		SnowflakeGenerator generator = new SnowflakeGenerator(1);
+		long previous = generator.nextId();
+		for (int i = 0; i < 10000; i++) {
+			long id = generator.nextId();
+			Assertions.assertTrue(id > previous);
+			previous = id;
+		}
+	}
+
+	@Test
+	public void generateConcurrently() {
+		SnowflakeGenerator generator = new SnowflakeGenerator(1);
+		Set<Long> ids = ConcurrentHashMap.newKeySet();
+		IntStream.range(0, 20000).parallel().forEach(i -> ids.add(generator.nextId()));
+		Assertions.assertEquals(20000, ids.size());
+	}
+
+	@Test
+	public void invalidNodeId() {
+		Assertions.assertThrows(IllegalArgumentException.class, () -> new SnowflakeGenerator(-1));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> new SnowflakeGenerator(SnowflakeGenerator.MAX_NODE_ID + 1));
+	}
+
+}
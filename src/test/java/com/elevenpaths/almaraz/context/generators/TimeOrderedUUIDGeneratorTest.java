@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.context.generators;
+
+import java.util.UUID;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link TimeOrderedUUIDGenerator}.
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class TimeOrderedUUIDGeneratorTest {
+
+	@Test
+	public void generate() {
+		TimeOrderedUUIDGenerator generator = new TimeOrderedUUIDGenerator();
+		long before = System.currentTimeMillis();
+		UUID uuid = UUID.fromString(generator.generate());
+		long after = System.currentTimeMillis();
+
+		Assertions.assertEquals(7, uuid.version());
+		Assertions.assertEquals(2, uuid.variant());
+		long timestamp = uuid.getMostSignificantBits() >>> 16;
+		Assertions.assertTrue(timestamp >= before && timestamp <= after);
+	}
+
+}
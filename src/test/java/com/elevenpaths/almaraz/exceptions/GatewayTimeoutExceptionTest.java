@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.exceptions;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Unit tests for {@link GatewayTimeoutException}.
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class GatewayTimeoutExceptionTest {
+
+	@Test
+	public void newGatewayTimeoutException() {
+		GatewayTimeoutException e = new GatewayTimeoutException();
+		Assertions.assertEquals(HttpStatus.GATEWAY_TIMEOUT, e.getStatus());
+		Assertions.assertEquals(ErrorCodes.GATEWAY_TIMEOUT, e.getError());
+		Assertions.assertNull(e.getReason());
+		Assertions.assertNull(e.getCause());
+		Assertions.assertNull(e.getHeaders());
+		Assertions.assertNull(e.getDetailMap());
+		Assertions.assertEquals(0, e.getStackTrace().length);
+	}
+
+}
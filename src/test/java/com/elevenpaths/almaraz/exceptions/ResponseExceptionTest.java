@@ -120,4 +120,44 @@ public class ResponseExceptionTest {
 		Assertions.assertEquals(expectedException, actualException);
 	}
 
+	@Test
+	public void clientErrorHasStackTrace() {
+		ResponseException e = new ResponseException(HttpStatus.I_AM_A_TEAPOT);
+		e.addSuppressed(new Exception("test exception"));
+		Assertions.assertTrue(e.getStackTrace().length > 0);
+		Assertions.assertEquals(1, e.getSuppressed().length);
+		Assertions.assertTrue(new NotFoundException("reason").getStackTrace().length > 0);
+		Assertions.assertTrue(new NotFoundException().getStackTrace().length > 0);
+	}
+
+	@Test
+	public void sharedIsStackless() {
+		NotFoundException e = NotFoundException.INSTANCE;
+		e.addSuppressed(new Exception("test exception"));
+		Assertions.assertEquals(0, e.getStackTrace().length);
+		Assertions.assertEquals(0, e.getSuppressed().length);
+		Assertions.assertEquals(new NotFoundException(), e);
+		Assertions.assertEquals(0, InvalidTokenException.INSTANCE.getStackTrace().length);
+		Assertions.assertEquals(0, ConflictException.INSTANCE.getStackTrace().length);
+	}
+
+	@Test
+	public void serverErrorHasStackTrace() {
+		Assertions.assertTrue(new ServerException("reason").getStackTrace().length > 0);
+		Assertions.assertTrue(new ResponseException(HttpStatus.SERVICE_UNAVAILABLE).getStackTrace().length > 0);
+	}
+
+	@Test
+	public void sharedIsImmutable() {
+		InvalidTokenException e = InvalidTokenException.INSTANCE;
+		Assertions.assertTrue(e.isShared());
+		Assertions.assertEquals(new InvalidTokenException(), e);
+		Assertions.assertThrows(UnsupportedOperationException.class, () -> e.addHeader("header1", "value"));
+		Assertions.assertThrows(UnsupportedOperationException.class, () -> e.addDetail("detail1", "value"));
+		Assertions.assertThrows(UnsupportedOperationException.class, () -> e.setHeaders(null));
+		Assertions.assertThrows(UnsupportedOperationException.class, () -> e.setDetailMap(null));
+		Assertions.assertThrows(UnsupportedOperationException.class, () -> e.getHeaders().add("header1", "value"));
+		Assertions.assertFalse(new InvalidTokenException().isShared());
+	}
+
 }
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.exceptions;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Unit tests for {@link ServiceUnavailableException}.
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class ServiceUnavailableExceptionTest {
+
+	@Test
+	public void newServiceUnavailableException() {
+		ServiceUnavailableException e = new ServiceUnavailableException();
+		Assertions.assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatus());
+		Assertions.assertEquals(ErrorCodes.SERVICE_UNAVAILABLE, e.getError());
+		Assertions.assertNull(e.getReason());
+		Assertions.assertNull(e.getCause());
+		Assertions.assertNull(e.getHeaders());
+		Assertions.assertNull(e.getDetailMap());
+		Assertions.assertEquals(0, e.getStackTrace().length);
+	}
+
+	@Test
+	public void sharedServiceUnavailableException() {
+		Assertions.assertTrue(ServiceUnavailableException.INSTANCE.isShared());
+		Assertions.assertThrows(UnsupportedOperationException.class,
+				() -> ServiceUnavailableException.INSTANCE.addHeader("Retry-After", "1"));
+	}
+
+}
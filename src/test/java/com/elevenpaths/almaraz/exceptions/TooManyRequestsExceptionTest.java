@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.exceptions;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Unit tests for {@link TooManyRequestsException}.
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class TooManyRequestsExceptionTest {
+
+	@Test
+	public void newTooManyRequestsException() {
+		TooManyRequestsException e = new TooManyRequestsException(3);
+		Assertions.assertEquals(HttpStatus.TOO_MANY_REQUESTS, e.getStatus());
+		Assertions.assertEquals(ErrorCodes.TOO_MANY_REQUESTS, e.getError());
+		Assertions.assertNull(e.getReason());
+		Assertions.assertNull(e.getCause());
+		Assertions.assertEquals("3", e.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+		Assertions.assertNull(e.getDetailMap());
+		Assertions.assertEquals(0, e.getStackTrace().length);
+	}
+}
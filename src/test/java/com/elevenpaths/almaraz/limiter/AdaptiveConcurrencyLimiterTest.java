@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.limiter;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link AdaptiveConcurrencyLimiter}.
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class AdaptiveConcurrencyLimiterTest {
+
+	@Test
+	public void tryAcquire() {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 2);
+		Assertions.assertTrue(limiter.tryAcquire());
+		Assertions.assertTrue(limiter.tryAcquire());
+		Assertions.assertFalse(limiter.tryAcquire());
+		Assertions.assertEquals(2, limiter.getInFlight());
+
+		limiter.release();
+		Assertions.assertEquals(1, limiter.getInFlight());
+		Assertions.assertTrue(limiter.tryAcquire());
+	}
+
+	@Test
+	public void releaseAdaptsLimit() {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 5, 100);
+
+		saturate(limiter, 50, TimeUnit.MILLISECONDS.toNanos(10));
+		int increasedLimit = limiter.getLimit();
+		Assertions.assertTrue(increasedLimit > 20);
+
+		saturate(limiter, 50, TimeUnit.MILLISECONDS.toNanos(100));
+		Assertions.assertTrue(limiter.getLimit() < increasedLimit);
+		Assertions.assertTrue(limiter.getLimit() >= 5);
+		Assertions.assertEquals(0, limiter.getInFlight());
+	}
+
+	@Test
+	public void releaseWithoutUsingLimit() {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 5, 100);
+		for (int i = 0; i < 100; i++) {
+			Assertions.assertTrue(limiter.tryAcquire());
+			limiter.release(TimeUnit.MILLISECONDS.toNanos(10));
+		}
+		Assertions.assertEquals(20, limiter.getLimit());
+	}
+
+	@Test
+	public void releaseConcurrently() throws InterruptedException {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 5, 100);
+		Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread(() -> {
+				for (int j = 0; j < 10000; j++) {
+					if (limiter.tryAcquire()) {
+						limiter.release(TimeUnit.MILLISECONDS.toNanos(10));
+					}
+				}
+			});
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		Assertions.assertEquals(0, limiter.getInFlight());
+		Assertions.assertTrue(limiter.getLimit() >= 5 && limiter.getLimit() <= 100);
+	}
+
+	@Test
+	public void newAdaptiveConcurrencyLimiterWithInvalidLimits() {
+		Assertions.assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimiter(0, 0, 10));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimiter(20, 5, 10));
+	}
+
+	/**
+	 * Acquire every permit and release them with the same latency, several times.
+	 */
+	private void saturate(AdaptiveConcurrencyLimiter limiter, int iterations, long latency) {
+		for (int i = 0; i < iterations; i++) {
+			int acquired = 0;
+			while (limiter.tryAcquire()) {
+				acquired++;
+			}
+			for (int j = 0; j < acquired; j++) {
+				limiter.release(latency);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.limiter;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link TokenBucketRateLimiter}.
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class TokenBucketRateLimiterTest {
+
+	@Test
+	public void tryAcquire() {
+		AtomicLong clock = new AtomicLong();
+		TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(2, Duration.ofSeconds(1), 2, 10, clock::get);
+
+		Assertions.assertEquals(0, limiter.tryAcquire("a"));
+		Assertions.assertEquals(0, limiter.tryAcquire("a"));
+		Assertions.assertEquals(TimeUnit.MILLISECONDS.toNanos(500), limiter.tryAcquire("a"));
+		Assertions.assertEquals(0, limiter.tryAcquire("b"));
+
+		clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+		Assertions.assertEquals(0, limiter.tryAcquire("a"));
+		Assertions.assertTrue(limiter.tryAcquire("a") > 0);
+
+		clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+		Assertions.assertEquals(0, limiter.tryAcquire("a"));
+		Assertions.assertEquals(0, limiter.tryAcquire("a"));
+		Assertions.assertTrue(limiter.tryAcquire("a") > 0);
+	}
+
+	@Test
+	public void tryAcquireWithMaxKeys() {
+		AtomicLong clock = new AtomicLong();
+		TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(1, Duration.ofSeconds(1), 1, 2, clock::get);
+		String c = "c";
+		String d = c;
+		for (int i = 0; TokenBucketRateLimiter.getOverflowIndex(d) == TokenBucketRateLimiter.getOverflowIndex(c); i++) {
+			d = "d" + i;
+		}
+
+		Assertions.assertEquals(0, limiter.tryAcquire("a"));
+		Assertions.assertEquals(0, limiter.tryAcquire("b"));
+		Assertions.assertEquals(0, limiter.tryAcquire(c));
+		Assertions.assertTrue(limiter.tryAcquire(c) > 0);
+		Assertions.assertEquals(0, limiter.tryAcquire(d));
+		Assertions.assertEquals(2, limiter.getKeyCount());
+
+		clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+		Assertions.assertEquals(0, limiter.tryAcquire(d));
+		Assertions.assertEquals(1, limiter.getKeyCount());
+	}
+
+	@Test
+	public void tryAcquireExpiresOncePerInterval() {
+		AtomicLong clock = new AtomicLong();
+		TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(100, Duration.ofSeconds(1), 1, 2, clock::get);
+
+		limiter.tryAcquire("a");
+		limiter.tryAcquire("b");
+		clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(20));
+		limiter.tryAcquire("c");
+		Assertions.assertEquals(1, limiter.getKeyCount());
+		limiter.tryAcquire("d");
+		Assertions.assertEquals(2, limiter.getKeyCount());
+
+		clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(20));
+		limiter.tryAcquire("e");
+		Assertions.assertEquals(2, limiter.getKeyCount());
+
+		clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+		limiter.tryAcquire("e");
+		Assertions.assertEquals(1, limiter.getKeyCount());
+	}
+
+	@Test
+	public void newTokenBucketRateLimiterWithInvalidRate() {
+		Assertions.assertThrows(IllegalArgumentException.class,
+				() -> new TokenBucketRateLimiter(0, Duration.ofSeconds(1)));
+		Assertions.assertThrows(IllegalArgumentException.class,
+				() -> new TokenBucketRateLimiter(1, Duration.ZERO));
+	}
+
+}
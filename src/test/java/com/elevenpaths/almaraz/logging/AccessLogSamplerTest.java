@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.logging;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import com.elevenpaths.almaraz.context.RequestContext;
+
+/**
+ * Unit tests for {@link AccessLogSampler}.
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class AccessLogSamplerTest {
+
+	@Test
+	public void pathRates() {
+		AccessLogSampler sampler = new AccessLogSampler(0.0)
+				.rate("/api/hot/**", 0.0)
+				.rate("/api/**", 1.0);
+
+		Assertions.assertTrue(sampler.isSampled(exchange("/api/resources"), new RequestContext()));
+		Assertions.assertFalse(sampler.isSampled(exchange("/api/hot/resources"), new RequestContext()));
+		Assertions.assertFalse(sampler.isSampled(exchange("/other"), new RequestContext()));
+	}
+
+	@Test
+	public void deterministicByCorrelator() {
+		int sampled = 0;
+		for (int i = 0; i < 10000; i++) {
+			String correlator = "test-corr-" + i;
+			boolean decision = AccessLogSampler.isSampled(0.1, correlator);
+			Assertions.assertEquals(decision, AccessLogSampler.isSampled(0.1, correlator));
+			if (decision) {
+				sampled++;
+			}
+		}
+		Assertions.assertTrue(sampled > 800 && sampled < 1200, "Sampled: " + sampled);
+	}
+
+	@Test
+	public void decisionInRequestContext() {
+		AccessLogSampler sampler = new AccessLogSampler(1.0);
+		RequestContext requestContext = new RequestContext().setSampled(false);
+		Assertions.assertFalse(sampler.isSampled(exchange("/api"), requestContext));
+
+		requestContext = new RequestContext();
+		Assertions.assertTrue(sampler.isSampled(exchange("/api"), requestContext));
+		Assertions.assertEquals(Boolean.TRUE, requestContext.getSampled());
+	}
+
+	@Test
+	public void decisionInHeader() {
+		AccessLogSampler sampler = new AccessLogSampler(1.0).trustSampledHeader(true);
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api")
+				.header(AccessLogSampler.DEFAULT_SAMPLED_HEADER, "false")
+				.build());
+		RequestContext requestContext = new RequestContext();
+		Assertions.assertFalse(sampler.isSampled(exchange, requestContext));
+		Assertions.assertEquals(Boolean.FALSE, requestContext.getSampled());
+	}
+
+	@Test
+	public void decisionInUntrustedHeader() {
+		AccessLogSampler sampler = new AccessLogSampler(0.0);
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api")
+				.header(AccessLogSampler.DEFAULT_SAMPLED_HEADER, "true")
+				.build());
+		RequestContext requestContext = new RequestContext();
+		Assertions.assertFalse(sampler.isSampled(exchange, requestContext));
+		Assertions.assertEquals(Boolean.FALSE, requestContext.getSampled());
+		Assertions.assertNull(requestContext.getContextMap().get("sampled"));
+	}
+
+	@Test
+	public void forced() {
+		AccessLogSampler sampler = new AccessLogSampler(0.0)
+				.slowThreshold(Duration.ofMillis(500));
+		MockServerWebExchange exchange = exchange("/api");
+		exchange.getResponse().setStatusCode(HttpStatus.OK);
+		Assertions.assertFalse(sampler.isForced(exchange, 10));
+		Assertions.assertTrue(sampler.isForced(exchange, 500));
+
+		exchange.getResponse().setStatusCode(HttpStatus.NOT_FOUND);
+		Assertions.assertTrue(sampler.isForced(exchange, 10));
+		Assertions.assertFalse(sampler.errorStatus(500).isForced(exchange, 10));
+	}
+
+	@Test
+	public void invalidRate() {
+		Assertions.assertThrows(IllegalArgumentException.class, () -> new AccessLogSampler(1.5));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> new AccessLogSampler(0.5).rate("/api", -1));
+	}
+
+	private MockServerWebExchange exchange(String path) {
+		return MockServerWebExchange.from(MockServerHttpRequest.get(path).build());
+	}
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.logging;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.slf4j.event.Level;
+
+import com.elevenpaths.almaraz.context.ContextField;
+import com.elevenpaths.almaraz.context.RequestContext;
+import com.elevenpaths.almaraz.utils.LoggingAppender;
+
+/**
+ * Unit tests for {@link DebugLogBuffer} and {@link DebugLogBufferPool}.
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class DebugLogBufferTest {
+
+	@Test
+	public void bufferAndFlush() {
+		DebugLogBufferPool pool = new DebugLogBufferPool(Level.INFO, 2, 1);
+		RequestContext requestContext = new RequestContext().setCorrelator("test-corr");
+		DebugLogBuffer buffer = pool.acquire(requestContext);
+		Assertions.assertSame(buffer, requestContext.getDebugLogBuffer());
+
+		List<String> written = new ArrayList<>();
+		Assertions.assertFalse(buffer.add(requestContext, Level.INFO, () -> written.add("info")));
+		Assertions.assertFalse(buffer.add(new RequestContext(), Level.DEBUG, () -> written.add("other")));
+		Assertions.assertTrue(buffer.add(requestContext, Level.DEBUG, () -> written.add("debug 1")));
+		Assertions.assertTrue(buffer.add(requestContext, Level.TRACE, () -> written.add("trace 2")));
+		Assertions.assertTrue(buffer.add(requestContext, Level.DEBUG, () -> {
+			written.add("debug 3");
+			Assertions.assertEquals("test-corr", MDC.get(ContextField.CORRELATOR));
+		}));
+		Assertions.assertEquals(2, buffer.size());
+		Assertions.assertEquals(1, buffer.getDroppedCount());
+
+		LoggingAppender.clearEvents();
+		buffer.flush();
+		Assertions.assertEquals(List.of("trace 2", "debug 3"), written);
+		Assertions.assertEquals(0, buffer.size());
+		Assertions.assertEquals(1, LoggingAppender.getEvents().size());
+		Assertions.assertNull(MDC.get(ContextField.CORRELATOR));
+	}
+
+	@Test
+	public void releaseAndReuse() {
+		DebugLogBufferPool pool = new DebugLogBufferPool(null, 4, 1);
+		RequestContext requestContext = new RequestContext();
+		DebugLogBuffer buffer = pool.acquire(requestContext);
+		List<String> written = new ArrayList<>();
+		Assertions.assertTrue(buffer.add(requestContext, Level.DEBUG, () -> written.add("debug")));
+
+		pool.release(requestContext, buffer);
+		Assertions.assertNull(requestContext.getDebugLogBuffer());
+		Assertions.assertEquals(0, buffer.size());
+		Assertions.assertEquals(1, pool.getPooledCount());
+		Assertions.assertFalse(buffer.add(requestContext, Level.DEBUG, () -> written.add("late")));
+
+		RequestContext otherContext = new RequestContext();
+		Assertions.assertSame(buffer, pool.acquire(otherContext));
+		Assertions.assertEquals(0, pool.getPooledCount());
+		buffer.flush();
+		Assertions.assertTrue(written.isEmpty());
+
+		pool.release(otherContext, buffer);
+		pool.release(otherContext, new DebugLogBuffer(Level.INFO, 4));
+		Assertions.assertEquals(1, pool.getPooledCount());
+	}
+
+	@Test
+	public void readOnlyContext() {
+		DebugLogBufferPool pool = new DebugLogBufferPool();
+		Assertions.assertNull(pool.acquire(RequestContext.empty()));
+		Assertions.assertNull(RequestContext.empty().getDebugLogBuffer());
+	}
+
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.logging;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import reactor.core.Disposable;
+
+/**
+ * Unit tests for {@link ErrorLogDeduplicator}.
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class ErrorLogDeduplicatorTest {
+
+	@Test
+	public void suppressDuplicates() {
+		ErrorLogDeduplicator deduplicator = new ErrorLogDeduplicator();
+		IllegalStateException exception = new IllegalStateException("test");
+
+		Assertions.assertEquals(0, deduplicator.record(exception, "server_error"));
+		Assertions.assertEquals(ErrorLogDeduplicator.SUPPRESSED, deduplicator.record(exception, "server_error"));
+		Assertions.assertEquals(ErrorLogDeduplicator.SUPPRESSED, deduplicator.record(exception, "server_error"));
+		Assertions.assertEquals(0, deduplicator.record(exception, "other_error"));
+		Assertions.assertEquals(0, deduplicator.record(new IllegalArgumentException("test"), "server_error"));
+		Assertions.assertEquals(3, deduplicator.size());
+	}
+
+	@Test
+	public void reportSuppressedAfterWindow() throws InterruptedException {
+		ErrorLogDeduplicator deduplicator = new ErrorLogDeduplicator(Duration.ofMillis(20), 10, 3);
+		IllegalStateException exception = new IllegalStateException("test");
+
+		Assertions.assertEquals(0, deduplicator.record(exception, "server_error"));
+		Assertions.assertEquals(ErrorLogDeduplicator.SUPPRESSED, deduplicator.record(exception, "server_error"));
+		Assertions.assertEquals(ErrorLogDeduplicator.SUPPRESSED, deduplicator.record(exception, "server_error"));
+		Thread.sleep(30);
+		Assertions.assertEquals(2, deduplicator.record(exception, "server_error"));
+	}
+
+	@Test
+	public void summarize() throws InterruptedException {
+		ErrorLogDeduplicator deduplicator = new ErrorLogDeduplicator(Duration.ofMillis(20), 10, 3);
+		IllegalStateException exception = new IllegalStateException("test");
+		deduplicator.record(exception, "server_error");
+		deduplicator.record(exception, "server_error");
+		deduplicator.record(new IllegalArgumentException("test"), "server_error");
+
+		Map<String, Long> summaries = new HashMap<>();
+		deduplicator.summarize(summaries::put);
+		Assertions.assertTrue(summaries.isEmpty());
+
+		Thread.sleep(30);
+		deduplicator.summarize(summaries::put);
+		Assertions.assertEquals(1, summaries.size());
+		String description = summaries.keySet().iterator().next();
+		Assertions.assertTrue(description.startsWith("server_error: java.lang.IllegalStateException at "));
+		Assertions.assertEquals(1, summaries.get(description).longValue());
+		Assertions.assertEquals(1, deduplicator.size());
+
+		Thread.sleep(30);
+		summaries.clear();
+		deduplicator.summarize(summaries::put);
+		Assertions.assertTrue(summaries.isEmpty());
+		Assertions.assertEquals(0, deduplicator.size());
+	}
+
+	@Test
+	public void recordAfterRemoval() throws InterruptedException {
+		ErrorLogDeduplicator deduplicator = new ErrorLogDeduplicator(Duration.ofMillis(20), 10, 3);
+		IllegalStateException exception = new IllegalStateException("test");
+		deduplicator.record(exception, "server_error");
+
+		Thread.sleep(30);
+		deduplicator.summarize((error, suppressed) -> Assertions.fail("Unexpected summary"));
+		Assertions.assertEquals(0, deduplicator.size());
+
+		Assertions.assertEquals(0, deduplicator.record(exception, "server_error"));
+		Assertions.assertEquals(ErrorLogDeduplicator.SUPPRESSED, deduplicator.record(exception, "server_error"));
+		Assertions.assertEquals(1, deduplicator.size());
+	}
+
+	@Test
+	public void recordConcurrentlyWithSummaries() throws InterruptedException {
+		ErrorLogDeduplicator deduplicator = new ErrorLogDeduplicator(Duration.ofNanos(1), 10, 3);
+		IllegalStateException exception = new IllegalStateException("test");
+		AtomicLong reported = new AtomicLong();
+		int occurrences = 10000;
+
+		Thread summarizer = new Thread(() -> {
+			while (!Thread.currentThread().isInterrupted()) {
+				deduplicator.summarize((error, suppressed) -> reported.addAndGet(suppressed));
+			}
+		});
+		summarizer.start();
+		for (int i = 0; i < occurrences; i++) {
+			long suppressed = deduplicator.record(exception, "server_error");
+			reported.addAndGet((suppressed == ErrorLogDeduplicator.SUPPRESSED) ? 0 : suppressed + 1);
+		}
+		summarizer.interrupt();
+		summarizer.join();
+		Thread.sleep(1);
+		deduplicator.summarize((error, suppressed) -> reported.addAndGet(suppressed));
+
+		Assertions.assertEquals(occurrences, reported.get());
+	}
+
+	@Test
+	public void scheduleSummaries() throws InterruptedException {
+		ErrorLogDeduplicator deduplicator = new ErrorLogDeduplicator(Duration.ofMillis(20), 10, 3);
+		IllegalStateException exception = new IllegalStateException("test");
+		Map<String, Long> summaries = new ConcurrentHashMap<>();
+		Disposable task = deduplicator.scheduleSummaries(summaries::put);
+		deduplicator.record(exception, "server_error");
+		deduplicator.record(exception, "server_error");
+		deduplicator.record(exception, "server_error");
+
+		Thread.sleep(100);
+		task.dispose();
+		Assertions.assertEquals(1, summaries.size());
+		Assertions.assertEquals(2, summaries.values().iterator().next().longValue());
+		Assertions.assertEquals(0, deduplicator.size());
+	}
+
+	@Test
+	public void boundedFingerprints() {
+		ErrorLogDeduplicator deduplicator = new ErrorLogDeduplicator(null, 2, 3);
+		IllegalStateException exception = new IllegalStateException("test");
+		deduplicator.record(exception, "error1");
+		deduplicator.record(exception, "error2");
+
+		Assertions.assertEquals(0, deduplicator.record(exception, "error3"));
+		Assertions.assertEquals(0, deduplicator.record(exception, "error3"));
+		Assertions.assertEquals(2, deduplicator.size());
+	}
+
+}
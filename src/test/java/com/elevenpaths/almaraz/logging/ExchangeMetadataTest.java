@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.logging;
+
+import java.net.InetSocketAddress;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+
+/**
+ * Unit tests for {@link ExchangeMetadata}.
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class ExchangeMetadataTest {
+
+	@Test
+	public void from() {
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest
+				.post("/api/test?key=value")
+				.remoteAddress(new InetSocketAddress("127.0.0.1", 1000)));
+
+		ExchangeMetadata metadata = ExchangeMetadata.from(exchange);
+
+		Assertions.assertEquals("POST", metadata.getMethod());
+		Assertions.assertEquals("/api/test", metadata.getPath());
+		Assertions.assertEquals("key=value", metadata.getQuery());
+		Assertions.assertEquals("/127.0.0.1", metadata.getRemoteAddress());
+		Assertions.assertSame(metadata, exchange.getAttribute(ExchangeMetadata.ATTRIBUTE));
+	}
+
+	@Test
+	public void fromIsCachedInMutatedExchange() {
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/test"));
+		ExchangeMetadata metadata = ExchangeMetadata.from(exchange);
+
+		ServerWebExchange mutated = exchange.mutate()
+				.request(exchange.getRequest().mutate().path("/test").build())
+				.build();
+
+		Assertions.assertSame(metadata, ExchangeMetadata.from(mutated));
+	}
+
+	@Test
+	public void fromWithoutRemoteAddress() {
+		ExchangeMetadata metadata = ExchangeMetadata.from(
+				MockServerWebExchange.from(MockServerHttpRequest.get("/api/test")));
+
+		Assertions.assertEquals("GET", metadata.getMethod());
+		Assertions.assertNull(metadata.getQuery());
+		Assertions.assertNull(metadata.getRemoteAddress());
+	}
+
+	@Test
+	public void getRemoteAddressFromXFF() {
+		Assertions.assertNull(ExchangeMetadata.getRemoteAddressFromXFF(null));
+		Assertions.assertNull(ExchangeMetadata.getRemoteAddressFromXFF(xff()));
+		Assertions.assertNull(ExchangeMetadata.getRemoteAddressFromXFF(xff(" , ,")));
+		Assertions.assertEquals("10.0.0.1", ExchangeMetadata.getRemoteAddressFromXFF(xff("10.0.0.1")));
+		Assertions.assertEquals("10.0.0.1", ExchangeMetadata.getRemoteAddressFromXFF(xff(" 10.0.0.1 , 10.0.0.2")));
+		Assertions.assertEquals("10.0.0.2", ExchangeMetadata.getRemoteAddressFromXFF(xff(",  ,10.0.0.2")));
+		Assertions.assertEquals("10.0.0.3", ExchangeMetadata.getRemoteAddressFromXFF(xff("", "10.0.0.3,10.0.0.4")));
+	}
+
+	@Test
+	public void getRemoteAddressFromTCP() {
+		Assertions.assertNull(ExchangeMetadata.getRemoteAddressFromTCP(null));
+		Assertions.assertNull(ExchangeMetadata.getRemoteAddressFromTCP(
+				InetSocketAddress.createUnresolved("unknown", 1000)));
+		Assertions.assertEquals("/127.0.0.1", ExchangeMetadata.getRemoteAddressFromTCP(
+				new InetSocketAddress("127.0.0.1", 1000)));
+	}
+
+	private HttpHeaders xff(String... values) {
+		HttpHeaders headers = new HttpHeaders();
+		for (String value : values) {
+			headers.add(MDCServerWebExchange.X_FORWARDED_FOR_HEADER, value);
+		}
+		return headers;
+	}
+
+}
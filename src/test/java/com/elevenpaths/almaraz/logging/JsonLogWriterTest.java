@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.logging;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.elevenpaths.almaraz.context.ContextField;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Unit tests for {@link JsonLogWriter}.
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class JsonLogWriterTest {
+
+	@Test
+	public void writeRecord() throws IOException {
+		Map<String, String> fields = new LinkedHashMap<>();
+		fields.put(ContextField.CORRELATOR, "test-corr");
+		fields.put(ContextField.STATUS, "200");
+		fields.put(ContextField.LATENCY, "15");
+		fields.put("custom", "value");
+		byte[] record = JsonLogWriter.get()
+				.begin(1577836800123L, "INFO", "test-logger")
+				.fields(fields)
+				.field(JsonLogWriter.MESSAGE, "Response")
+				.field(ContextField.USER, null)
+				.end()
+				.toByteArray();
+
+		String expected = "{\"time\":\"2020-01-01T00:00:00.123Z\",\"lvl\":\"INFO\",\"logger\":\"test-logger\","
+				+ "\"corr\":\"test-corr\",\"status\":200,\"latency\":15,\"custom\":\"value\",\"msg\":\"Response\"}\n";
+		Assertions.assertEquals(expected, new String(record, StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void escapeValues() throws IOException {
+		String value = "quote\" backslash\\ line\n tab\t ctrl\u0001 ñ € 😀";
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		JsonLogWriter writer = JsonLogWriter.get()
+				.begin(0, "INFO", "test-logger")
+				.field("key \"x\"", value)
+				.field(ContextField.STATUS, "not-a-number")
+				.end();
+		writer.writeTo(out);
+		Assertions.assertEquals(writer.size(), out.size());
+
+		JsonNode node = new ObjectMapper().readTree(out.toByteArray());
+		Assertions.assertEquals("1970-01-01T00:00:00.000Z", node.get(JsonLogWriter.TIME).asText());
+		Assertions.assertEquals(value, node.get("key \"x\"").asText());
+		Assertions.assertEquals("not-a-number", node.get(ContextField.STATUS).asText());
+	}
+
+	@Test
+	public void reuseBuffer() {
+		JsonLogWriter writer = JsonLogWriter.get();
+		StringBuilder longValue = new StringBuilder();
+		for (int i = 0; i < 10000; i++) {
+			longValue.append("0123456789");
+		}
+		writer.begin(0, "INFO", "test-logger").field(JsonLogWriter.MESSAGE, longValue.toString()).end();
+		Assertions.assertTrue(writer.size() > 100000);
+
+		writer.begin(0, "INFO", "test-logger").end();
+		Assertions.assertEquals("{\"time\":\"1970-01-01T00:00:00.000Z\",\"lvl\":\"INFO\",\"logger\":\"test-logger\"}\n",
+				new String(writer.toByteArray(), StandardCharsets.UTF_8));
+		Assertions.assertSame(writer, JsonLogWriter.get());
+	}
+
+}
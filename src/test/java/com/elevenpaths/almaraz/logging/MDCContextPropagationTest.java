@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.logging;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+import com.elevenpaths.almaraz.context.ContextField;
+import com.elevenpaths.almaraz.context.RequestContext;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
+
+/**
+ * Unit tests for {@link MDCContextPropagation}.
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class MDCContextPropagationTest {
+
+	@AfterEach
+	public void disable() {
+		MDCContextPropagation.disable();
+	}
+
+	@Test
+	public void propagateContextToMDC() {
+		MDCContextPropagation.enable();
+		Assertions.assertTrue(MDCContextPropagation.isEnabled());
+
+		RequestContext requestContext = new RequestContext().setCorrelator("test-corr");
+		AtomicReference<String> correlator = new AtomicReference<>();
+		AtomicReference<RequestContext> current = new AtomicReference<>();
+
+		Mono.just("test")
+				.publishOn(Schedulers.parallel())
+				.doOnNext(value -> {
+					correlator.set(MDC.get(ContextField.CORRELATOR));
+					current.set(RequestContextThreadLocalAccessor.current());
+				})
+				.contextWrite(Context.of(RequestContext.class, requestContext))
+				.block();
+
+		Assertions.assertEquals("test-corr", correlator.get());
+		Assertions.assertSame(requestContext, current.get());
+	}
+
+	@Test
+	public void reactiveLoggerKeepsContext() {
+		MDCContextPropagation.enable();
+
+		RequestContext requestContext = new RequestContext().setCorrelator("test-corr");
+		AtomicReference<String> correlator = new AtomicReference<>();
+		AtomicReference<String> extra = new AtomicReference<>("not-cleared");
+
+		Mono.just("test")
+				.publishOn(Schedulers.parallel())
+				.doOnEach(ReactiveLogger.logOnNext(value -> MDC.put("extra", value)))
+				.doOnNext(value -> {
+					correlator.set(MDC.get(ContextField.CORRELATOR));
+					extra.set(MDC.get("extra"));
+				})
+				.contextWrite(Context.of(RequestContext.class, requestContext))
+				.block();
+
+		Assertions.assertEquals("test-corr", correlator.get());
+		Assertions.assertNull(extra.get());
+	}
+
+	@Test
+	public void disabled() {
+		Assertions.assertFalse(MDCContextPropagation.isEnabled());
+		AtomicReference<String> correlator = new AtomicReference<>("not-propagated");
+
+		Mono.just("test")
+				.publishOn(Schedulers.parallel())
+				.doOnNext(value -> correlator.set(MDC.get(ContextField.CORRELATOR)))
+				.contextWrite(Context.of(RequestContext.class, new RequestContext().setCorrelator("test-corr")))
+				.block();
+
+		Assertions.assertNull(correlator.get());
+	}
+
+}
@@ -5,13 +5,21 @@
 package com.elevenpaths.almaraz.logging;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.event.Level;
 
+import com.elevenpaths.almaraz.context.ContextField;
 import com.elevenpaths.almaraz.context.RequestContext;
+import com.elevenpaths.almaraz.utils.LoggingAppender;
 
+import ch.qos.logback.classic.spi.ILoggingEvent;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
@@ -85,4 +93,112 @@ public class ReactiveLoggerTest {
 		Assertions.assertEquals(true, map.get("logged"));
 	}
 
+	@Test
+	public void logOnNextLevelDisabled() {
+		Logger logger = LoggerFactory.getLogger(ReactiveLoggerTest.class);
+		AtomicBoolean evaluated = new AtomicBoolean();
+		LoggingAppender.clearEvents();
+
+		String result = Mono.just("test")
+				.doOnEach(ReactiveLogger.logOnNext(logger, Level.DEBUG, value -> evaluated.set(true)))
+				.doOnEach(ReactiveLogger.logOnNext(logger, Level.TRACE, "Next: {}", value -> {
+					evaluated.set(true);
+					return value;
+				}))
+				.contextWrite(Context.of(RequestContext.class, new RequestContext()))
+				.block();
+
+		Assertions.assertEquals("test", result);
+		Assertions.assertFalse(evaluated.get());
+		Assertions.assertTrue(LoggingAppender.getEvents().isEmpty());
+	}
+
+	@Test
+	public void logOnNextLevelEnabled() {
+		Logger logger = LoggerFactory.getLogger(ReactiveLoggerTest.class);
+		LoggingAppender.clearEvents();
+
+		Mono.just("test")
+				.doOnEach(ReactiveLogger.logOnNext(logger, Level.INFO, "Next: {}", value -> value.toUpperCase()))
+				.contextWrite(Context.of(RequestContext.class, new RequestContext().setCorrelator("test-corr")))
+				.block();
+
+		List<ILoggingEvent> events = LoggingAppender.getEvents();
+		Assertions.assertEquals(1, events.size());
+		Assertions.assertEquals("Next: TEST", events.get(0).getFormattedMessage());
+		Assertions.assertEquals("test-corr", events.get(0).getMDCPropertyMap().get(ContextField.CORRELATOR));
+	}
+
+	@Test
+	public void logOnCompleteLazyArguments() {
+		Logger logger = LoggerFactory.getLogger(ReactiveLoggerTest.class);
+		AtomicBoolean evaluated = new AtomicBoolean();
+		LoggingAppender.clearEvents();
+
+		Flux.just("test1", "test2")
+				.doOnEach(ReactiveLogger.logOnComplete(logger, Level.DEBUG, "Complete: {}", () -> {
+					evaluated.set(true);
+					return "debug";
+				}))
+				.doOnEach(ReactiveLogger.logOnComplete(logger, Level.INFO, "Complete: {}", () -> "info"))
+				.contextWrite(Context.of(RequestContext.class, new RequestContext()))
+				.blockLast();
+
+		Assertions.assertFalse(evaluated.get());
+		List<ILoggingEvent> events = LoggingAppender.getEvents();
+		Assertions.assertEquals(1, events.size());
+		Assertions.assertEquals("Complete: info", events.get(0).getFormattedMessage());
+	}
+
+	@Test
+	public void logOnErrorLevel() {
+		Logger logger = LoggerFactory.getLogger(ReactiveLoggerTest.class);
+		AtomicBoolean logged = new AtomicBoolean();
+
+		StepVerifier.create(Mono.error(new RuntimeException("test error"))
+					.doOnEach(ReactiveLogger.logOnError(logger, Level.ERROR, e -> logged.set(true))))
+			.expectError(RuntimeException.class)
+			.verify();
+
+		Assertions.assertTrue(logged.get());
+	}
+
+	@Test
+	public void logLevel() {
+		Logger logger = LoggerFactory.getLogger(ReactiveLoggerTest.class);
+		LoggingAppender.clearEvents();
+
+		StepVerifier.create(ReactiveLogger.log(logger, Level.WARN, "Warn: {} {}", () -> "a", () -> 1)
+					.contextWrite(Context.of(RequestContext.class, new RequestContext())))
+			.verifyComplete();
+
+		List<ILoggingEvent> events = LoggingAppender.getEvents();
+		Assertions.assertEquals(1, events.size());
+		Assertions.assertEquals("Warn: a 1", events.get(0).getFormattedMessage());
+	}
+
+	@Test
+	public void logOnNextBuffered() {
+		ch.qos.logback.classic.Logger logger = (ch.qos.logback.classic.Logger) LoggerFactory.getLogger("test-buffered");
+		logger.setLevel(ch.qos.logback.classic.Level.DEBUG);
+		RequestContext requestContext = new RequestContext().setCorrelator("test-corr");
+		DebugLogBuffer buffer = new DebugLogBufferPool().acquire(requestContext);
+		LoggingAppender.clearEvents();
+
+		Flux.just("test1", "test2")
+				.doOnEach(ReactiveLogger.logOnNext(logger, Level.DEBUG, "Next: {}", value -> value))
+				.contextWrite(Context.of(RequestContext.class, requestContext))
+				.blockLast();
+
+		Assertions.assertEquals(0, LoggingAppender.getEvents().size());
+		Assertions.assertEquals(2, buffer.size());
+
+		buffer.flush();
+		List<ILoggingEvent> events = LoggingAppender.getEvents();
+		Assertions.assertEquals(2, events.size());
+		Assertions.assertEquals("Next: test1", events.get(0).getFormattedMessage());
+		Assertions.assertEquals("Next: test2", events.get(1).getFormattedMessage());
+		Assertions.assertEquals("test-corr", events.get(1).getMDCPropertyMap().get(ContextField.CORRELATOR));
+	}
+
 }
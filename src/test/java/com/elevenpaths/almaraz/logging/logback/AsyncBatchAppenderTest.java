@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.logging.logback;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.elevenpaths.almaraz.logging.logback.AsyncBatchAppender.OverflowPolicy;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.AppenderBase;
+import ch.qos.logback.core.read.ListAppender;
+
+/**
+ * Unit tests for {@link AsyncBatchAppender}.
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class AsyncBatchAppenderTest {
+
+	private final LoggerContext loggerContext = new LoggerContext();
+
+	private final Logger logger = loggerContext.getLogger(AsyncBatchAppenderTest.class);
+
+	@Test
+	public void appendAll() {
+		ListAppender<ILoggingEvent> listAppender = startAppender(new ListAppender<>());
+		AsyncBatchAppender appender = createAppender(listAppender, 16, OverflowPolicy.BLOCK);
+		appender.start();
+		Assertions.assertTrue(appender.isStarted());
+
+		for (int i = 0; i < 100; i++) {
+			appender.doAppend(createEvent(Level.INFO, "test " + i, Map.of("corr", "test-corr")));
+		}
+		appender.stop();
+
+		Assertions.assertEquals(100, listAppender.list.size());
+		Assertions.assertEquals("test 0", listAppender.list.get(0).getFormattedMessage());
+		Assertions.assertEquals("test 99", listAppender.list.get(99).getFormattedMessage());
+		Assertions.assertEquals("test-corr", listAppender.list.get(99).getMDCPropertyMap().get("corr"));
+		Assertions.assertEquals(0, appender.getDroppedCount());
+		Assertions.assertFalse(listAppender.isStarted());
+	}
+
+	@Test
+	public void dropWhenFull() throws InterruptedException {
+		CountDownLatch release = new CountDownLatch(1);
+		ListAppender<ILoggingEvent> listAppender = startAppender(new BlockingListAppender(release));
+		AsyncBatchAppender appender = createAppender(listAppender, 4, OverflowPolicy.DROP);
+		appender.start();
+
+		for (int i = 0; i < 20; i++) {
+			appender.doAppend(createEvent(Level.INFO, "test " + i, null));
+		}
+		release.countDown();
+		appender.stop();
+
+		Assertions.assertTrue(appender.getDroppedCount() > 0);
+		Assertions.assertEquals(20, listAppender.list.size() + appender.getDroppedCount());
+	}
+
+	@Test
+	public void sampleWhenHalfFull() throws InterruptedException {
+		CountDownLatch release = new CountDownLatch(1);
+		ListAppender<ILoggingEvent> listAppender = startAppender(new BlockingListAppender(release));
+		AsyncBatchAppender appender = createAppender(listAppender, 64, OverflowPolicy.SAMPLE);
+		appender.setSampleRate(2);
+		appender.start();
+
+		for (int i = 0; i < 40; i++) {
+			appender.doAppend(createEvent(Level.DEBUG, "test " + i, null));
+		}
+		appender.doAppend(createEvent(Level.ERROR, "error", null));
+		release.countDown();
+		appender.stop();
+
+		Assertions.assertTrue(appender.getSampledOutCount() > 0);
+		Assertions.assertEquals(0, appender.getDroppedCount());
+		Assertions.assertEquals(41, listAppender.list.size() + appender.getSampledOutCount());
+		Assertions.assertEquals("error", listAppender.list.get(listAppender.list.size() - 1).getFormattedMessage());
+	}
+
+	@Test
+	public void snapshotMdc() {
+		CountDownLatch release = new CountDownLatch(1);
+		ListAppender<ILoggingEvent> listAppender = startAppender(new BlockingListAppender(release));
+		AsyncBatchAppender appender = createAppender(listAppender, 16, OverflowPolicy.BLOCK);
+		appender.start();
+
+		Map<String, String> mdc = new HashMap<>();
+		mdc.put("user", "test-user");
+		appender.doAppend(createEvent(Level.INFO, "test", mdc));
+		mdc.put("user", "other-user");
+		release.countDown();
+		appender.stop();
+
+		Assertions.assertEquals(1, listAppender.list.size());
+		Assertions.assertEquals("test-user", listAppender.list.get(0).getMDCPropertyMap().get("user"));
+	}
+
+	@Test
+	public void noAttachedAppenders() {
+		AsyncBatchAppender appender = new AsyncBatchAppender();
+		appender.setContext(loggerContext);
+		appender.start();
+		Assertions.assertFalse(appender.isStarted());
+	}
+
+	private <T extends AppenderBase<ILoggingEvent>> T startAppender(T appender) {
+		appender.setContext(loggerContext);
+		appender.setName("LIST");
+		appender.start();
+		return appender;
+	}
+
+	private AsyncBatchAppender createAppender(ListAppender<ILoggingEvent> listAppender, int capacity,
+			OverflowPolicy overflowPolicy) {
+		AsyncBatchAppender appender = new AsyncBatchAppender();
+		appender.setContext(loggerContext);
+		appender.setName("ASYNC");
+		appender.setCapacity(capacity);
+		appender.setOverflowPolicy(overflowPolicy);
+		appender.addAppender(listAppender);
+		return appender;
+	}
+
+	private ILoggingEvent createEvent(Level level, String message, Map<String, String> mdc) {
+		LoggingEvent event = new LoggingEvent(Logger.class.getName(), logger, level, message, null, null);
+		if (mdc != null) {
+			event.setMDCPropertyMap(mdc);
+		}
+		return event;
+	}
+
+	/**
+	 * List appender that blocks the first event until the latch is released.
+	 */
+	private static class BlockingListAppender extends ListAppender<ILoggingEvent> {
+
+		private final CountDownLatch release;
+
+		BlockingListAppender(CountDownLatch release) {
+			this.release = release;
+		}
+
+		@Override
+		protected void append(ILoggingEvent event) {
+			try {
+				release.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			super.append(event);
+		}
+
+	}
+
+}
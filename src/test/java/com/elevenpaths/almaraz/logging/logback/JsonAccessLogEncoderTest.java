@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.logging.logback;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.elevenpaths.almaraz.context.ContextField;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.LoggingEvent;
+
+/**
+ * Unit tests for {@link JsonAccessLogEncoder}.
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class JsonAccessLogEncoderTest {
+
+	@Test
+	public void encode() throws IOException {
+		LoggerContext loggerContext = new LoggerContext();
+		Logger logger = loggerContext.getLogger("test-logger");
+		LoggingEvent event = new LoggingEvent(Logger.class.getName(), logger, Level.INFO, "Response {}",
+				new IllegalStateException("test-exception"), new Object[] { "test-arg" });
+		event.setMDCPropertyMap(Map.of(ContextField.CORRELATOR, "test-corr", ContextField.STATUS, "200"));
+		event.setTimeStamp(1577836800000L);
+
+		JsonAccessLogEncoder encoder = new JsonAccessLogEncoder();
+		encoder.setContext(loggerContext);
+		encoder.start();
+		Assertions.assertEquals(0, encoder.headerBytes().length);
+		Assertions.assertEquals(0, encoder.footerBytes().length);
+
+		JsonNode node = new ObjectMapper().readTree(encoder.encode(event));
+		Assertions.assertEquals("2020-01-01T00:00:00.000Z", node.get("time").asText());
+		Assertions.assertEquals("INFO", node.get("lvl").asText());
+		Assertions.assertEquals("test-logger", node.get("logger").asText());
+		Assertions.assertEquals("test-corr", node.get(ContextField.CORRELATOR).asText());
+		Assertions.assertEquals(200, node.get(ContextField.STATUS).asInt());
+		Assertions.assertTrue(node.get(ContextField.STATUS).isNumber());
+		Assertions.assertEquals("Response test-arg", node.get("msg").asText());
+		Assertions.assertTrue(node.get("exception").asText().contains("test-exception"));
+	}
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.logging.logback;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.elevenpaths.almaraz.context.ContextField;
+import com.elevenpaths.almaraz.context.RequestContext;
+
+import ch.qos.logback.classic.LoggerContext;
+
+/**
+ * Unit tests for {@link RequestContextMDCAdapter} and {@link RequestContextLogbackServiceProvider}.
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class RequestContextMDCAdapterTest {
+
+	@Test
+	public void bindContextMap() {
+		RequestContextMDCAdapter adapter = new RequestContextMDCAdapter();
+		RequestContext requestContext = new RequestContext().setCorrelator("test-corr");
+		adapter.bind(requestContext);
+
+		Assertions.assertEquals("test-corr", adapter.get(ContextField.CORRELATOR));
+		Assertions.assertEquals(Map.of("corr", "test-corr"), adapter.getPropertyMap());
+
+		Map<String, String> propertyMap = adapter.getPropertyMap();
+		requestContext.setOperation("test-op");
+		Assertions.assertNull(propertyMap.get(ContextField.OPERATION));
+		Assertions.assertEquals("test-op", adapter.getPropertyMap().get(ContextField.OPERATION));
+
+		adapter.unbind();
+		Assertions.assertNull(adapter.get(ContextField.CORRELATOR));
+	}
+
+	@Test
+	public void overlay() {
+		RequestContextMDCAdapter adapter = new RequestContextMDCAdapter();
+		RequestContext requestContext = new RequestContext().setCorrelator("test-corr");
+		adapter.bind(requestContext);
+		adapter.put(ContextField.STATUS, "200");
+
+		Assertions.assertEquals(Map.of("corr", "test-corr", "status", "200"), adapter.getPropertyMap());
+		Assertions.assertEquals(Map.of("corr", "test-corr", "status", "200"), adapter.getCopyOfContextMap());
+		Assertions.assertNull(requestContext.getString(ContextField.STATUS));
+
+		adapter.clear();
+		adapter.unbind();
+	}
+
+	@Test
+	public void overlayView() {
+		RequestContextMDCAdapter adapter = new RequestContextMDCAdapter();
+		RequestContext requestContext = new RequestContext().setCorrelator("test-corr").setOperation("test-op");
+		adapter.bind(requestContext);
+		adapter.put(ContextField.OPERATION, "other-op");
+		adapter.put(ContextField.STATUS, "200");
+
+		Map<String, String> propertyMap = adapter.getPropertyMap();
+		Assertions.assertEquals(Map.of("corr", "test-corr", "op", "other-op", "status", "200"), propertyMap);
+		Assertions.assertEquals(3, propertyMap.size());
+		Assertions.assertEquals("other-op", propertyMap.get(ContextField.OPERATION));
+		Assertions.assertThrows(UnsupportedOperationException.class, () -> propertyMap.put("key", "value"));
+
+		requestContext.setUser("test-user");
+		Assertions.assertNull(propertyMap.get(ContextField.USER));
+		Assertions.assertEquals(3, propertyMap.size());
+
+		adapter.clear();
+		adapter.unbind();
+	}
+
+	@Test
+	public void serviceProvider() {
+		RequestContextLogbackServiceProvider provider = new RequestContextLogbackServiceProvider();
+		provider.initialize();
+		Assertions.assertTrue(provider.getMDCAdapter() instanceof RequestContextMDCAdapter);
+		LoggerContext loggerContext = (LoggerContext) provider.getLoggerFactory();
+		Assertions.assertSame(provider.getMDCAdapter(), loggerContext.getMDCAdapter());
+		Assertions.assertNotNull(provider.getMarkerFactory());
+		loggerContext.stop();
+	}
+
+}
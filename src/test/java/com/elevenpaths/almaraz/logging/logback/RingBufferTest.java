@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.logging.logback;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link RingBuffer}.
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class RingBufferTest {
+
+	@Test
+	public void offerAndPoll() {
+		RingBuffer<String> buffer = new RingBuffer<>(3);
+		Assertions.assertEquals(4, buffer.capacity());
+		Assertions.assertNull(buffer.poll());
+
+		Assertions.assertTrue(buffer.offer("a"));
+		Assertions.assertTrue(buffer.offer("b"));
+		Assertions.assertTrue(buffer.offer("c"));
+		Assertions.assertTrue(buffer.offer("d"));
+		Assertions.assertFalse(buffer.offer("e"));
+		Assertions.assertEquals(4, buffer.size());
+
+		Assertions.assertEquals("a", buffer.poll());
+		Assertions.assertTrue(buffer.offer("e"));
+		Assertions.assertEquals("b", buffer.poll());
+		Assertions.assertEquals("c", buffer.poll());
+		Assertions.assertEquals("d", buffer.poll());
+		Assertions.assertEquals("e", buffer.poll());
+		Assertions.assertNull(buffer.poll());
+		Assertions.assertEquals(0, buffer.size());
+	}
+
+	@Test
+	public void invalidCapacity() {
+		Assertions.assertThrows(IllegalArgumentException.class, () -> new RingBuffer<>(0));
+	}
+
+	@Test
+	public void concurrentProducers() throws InterruptedException {
+		int producers = 4;
+		int elements = 10000;
+		RingBuffer<Integer> buffer = new RingBuffer<>(64);
+		ExecutorService executor = Executors.newFixedThreadPool(producers);
+		CountDownLatch latch = new CountDownLatch(producers);
+		for (int p = 0; p < producers; p++) {
+			executor.execute(() -> {
+				for (int i = 0; i < elements; i++) {
+					while (!buffer.offer(i)) {
+						Thread.onSpinWait();
+					}
+				}
+				latch.countDown();
+			});
+		}
+		long sum = 0;
+		int received = 0;
+		while (received < producers * elements) {
+			Integer element = buffer.poll();
+			if (element != null) {
+				sum += element;
+				received++;
+			}
+		}
+		Assertions.assertTrue(latch.await(10, TimeUnit.SECONDS));
+		executor.shutdown();
+		Assertions.assertEquals((long) producers * elements * (elements - 1) / 2, sum);
+		Assertions.assertNull(buffer.poll());
+	}
+
+}
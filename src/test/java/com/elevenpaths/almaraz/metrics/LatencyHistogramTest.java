@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link LatencyHistogram}.
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class LatencyHistogramTest {
+
+	@Test
+	public void indexOf() {
+		for (long value = 0; value < LatencyHistogram.SUB_BUCKETS; value++) {
+			Assertions.assertEquals(value, LatencyHistogram.indexOf(value));
+			Assertions.assertEquals(value, LatencyHistogram.highestValueOf((int) value));
+		}
+		int previous = LatencyHistogram.indexOf(LatencyHistogram.SUB_BUCKETS - 1);
+		for (long value = LatencyHistogram.SUB_BUCKETS; value < 1_000_000; value++) {
+			int index = LatencyHistogram.indexOf(value);
+			Assertions.assertTrue(index == previous || index == previous + 1);
+			Assertions.assertTrue(LatencyHistogram.highestValueOf(index) >= value);
+			Assertions.assertTrue(LatencyHistogram.highestValueOf(index - 1) < value);
+			previous = index;
+		}
+	}
+
+	@Test
+	public void relativeError() {
+		for (long value = 1; value < LatencyHistogram.MAX_VALUE; value = value * 3 + 1) {
+			long highest = LatencyHistogram.highestValueOf(LatencyHistogram.indexOf(value));
+			Assertions.assertTrue((highest - value) / (double) value < 0.032);
+		}
+	}
+
+	@Test
+	public void percentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 1; i <= 1000; i++) {
+			histogram.record(i, TimeUnit.MILLISECONDS);
+		}
+		LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+		Assertions.assertEquals(1000, snapshot.getCount());
+		Assertions.assertEquals(1_000_000, snapshot.getMaxMicros());
+		assertApproximately(500_000, snapshot.getValueAtPercentile(50.0));
+		assertApproximately(900_000, snapshot.getValueAtPercentile(90.0));
+		assertApproximately(990_000, snapshot.getValueAtPercentile(99.0));
+		assertApproximately(999_000, snapshot.getValueAtPercentile(99.9));
+		Assertions.assertEquals(1_000_000, snapshot.getValueAtPercentile(100.0));
+	}
+
+	@Test
+	public void percentilesEmpty() {
+		LatencyHistogram.Snapshot snapshot = new LatencyHistogram().snapshot();
+		Assertions.assertEquals(0, snapshot.getCount());
+		Assertions.assertEquals(0, snapshot.getValueAtPercentile(99.0));
+	}
+
+	@Test
+	public void recordOutOfRange() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.recordMicros(-1);
+		histogram.record(2, TimeUnit.HOURS);
+		LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+		Assertions.assertEquals(2, snapshot.getCount());
+		Assertions.assertEquals(0, snapshot.getValueAtPercentile(50.0));
+		Assertions.assertEquals(LatencyHistogram.MAX_VALUE, snapshot.getMaxMicros());
+		Assertions.assertEquals(LatencyHistogram.MAX_VALUE, snapshot.getValueAtPercentile(100.0));
+	}
+
+	@Test
+	public void recordConcurrently() throws InterruptedException {
+		LatencyHistogram histogram = new LatencyHistogram();
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread(() -> {
+				for (int i = 0; i < 10_000; i++) {
+					histogram.recordMicros(i);
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		Assertions.assertEquals(40_000, histogram.snapshot().getCount());
+		Assertions.assertEquals(9_999, histogram.snapshot().getMaxMicros());
+	}
+
+	private void assertApproximately(long expected, long actual) {
+		Assertions.assertTrue(actual >= expected && actual <= expected * 1.032, "Unexpected value " + actual);
+	}
+
+}
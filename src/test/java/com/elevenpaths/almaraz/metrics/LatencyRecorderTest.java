@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.metrics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link LatencyRecorder}.
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class LatencyRecorderTest {
+
+	@Test
+	public void record() {
+		LatencyRecorder recorder = new LatencyRecorder();
+		recorder.record("/api/resources", 200, 10, TimeUnit.MILLISECONDS);
+		recorder.record("/api/resources", 201, 20, TimeUnit.MILLISECONDS);
+		recorder.record("/api/resources", 404, 5, TimeUnit.MILLISECONDS);
+		recorder.record(null, 0, 1, TimeUnit.MILLISECONDS);
+
+		Map<String, LatencyHistogram.Snapshot> snapshots = collect(recorder);
+		Assertions.assertEquals(3, snapshots.size());
+		Assertions.assertEquals(2, snapshots.get("/api/resources 2xx").getCount());
+		Assertions.assertEquals(20_000, snapshots.get("/api/resources 2xx").getMaxMicros());
+		Assertions.assertEquals(1, snapshots.get("/api/resources 4xx").getCount());
+		Assertions.assertEquals(1, snapshots.get(LatencyRecorder.OTHER_ROUTE + " unknown").getCount());
+	}
+
+	@Test
+	public void recordWithMaxRoutes() {
+		LatencyRecorder recorder = new LatencyRecorder(2);
+		recorder.record("/a", 200, 1, TimeUnit.MILLISECONDS);
+		recorder.record("/b", 200, 1, TimeUnit.MILLISECONDS);
+		recorder.record("/c", 500, 1, TimeUnit.MILLISECONDS);
+		recorder.record("/a", 200, 1, TimeUnit.MILLISECONDS);
+
+		Map<String, LatencyHistogram.Snapshot> snapshots = collect(recorder);
+		Assertions.assertEquals(3, snapshots.size());
+		Assertions.assertEquals(2, snapshots.get("/a 2xx").getCount());
+		Assertions.assertEquals(1, snapshots.get("/b 2xx").getCount());
+		Assertions.assertEquals(1, snapshots.get(LatencyRecorder.OTHER_ROUTE + " 5xx").getCount());
+	}
+
+	private Map<String, LatencyHistogram.Snapshot> collect(LatencyRecorder recorder) {
+		Map<String, LatencyHistogram.Snapshot> snapshots = new HashMap<>();
+		recorder.forEach((route, statusClass, snapshot) -> snapshots.put(route + " " + statusClass, snapshot));
+		return snapshots;
+	}
+
+}
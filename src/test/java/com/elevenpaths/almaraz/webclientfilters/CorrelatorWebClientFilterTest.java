@@ -5,19 +5,26 @@
 package com.elevenpaths.almaraz.webclientfilters;
 
 import java.net.URI;
+import java.time.Duration;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.reactive.function.client.ClientRequest;
 import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.ExchangeFunction;
 
 import com.elevenpaths.almaraz.context.RequestContext;
+import com.elevenpaths.almaraz.exceptions.GatewayTimeoutException;
+import com.elevenpaths.almaraz.logging.AccessLogSampler;
+import com.elevenpaths.almaraz.webfilters.DeadlineWebFilter;
 import com.elevenpaths.almaraz.webfilters.RequestContextWebFilter;
 
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 import reactor.util.context.Context;
 
 /**
@@ -47,4 +54,104 @@ public class CorrelatorWebClientFilterTest {
 		Assertions.assertEquals(response, actualResponse);
 	}
 
+	@Test
+	public void filterSampled() {
+		RequestContext requestContext = new RequestContext()
+				.setCorrelator("test-corr")
+				.setSampled(true);
+
+		ClientRequest request = ClientRequest.create(HttpMethod.GET, URI.create("http://localhost:8080")).build();
+		ClientResponse response = Mockito.mock(ClientResponse.class);
+		ExchangeFunction exchange = r -> {
+			Assertions.assertEquals("test-corr", r.headers().getFirst(RequestContextWebFilter.DEFAULT_CORRELATOR_HEADER));
+			Assertions.assertEquals("true", r.headers().getFirst(AccessLogSampler.DEFAULT_SAMPLED_HEADER));
+			return Mono.just(response);
+		};
+
+		CorrelatorWebClientFilter filter = new CorrelatorWebClientFilter();
+		ClientResponse actualResponse = filter.filter(request, exchange)
+				.contextWrite(Context.of(RequestContext.class, requestContext))
+				.block();
+		Assertions.assertEquals(response, actualResponse);
+	}
+
+	@Test
+	public void filterNotSampled() {
+		ClientRequest request = ClientRequest.create(HttpMethod.GET, URI.create("http://localhost:8080")).build();
+		ClientResponse response = Mockito.mock(ClientResponse.class);
+		ExchangeFunction exchange = r -> {
+			Assertions.assertNull(r.headers().getFirst(AccessLogSampler.DEFAULT_SAMPLED_HEADER));
+			return Mono.just(response);
+		};
+
+		CorrelatorWebClientFilter filter = new CorrelatorWebClientFilter();
+		ClientResponse actualResponse = filter.filter(request, exchange)
+				.contextWrite(Context.of(RequestContext.class, new RequestContext().setCorrelator("test-corr")))
+				.block();
+		Assertions.assertEquals(response, actualResponse);
+	}
+
+	@Test
+	public void filterWithDeadline() {
+		RequestContext requestContext = new RequestContext()
+				.setCorrelator("test-corr")
+				.setDeadline(System.nanoTime() + Duration.ofSeconds(10).toNanos());
+
+		ClientRequest request = ClientRequest.create(HttpMethod.GET, URI.create("http://localhost:8080")).build();
+		ExchangeFunction exchange = r -> {
+			long timeout = Long.parseLong(r.headers().getFirst(DeadlineWebFilter.DEFAULT_TIMEOUT_HEADER));
+			Assertions.assertTrue(timeout > 9000 && timeout <= 10000);
+			return Mono.just(ClientResponse.create(HttpStatus.OK).body("test-body").build());
+		};
+
+		CorrelatorWebClientFilter filter = new CorrelatorWebClientFilter();
+		ClientResponse actualResponse = filter.filter(request, exchange)
+				.contextWrite(Context.of(RequestContext.class, requestContext))
+				.block();
+		Assertions.assertEquals(HttpStatus.OK, actualResponse.statusCode());
+		Assertions.assertEquals("test-body", actualResponse.bodyToMono(String.class).block());
+	}
+
+	@Test
+	public void filterWithDeadlineAndSlowBody() {
+		RequestContext requestContext = new RequestContext()
+				.setDeadline(System.nanoTime() + Duration.ofMillis(100).toNanos());
+
+		ClientRequest request = ClientRequest.create(HttpMethod.GET, URI.create("http://localhost:8080")).build();
+		ExchangeFunction exchange = r -> Mono.just(ClientResponse.create(HttpStatus.OK).body(Flux.never()).build());
+
+		CorrelatorWebClientFilter filter = new CorrelatorWebClientFilter();
+		StepVerifier.create(filter.filter(request, exchange)
+					.flatMap(response -> response.bodyToMono(String.class))
+					.contextWrite(Context.of(RequestContext.class, requestContext)))
+			.expectError(GatewayTimeoutException.class)
+			.verify(Duration.ofSeconds(5));
+	}
+
+	@Test
+	public void getTimeoutMillis() {
+		Assertions.assertEquals(1, CorrelatorWebClientFilter.getTimeoutMillis(Duration.ofNanos(1)));
+		Assertions.assertEquals(1, CorrelatorWebClientFilter.getTimeoutMillis(Duration.ofMillis(1)));
+		Assertions.assertEquals(2, CorrelatorWebClientFilter.getTimeoutMillis(Duration.ofNanos(1_000_001)));
+	}
+
+	@Test
+	public void filterWithDeadlineExpired() {
+		ClientRequest request = ClientRequest.create(HttpMethod.GET, URI.create("http://localhost:8080")).build();
+		CorrelatorWebClientFilter filter = new CorrelatorWebClientFilter();
+
+		RequestContext expiredContext = new RequestContext().setDeadline(System.nanoTime() - 1);
+		StepVerifier.create(filter.filter(request, r -> Mono.error(new IllegalStateException("not expected")))
+					.contextWrite(Context.of(RequestContext.class, expiredContext)))
+			.expectError(GatewayTimeoutException.class)
+			.verify();
+
+		RequestContext requestContext = new RequestContext()
+				.setDeadline(System.nanoTime() + Duration.ofMillis(50).toNanos());
+		StepVerifier.create(filter.filter(request, r -> Mono.never())
+					.contextWrite(Context.of(RequestContext.class, requestContext)))
+			.expectError(GatewayTimeoutException.class)
+			.verify(Duration.ofSeconds(5));
+	}
+
 }
@@ -5,6 +5,7 @@
 package com.elevenpaths.almaraz.webclientfilters;
 
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.junit.jupiter.api.Assertions;
@@ -55,4 +56,28 @@ public class LoggerWebClientFilterTest {
 		Assertions.assertEquals("Client response", events.get(1).getMessage());
 	}
 
+	@Test
+	@SuppressWarnings("deprecation")
+	public void filterWithLegacyLogResponse() {
+		ClientRequest request = ClientRequest.create(HttpMethod.GET, URI.create("http://localhost:8080")).build();
+		ClientResponse response = Mockito.mock(ClientResponse.class);
+		List<String> transactionIds = new ArrayList<>();
+		LoggerWebClientFilter filter = new LoggerWebClientFilter(() -> "test-trans") {
+			@Override
+			protected void logResponse(ClientResponse response, long start, String transactionId) {
+				transactionIds.add(transactionId);
+				super.logResponse(response, start, transactionId);
+			}
+		};
+
+		LoggingAppender.clearEvents();
+
+		filter.filter(request, r -> Mono.just(response))
+				.contextWrite(Context.of(RequestContext.class, new RequestContext()))
+				.block();
+
+		Assertions.assertEquals(List.of("test-trans"), transactionIds);
+		Assertions.assertEquals("Client response", LoggingAppender.getEvents().get(1).getMessage());
+	}
+
 }
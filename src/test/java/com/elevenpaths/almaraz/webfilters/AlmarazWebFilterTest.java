@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.webfilters;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.info.BuildProperties;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebHandler;
+import org.springframework.web.server.handler.DefaultWebFilterChain;
+
+import com.elevenpaths.almaraz.context.ContextField;
+import com.elevenpaths.almaraz.exceptions.NotFoundException;
+import com.elevenpaths.almaraz.utils.LoggingAppender;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import reactor.core.publisher.Mono;
+
+/**
+ * Unit tests for {@link AlmarazWebFilter}. The fused web filter is compared with the pipeline of
+ * separate web filters.
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class AlmarazWebFilterTest {
+
+	private static final String BASE_PATH = "/api";
+
+	private static final String[] MDC_FIELDS = {
+			ContextField.CORRELATOR, ContextField.METHOD, ContextField.PATH, ContextField.ADDRESS,
+			ContextField.STATUS, ContextField.ERROR, ContextField.REASON };
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private final BuildProperties buildProperties = createBuildProperties();
+
+	@Test
+	public void filterCreated() {
+		WebHandler handler = e -> {
+			e.getResponse().setStatusCode(HttpStatus.CREATED);
+			e.getResponse().getHeaders().setLocation(URI.create("3"));
+			return e.getResponse().setComplete();
+		};
+		MockServerWebExchange exchange = assertSameOutput(MockServerHttpRequest.post("/api/resources"), handler);
+		Assertions.assertEquals(HttpStatus.CREATED, exchange.getResponse().getStatusCode());
+		Assertions.assertEquals("/api/resources/3", exchange.getResponse().getHeaders().getLocation().toString());
+		Assertions.assertEquals("test-corr", exchange.getResponse().getHeaders().getFirst(
+				RequestContextWebFilter.DEFAULT_CORRELATOR_HEADER));
+	}
+
+	@Test
+	public void filterRedirect() {
+		WebHandler handler = e -> {
+			e.getResponse().setStatusCode(HttpStatus.FOUND);
+			e.getResponse().getHeaders().setLocation(URI.create("../other/3"));
+			return e.getResponse().setComplete();
+		};
+		MockServerWebExchange exchange = assertSameOutput(MockServerHttpRequest.get("/api/resources"), handler);
+		Assertions.assertEquals(HttpStatus.FOUND, exchange.getResponse().getStatusCode());
+		Assertions.assertEquals("/api/other/3", exchange.getResponse().getHeaders().getLocation().toString());
+	}
+
+	@Test
+	public void filterVersion() {
+		MockServerWebExchange exchange = assertSameOutput(MockServerHttpRequest.get("/version"),
+				e -> Mono.error(new IllegalStateException()));
+		Assertions.assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+	}
+
+	@Test
+	public void filterError() {
+		MockServerWebExchange exchange = assertSameOutput(MockServerHttpRequest.get("/api/resources/4"),
+				e -> Mono.error(new NotFoundException()));
+		Assertions.assertEquals(HttpStatus.NOT_FOUND, exchange.getResponse().getStatusCode());
+	}
+
+	@Test
+	public void filterUnhandledError() {
+		MockServerWebExchange exchange = assertSameOutput(MockServerHttpRequest.get("/api/resources/4"),
+				e -> Mono.error(new IllegalStateException("test")));
+		Assertions.assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, exchange.getResponse().getStatusCode());
+	}
+
+	@Test
+	public void filterOutOfBasePath() {
+		MockServerWebExchange exchange = assertSameOutput(MockServerHttpRequest.get("/other/resources"),
+				e -> e.getResponse().setComplete());
+		Assertions.assertEquals(HttpStatus.NOT_FOUND, exchange.getResponse().getStatusCode());
+	}
+
+	private MockServerWebExchange assertSameOutput(MockServerHttpRequest.BaseBuilder<?> request, WebHandler handler) {
+		request.header(RequestContextWebFilter.DEFAULT_CORRELATOR_HEADER, "test-corr");
+
+		List<WebFilter> separateFilters = Arrays.asList(
+				new VersionWebFilter(objectMapper, buildProperties),
+				new RequestContextWebFilter(),
+				new LoggerWebFilter(),
+				new ErrorWebFilter(objectMapper),
+				new CompleteLocationHeaderWebFilter(),
+				new BasePathWebFilter(BASE_PATH));
+		MockServerWebExchange separateExchange = MockServerWebExchange.from(request.build());
+		LoggingAppender.clearEvents();
+		new DefaultWebFilterChain(handler, separateFilters).filter(separateExchange).block(Duration.ZERO);
+		List<ILoggingEvent> separateEvents = new ArrayList<>(LoggingAppender.getEvents());
+
+		List<WebFilter> fusedFilters = Arrays.asList(
+				new AlmarazWebFilter(BASE_PATH, objectMapper, buildProperties));
+		MockServerWebExchange fusedExchange = MockServerWebExchange.from(request.build());
+		LoggingAppender.clearEvents();
+		new DefaultWebFilterChain(handler, fusedFilters).filter(fusedExchange).block(Duration.ZERO);
+		List<ILoggingEvent> fusedEvents = new ArrayList<>(LoggingAppender.getEvents());
+
+		Assertions.assertEquals(separateExchange.getResponse().getStatusCode(),
+				fusedExchange.getResponse().getStatusCode());
+		Assertions.assertEquals(separateExchange.getResponse().getHeaders().getFirst(
+				RequestContextWebFilter.DEFAULT_CORRELATOR_HEADER),
+				fusedExchange.getResponse().getHeaders().getFirst(RequestContextWebFilter.DEFAULT_CORRELATOR_HEADER));
+		Assertions.assertEquals(separateExchange.getResponse().getHeaders().getLocation(),
+				fusedExchange.getResponse().getHeaders().getLocation());
+		Assertions.assertEquals(separateExchange.getResponse().getHeaders().getFirst(HttpHeaders.CONTENT_TYPE),
+				fusedExchange.getResponse().getHeaders().getFirst(HttpHeaders.CONTENT_TYPE));
+		Assertions.assertEquals(separateExchange.getResponse().getBodyAsString().block(Duration.ZERO),
+				fusedExchange.getResponse().getBodyAsString().block(Duration.ZERO));
+
+		Assertions.assertEquals(separateEvents.size(), fusedEvents.size());
+		for (int i = 0; i < separateEvents.size(); i++) {
+			ILoggingEvent separateEvent = separateEvents.get(i);
+			ILoggingEvent fusedEvent = fusedEvents.get(i);
+			Assertions.assertEquals(separateEvent.getLevel(), fusedEvent.getLevel());
+			Assertions.assertEquals(separateEvent.getFormattedMessage(), fusedEvent.getFormattedMessage());
+			for (String field : MDC_FIELDS) {
+				Assertions.assertEquals(separateEvent.getMDCPropertyMap().get(field),
+						fusedEvent.getMDCPropertyMap().get(field));
+			}
+		}
+		return fusedExchange;
+	}
+
+	private static BuildProperties createBuildProperties() {
+		Properties properties = new Properties();
+		properties.put("version", "1.0");
+		return new BuildProperties(properties);
+	}
+
+}
@@ -5,6 +5,7 @@
 package com.elevenpaths.almaraz.webfilters;
 
 import java.time.Duration;
+import java.util.Arrays;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -34,6 +35,9 @@ public class BasePathWebFilterTest {
 
 		filter.filter(exchange, chain).block(Duration.ZERO);
 		Assertions.assertEquals("/test", chain.path);
+		Assertions.assertEquals("/api", chain.contextPath);
+		Assertions.assertSame(exchange.getRequest().getHeaders(), chain.exchange.getRequest().getHeaders());
+		Assertions.assertEquals(exchange.getRequest().getURI(), chain.exchange.getRequest().getURI());
 	}
 
 	@Test
@@ -49,13 +53,66 @@ public class BasePathWebFilterTest {
 			.verify();
 	}
 
+	@Test
+	public void filterWithSeveralBasePaths() {
+		BasePathWebFilter filter = new BasePathWebFilter(Arrays.asList("/v1", "/v2/", "/v1/internal"));
+		String[][] tcs = {
+				{ "/v1/test", "/v1", "/test" },
+				{ "/v2/test/3", "/v2", "/test/3" },
+				{ "/v1/internal/test", "/v1/internal", "/test" },
+				{ "/v1/internals", "/v1", "/internals" },
+				{ "/v2", "/v2", "" } };
+		for (String[] tc : tcs) {
+			TestWebFilterChain chain = new TestWebFilterChain();
+			MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get(tc[0]));
+
+			filter.filter(exchange, chain).block(Duration.ZERO);
+			Assertions.assertEquals(tc[1], chain.contextPath);
+			Assertions.assertEquals(tc[2], chain.path);
+		}
+
+		StepVerifier.create(filter.filter(MockServerWebExchange.from(MockServerHttpRequest.get("/v3/test")),
+					new TestWebFilterChain()))
+			.expectError(NotFoundException.class)
+			.verify();
+	}
+
+	@Test
+	public void filterWithContextPathAlreadySet() {
+		BasePathWebFilter filter = new BasePathWebFilter("/api");
+		TestWebFilterChain chain = new TestWebFilterChain();
+		MockServerWebExchange exchange = MockServerWebExchange.from(
+				MockServerHttpRequest.get("/api/test").contextPath("/api"));
+
+		filter.filter(exchange, chain).block(Duration.ZERO);
+		Assertions.assertSame(exchange, chain.exchange);
+		Assertions.assertEquals("/test", chain.path);
+	}
+
+	@Test
+	public void filterWithoutBasePathConfigured() {
+		BasePathWebFilter filter = new BasePathWebFilter((String) null);
+		TestWebFilterChain chain = new TestWebFilterChain();
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/other/test"));
+
+		filter.filter(exchange, chain).block(Duration.ZERO);
+		Assertions.assertSame(exchange, chain.exchange);
+		Assertions.assertEquals("/other/test", chain.path);
+	}
+
 	private static class TestWebFilterChain implements WebFilterChain {
 
 		private String path;
 
+		private String contextPath;
+
+		private ServerWebExchange exchange;
+
 		@Override
 		public Mono<Void> filter(ServerWebExchange exchange) {
+			this.exchange = exchange;
 			path = exchange.getRequest().getPath().pathWithinApplication().value();
+			contextPath = exchange.getRequest().getPath().contextPath().value();
 			return Mono.empty();
 		}
 
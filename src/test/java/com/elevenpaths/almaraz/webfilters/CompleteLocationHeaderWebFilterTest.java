@@ -35,7 +35,13 @@ public class CompleteLocationHeaderWebFilterTest {
 				new TestCase("4/res/3", "/api/resources/4/res/3"),
 				new TestCase("/3", "/3"),
 				new TestCase("/test/demo", "/test/demo"),
-				new TestCase("http://server.com/3", "http://server.com/3")
+				new TestCase("http://server.com/3", "http://server.com/3"),
+				new TestCase("./3", "/api/resources/3"),
+				new TestCase("../other/3", "/api/other/3"),
+				new TestCase("../../../3", "/3"),
+				new TestCase("3?view=full#top", "/api/resources/3?view=full#top"),
+				new TestCase("%C3%B1", "/api/resources/%C3%B1"),
+				new TestCase("urn:resource:3", "urn:resource:3")
 		);
 
 		CompleteLocationHeaderWebFilter filter = new CompleteLocationHeaderWebFilter();
@@ -54,6 +60,38 @@ public class CompleteLocationHeaderWebFilterTest {
 		Assertions.assertNull(exchange.getResponse().getHeaders().getLocation());
 	}
 
+	@Test
+	public void filterWithRequestQueryAndAbsoluteUri() {
+		CompleteLocationHeaderWebFilter filter = new CompleteLocationHeaderWebFilter();
+		MockServerWebExchange exchange = MockServerWebExchange.from(
+				MockServerHttpRequest.post("http://localhost:8080/api/resources?dryRun=false"));
+		filter.filter(exchange, new TestWebFilterChain("3")).block(Duration.ZERO);
+		Assertions.assertEquals("http://localhost:8080/api/resources/3",
+				exchange.getResponse().getHeaders().getLocation().toASCIIString());
+	}
+
+	@Test
+	public void filterWithLocationMethods() {
+		CompleteLocationHeaderWebFilter filter = new CompleteLocationHeaderWebFilter(
+				CompleteLocationHeaderWebFilter.LOCATION_METHODS);
+
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/api/resources"));
+		filter.filter(exchange, new TestWebFilterChain("3")).block(Duration.ZERO);
+		Assertions.assertEquals("/api/resources/3", exchange.getResponse().getHeaders().getLocation().toASCIIString());
+
+		exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/resources"));
+		filter.filter(exchange, new TestWebFilterChain("3")).block(Duration.ZERO);
+		Assertions.assertEquals("3", exchange.getResponse().getHeaders().getLocation().toASCIIString());
+	}
+
+	@Test
+	public void resolveEncoding() {
+		Assertions.assertEquals("/api/resources/a%20b/%C3%B1",
+				CompleteLocationHeaderWebFilter.resolve(URI.create("/api/resources"), "a b/\u00f1"));
+		Assertions.assertEquals("/api/resources/%25zz#f%23g",
+				CompleteLocationHeaderWebFilter.resolve(URI.create("/api/resources"), "%zz#f#g"));
+	}
+
 	private static class TestCase {
 		String location;
 		String expectedLocation;
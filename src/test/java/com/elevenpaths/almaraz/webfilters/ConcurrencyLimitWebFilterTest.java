@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.webfilters;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+
+import com.elevenpaths.almaraz.exceptions.ServiceUnavailableException;
+import com.elevenpaths.almaraz.limiter.AdaptiveConcurrencyLimiter;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+/**
+ * Unit tests for {@link ConcurrencyLimitWebFilter}.
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class ConcurrencyLimitWebFilterTest {
+
+	private static final WebFilterChain CHAIN = exchange -> {
+		exchange.getResponse().setStatusCode(HttpStatus.OK);
+		return exchange.getResponse().setComplete();
+	};
+
+	@Test
+	public void filter() {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1);
+		ConcurrencyLimitWebFilter filter = new ConcurrencyLimitWebFilter(limiter);
+
+		MockServerWebExchange exchange = createExchange("/api/test");
+		filter.filter(exchange, CHAIN).block(Duration.ZERO);
+		Assertions.assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+		Assertions.assertEquals(0, limiter.getInFlight());
+	}
+
+	@Test
+	public void filterBeyondLimit() {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1);
+		ConcurrencyLimitWebFilter filter = new ConcurrencyLimitWebFilter(limiter).exempt("/api/admin/**");
+
+		Disposable pending = filter.filter(createExchange("/api/test"), e -> Mono.never()).subscribe();
+		Assertions.assertEquals(1, limiter.getInFlight());
+
+		StepVerifier.create(filter.filter(createExchange("/api/test"), CHAIN))
+			.expectError(ServiceUnavailableException.class)
+			.verify();
+
+		for (String path : new String[] { "/health", "/ready", "/version", "/api/admin/users" }) {
+			MockServerWebExchange exchange = createExchange(path);
+			filter.filter(exchange, CHAIN).block(Duration.ZERO);
+			Assertions.assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+		}
+
+		pending.dispose();
+		Assertions.assertEquals(0, limiter.getInFlight());
+
+		MockServerWebExchange exchange = createExchange("/api/test");
+		filter.filter(exchange, CHAIN).block(Duration.ZERO);
+		Assertions.assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+	}
+
+	@Test
+	public void filterWithError() {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1);
+		ConcurrencyLimitWebFilter filter = new ConcurrencyLimitWebFilter(limiter);
+
+		StepVerifier.create(filter.filter(createExchange("/api/test"), e -> Mono.error(new IllegalStateException())))
+			.expectError(IllegalStateException.class)
+			.verify();
+		Assertions.assertEquals(0, limiter.getInFlight());
+	}
+
+	private MockServerWebExchange createExchange(String path) {
+		return MockServerWebExchange.from(MockServerHttpRequest.get(path));
+	}
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.webfilters;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+
+import com.elevenpaths.almaraz.context.RequestContext;
+import com.elevenpaths.almaraz.exceptions.GatewayTimeoutException;
+
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.util.context.Context;
+
+/**
+ * Unit tests for {@link DeadlineWebFilter}.
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class DeadlineWebFilterTest {
+
+	private static final WebFilterChain CHAIN = exchange -> {
+		exchange.getResponse().setStatusCode(HttpStatus.OK);
+		return exchange.getResponse().setComplete();
+	};
+
+	@Test
+	public void filterWithoutTimeout() {
+		DeadlineWebFilter filter = new DeadlineWebFilter();
+		RequestContext requestContext = new RequestContext();
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/test"));
+
+		filter.filter(exchange, CHAIN)
+			.contextWrite(Context.of(RequestContext.class, requestContext))
+			.block(Duration.ZERO);
+		Assertions.assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+		Assertions.assertNull(requestContext.getDeadline());
+	}
+
+	@Test
+	public void filterWithTimeoutHeader() {
+		DeadlineWebFilter filter = new DeadlineWebFilter(Duration.ofSeconds(30));
+		RequestContext requestContext = new RequestContext();
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest
+				.get("/api/test")
+				.header(DeadlineWebFilter.DEFAULT_TIMEOUT_HEADER, "10000"));
+
+		filter.filter(exchange, CHAIN)
+			.contextWrite(Context.of(RequestContext.class, requestContext))
+			.block(Duration.ofSeconds(1));
+		Assertions.assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+		Duration remainingTime = requestContext.getRemainingTime();
+		Assertions.assertTrue(remainingTime.compareTo(Duration.ofSeconds(9)) > 0);
+		Assertions.assertTrue(remainingTime.compareTo(Duration.ofSeconds(10)) <= 0);
+	}
+
+	@Test
+	public void filterExpired() {
+		DeadlineWebFilter filter = new DeadlineWebFilter();
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest
+				.get("/api/test")
+				.header(DeadlineWebFilter.GRPC_TIMEOUT_HEADER, "50m"));
+
+		StepVerifier.create(filter.filter(exchange, e -> Mono.never())
+					.contextWrite(Context.of(RequestContext.class, new RequestContext())))
+			.expectError(GatewayTimeoutException.class)
+			.verify(Duration.ofSeconds(5));
+	}
+
+	@Test
+	public void filterWithZeroTimeout() {
+		DeadlineWebFilter filter = new DeadlineWebFilter(Duration.ZERO);
+
+		StepVerifier.create(filter.filter(MockServerWebExchange.from(MockServerHttpRequest.get("/api/test")), CHAIN))
+			.expectError(GatewayTimeoutException.class)
+			.verify();
+	}
+
+	@Test
+	public void getTimeout() {
+		DeadlineWebFilter filter = new DeadlineWebFilter(Duration.ofSeconds(10))
+				.timeout("/api/reports/**", Duration.ofSeconds(30));
+
+		Assertions.assertEquals(Duration.ofSeconds(10), filter.getTimeout(createExchange("/api/test", null)));
+		Assertions.assertEquals(Duration.ofSeconds(30), filter.getTimeout(createExchange("/api/reports/1", null)));
+		Assertions.assertEquals(Duration.ofSeconds(5), filter.getTimeout(createExchange("/api/test", "5000")));
+		Assertions.assertEquals(Duration.ofSeconds(10), filter.getTimeout(createExchange("/api/test", "60000")));
+		Assertions.assertEquals(Duration.ofSeconds(10), filter.getTimeout(createExchange("/api/test", "invalid")));
+		Assertions.assertNull(new DeadlineWebFilter().getTimeout(createExchange("/api/test", null)));
+	}
+
+	@Test
+	public void filterWithOversizedTimeout() {
+		DeadlineWebFilter filter = new DeadlineWebFilter();
+
+		for (String[] header : new String[][] {
+				{ DeadlineWebFilter.DEFAULT_TIMEOUT_HEADER, Long.toString(Long.MAX_VALUE) },
+				{ DeadlineWebFilter.GRPC_TIMEOUT_HEADER, "99999999H" } }) {
+			RequestContext requestContext = new RequestContext();
+			MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest
+					.get("/api/test")
+					.header(header[0], header[1]));
+
+			Assertions.assertEquals(DeadlineWebFilter.MAX_TIMEOUT, filter.getTimeout(exchange));
+			filter.filter(exchange, CHAIN)
+				.contextWrite(Context.of(RequestContext.class, requestContext))
+				.block(Duration.ofSeconds(1));
+			Assertions.assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+			Assertions.assertTrue(requestContext.getRemainingTime().compareTo(DeadlineWebFilter.MAX_TIMEOUT) <= 0);
+		}
+	}
+
+	@Test
+	public void parseGrpcTimeout() {
+		Assertions.assertEquals(Duration.ofHours(1), DeadlineWebFilter.parseGrpcTimeout("1H"));
+		Assertions.assertEquals(Duration.ofMinutes(2), DeadlineWebFilter.parseGrpcTimeout("2M"));
+		Assertions.assertEquals(Duration.ofSeconds(3), DeadlineWebFilter.parseGrpcTimeout("3S"));
+		Assertions.assertEquals(Duration.ofMillis(100), DeadlineWebFilter.parseGrpcTimeout("100m"));
+		Assertions.assertEquals(Duration.ofNanos(5000), DeadlineWebFilter.parseGrpcTimeout("5u"));
+		Assertions.assertEquals(Duration.ofNanos(7), DeadlineWebFilter.parseGrpcTimeout("7n"));
+		Assertions.assertEquals(DeadlineWebFilter.MAX_TIMEOUT, DeadlineWebFilter.parseGrpcTimeout("99999999H"));
+		Assertions.assertNull(DeadlineWebFilter.parseGrpcTimeout(null));
+		Assertions.assertNull(DeadlineWebFilter.parseGrpcTimeout("m"));
+		Assertions.assertNull(DeadlineWebFilter.parseGrpcTimeout("1x"));
+		Assertions.assertNull(DeadlineWebFilter.parseGrpcTimeout("-1S"));
+		Assertions.assertNull(DeadlineWebFilter.parseGrpcTimeout("123456789S"));
+	}
+
+	private MockServerWebExchange createExchange(String path, String timeout) {
+		MockServerHttpRequest.BaseBuilder<?> builder = MockServerHttpRequest.get(path);
+		if (timeout != null) {
+			builder.header(DeadlineWebFilter.DEFAULT_TIMEOUT_HEADER, timeout);
+		}
+		return MockServerWebExchange.from(builder.build());
+	}
+
+}
@@ -6,10 +6,13 @@ package com.elevenpaths.almaraz.webfilters;
 
 import java.io.IOException;
 import java.time.Duration;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.slf4j.event.Level;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -19,13 +22,30 @@ import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.server.WebFilterChain;
 
+import com.elevenpaths.almaraz.context.ContextField;
+import com.elevenpaths.almaraz.context.RequestContext;
+import com.elevenpaths.almaraz.exceptions.GatewayTimeoutException;
 import com.elevenpaths.almaraz.exceptions.InsufficientScopesException;
 import com.elevenpaths.almaraz.exceptions.InvalidRequestException;
+import com.elevenpaths.almaraz.exceptions.InvalidTokenException;
 import com.elevenpaths.almaraz.exceptions.NotFoundException;
+import com.elevenpaths.almaraz.exceptions.ResponseException;
+import com.elevenpaths.almaraz.exceptions.ServiceUnavailableException;
+import com.elevenpaths.almaraz.logging.DebugLogBuffer;
+import com.elevenpaths.almaraz.logging.DebugLogBufferPool;
+import com.elevenpaths.almaraz.logging.ErrorLogDeduplicator;
+import com.elevenpaths.almaraz.logging.MDCServerWebExchange;
+import com.elevenpaths.almaraz.utils.LoggingAppender;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
+import ch.qos.logback.classic.spi.ILoggingEvent;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
+import reactor.util.context.Context;
 
 /**
  * Unit tests for {@link ErrorWebFilter}.
@@ -95,6 +115,204 @@ public class ErrorWebFilterTest {
 		Assertions.assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, exchange.getResponse().getStatusCode());
 	}
 
+	@Test
+	public void filterWithDuplicatedUnhandledExceptions() {
+		ErrorWebFilter filter = new ErrorWebFilter(new ObjectMapper(), new ErrorLogDeduplicator());
+		Exception exception = new Exception("Unhandled exception");
+
+		LoggingAppender.clearEvents();
+
+		for (int i = 0; i < 3; i++) {
+			MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/test"));
+			filter.filter(exchange, new TestWebFilterChain(exception)).block(Duration.ZERO);
+			Assertions.assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, exchange.getResponse().getStatusCode());
+		}
+
+		List<ILoggingEvent> events = LoggingAppender.getEvents();
+		Assertions.assertEquals(1, events.size());
+		Assertions.assertEquals("Error", events.get(0).getMessage());
+		Assertions.assertNotNull(events.get(0).getThrowableProxy());
+		filter.close();
+	}
+
+	@Test
+	public void filterSummarizesDuplicatedUnhandledExceptions() throws InterruptedException {
+		ErrorWebFilter filter = new ErrorWebFilter(new ObjectMapper(),
+				new ErrorLogDeduplicator(Duration.ofMillis(20), 10, 3));
+		Exception exception = new Exception("Unhandled exception");
+
+		LoggingAppender.clearEvents();
+
+		for (int i = 0; i < 3; i++) {
+			MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/test"));
+			filter.filter(exchange, new TestWebFilterChain(exception)).block(Duration.ZERO);
+		}
+		Thread.sleep(100);
+		filter.close();
+
+		List<ILoggingEvent> events = LoggingAppender.getEvents();
+		Assertions.assertEquals(2, events.size());
+		Assertions.assertEquals("Error", events.get(0).getMessage());
+		Assertions.assertEquals("Suppressed {} duplicated errors: {}", events.get(1).getMessage());
+		Assertions.assertEquals(2L, events.get(1).getArgumentArray()[0]);
+	}
+
+	@Test
+	public void filterDoesNotSummarizeAfterClose() throws InterruptedException {
+		ErrorWebFilter filter = new ErrorWebFilter(new ObjectMapper(),
+				new ErrorLogDeduplicator(Duration.ofMillis(20), 10, 3));
+		Exception exception = new Exception("Unhandled exception");
+		filter.close();
+
+		LoggingAppender.clearEvents();
+
+		for (int i = 0; i < 3; i++) {
+			MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/test"));
+			filter.filter(exchange, new TestWebFilterChain(exception)).block(Duration.ZERO);
+		}
+		Thread.sleep(100);
+
+		List<ILoggingEvent> events = LoggingAppender.getEvents();
+		Assertions.assertEquals(1, events.size());
+		Assertions.assertEquals("Error", events.get(0).getMessage());
+	}
+
+	@Test
+	public void filterLogsRequestFields() {
+		ErrorWebFilter filter = new ErrorWebFilter();
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/test?q=1")
+				.header(MDCServerWebExchange.X_FORWARDED_FOR_HEADER, "10.0.0.1, 10.0.0.2"));
+
+		LoggingAppender.clearEvents();
+
+		filter.filter(exchange, new TestWebFilterChain(new NotFoundException())).block(Duration.ZERO);
+
+		List<ILoggingEvent> events = LoggingAppender.getEvents();
+		Assertions.assertEquals(1, events.size());
+		Map<String, String> mdc = events.get(0).getMDCPropertyMap();
+		Assertions.assertEquals("GET", mdc.get(ContextField.METHOD));
+		Assertions.assertEquals("/api/test", mdc.get(ContextField.PATH));
+		Assertions.assertEquals("q=1", mdc.get(ContextField.QUERY));
+		Assertions.assertEquals("10.0.0.1", mdc.get(ContextField.ADDRESS));
+	}
+
+	@Test
+	public void filterFlushesDebugLogBufferOnlyWithServerErrors() {
+		ErrorWebFilter filter = new ErrorWebFilter();
+		DebugLogBufferPool pool = new DebugLogBufferPool();
+		AtomicInteger flushed = new AtomicInteger();
+
+		for (Throwable t : new Throwable[] { new NotFoundException(), new Exception("Unhandled exception") }) {
+			RequestContext requestContext = new RequestContext();
+			DebugLogBuffer buffer = pool.acquire(requestContext);
+			buffer.add(requestContext, Level.DEBUG, flushed::incrementAndGet);
+			MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/test"));
+
+			filter.filter(exchange, new TestWebFilterChain(t))
+				.contextWrite(Context.of(RequestContext.class, requestContext))
+				.block(Duration.ZERO);
+
+			pool.release(requestContext, buffer);
+		}
+		Assertions.assertEquals(1, flushed.get());
+	}
+
+	@Test
+	public void filterWithRejections() {
+		ErrorWebFilter filter = new ErrorWebFilter();
+		DebugLogBufferPool pool = new DebugLogBufferPool();
+		AtomicInteger flushed = new AtomicInteger();
+
+		for (ResponseException e : new ResponseException[] {
+				ServiceUnavailableException.INSTANCE, GatewayTimeoutException.INSTANCE }) {
+			RequestContext requestContext = new RequestContext();
+			DebugLogBuffer buffer = pool.acquire(requestContext);
+			buffer.add(requestContext, Level.DEBUG, flushed::incrementAndGet);
+			MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/test"));
+
+			LoggingAppender.clearEvents();
+
+			filter.filter(exchange, new TestWebFilterChain(e))
+				.contextWrite(Context.of(RequestContext.class, requestContext))
+				.block(Duration.ZERO);
+
+			Assertions.assertEquals(e.getStatus(), exchange.getResponse().getStatusCode());
+			List<ILoggingEvent> events = LoggingAppender.getEvents();
+			Assertions.assertEquals(1, events.size());
+			Assertions.assertEquals(ch.qos.logback.classic.Level.WARN, events.get(0).getLevel());
+			Assertions.assertEquals(0, buffer.size());
+			buffer.flush();
+			pool.release(requestContext, buffer);
+		}
+		Assertions.assertEquals(0, flushed.get());
+	}
+
+	@Test
+	public void filterWithDetails() throws IOException {
+		ErrorWebFilter filter = new ErrorWebFilter();
+		ResponseException exception = new InvalidRequestException("$.country is invalid")
+				.addDetail("field", "country")
+				.addHeader("test-header", "test-value");
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/test"));
+
+		filter.filter(exchange, new TestWebFilterChain(exception)).block(Duration.ZERO);
+
+		Assertions.assertEquals(HttpStatus.BAD_REQUEST, exchange.getResponse().getStatusCode());
+		Assertions.assertEquals(MediaType.APPLICATION_JSON_VALUE, exchange.getResponse().getHeaders().getContentType().toString());
+		Assertions.assertEquals("test-value", exchange.getResponse().getHeaders().getFirst("test-header"));
+		JsonNode body = new ObjectMapper().readTree(exchange.getResponse().getBodyAsString().block(Duration.ZERO));
+		Assertions.assertEquals("invalid_request", body.get("error").asText());
+		Assertions.assertEquals("$.country is invalid", body.get("error_description").asText());
+		Assertions.assertEquals("country", body.get("error_details").get("field").asText());
+	}
+
+	@Test
+	public void filterWithDetailsUsesObjectMapperConfig() throws IOException {
+		ErrorWebFilter filter = new ErrorWebFilter(new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT)) {
+			@Override
+			protected ObjectNode buildErrorResponseBody(ResponseException e) {
+				return super.buildErrorResponseBody(e).put("custom", "value");
+			}
+		};
+		ResponseException exception = new InvalidRequestException("$.country is invalid")
+				.addDetail("field", "country");
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/test"));
+
+		filter.filter(exchange, new TestWebFilterChain(exception)).block(Duration.ZERO);
+
+		String bodyText = exchange.getResponse().getBodyAsString().block(Duration.ZERO);
+		Assertions.assertTrue(bodyText.contains("\n"));
+		JsonNode body = new ObjectMapper().readTree(bodyText);
+		Assertions.assertEquals("country", body.get("error_details").get("field").asText());
+		Assertions.assertEquals("value", body.get("custom").asText());
+	}
+
+	@Test
+	public void getErrorResponseBodyIsCached() throws JsonProcessingException {
+		ErrorWebFilter filter = new ErrorWebFilter();
+
+		byte[] body = filter.getErrorResponseBody(InvalidTokenException.INSTANCE);
+
+		Assertions.assertSame(body, filter.getErrorResponseBody(InvalidTokenException.INSTANCE));
+		Assertions.assertNotSame(body, filter.getErrorResponseBody(new InvalidTokenException()));
+		Assertions.assertNotSame(filter.getErrorResponseBody(new InvalidRequestException("test")),
+				filter.getErrorResponseBody(new InvalidRequestException("test")));
+		Assertions.assertNull(filter.getErrorResponseBody(new NotFoundException()));
+	}
+
+	@Test
+	public void filterWithCachedBody() {
+		ErrorWebFilter filter = new ErrorWebFilter();
+		for (int i = 0; i < 2; i++) {
+			MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/test"));
+
+			filter.filter(exchange, new TestWebFilterChain(InvalidTokenException.INSTANCE)).block(Duration.ZERO);
+
+			Assertions.assertEquals(HttpStatus.UNAUTHORIZED, exchange.getResponse().getStatusCode());
+			validateErrorBody(exchange, "unauthorized_client", "invalid token: invalid access token");
+		}
+	}
+
 	@SuppressWarnings("unchecked")
 	private void validateErrorBody(MockServerWebExchange exchange, String expectedError, String expectedErrorDescription) {
 		StepVerifier.create(exchange.getResponse().getBodyAsString())
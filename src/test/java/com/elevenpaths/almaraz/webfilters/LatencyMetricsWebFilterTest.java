@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.webfilters;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.server.WebFilterChain;
+
+import com.elevenpaths.almaraz.utils.LoggingAppender;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+/**
+ * Unit tests for {@link LatencyMetricsWebFilter}.
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class LatencyMetricsWebFilterTest {
+
+	@Test
+	public void filterWithMetricsRequest() throws Exception {
+		ObjectMapper objectMapper = new ObjectMapper();
+		LatencyMetricsWebFilter filter = new LatencyMetricsWebFilter(objectMapper);
+
+		WebFilterChain chain = e -> {
+			e.getAttributes().put(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/resources/{id}");
+			e.getResponse().setStatusCode(HttpStatus.OK);
+			return e.getResponse().setComplete();
+		};
+		filter.filter(MockServerWebExchange.from(MockServerHttpRequest.get("/api/resources/1")), chain)
+			.block(Duration.ZERO);
+		filter.filter(MockServerWebExchange.from(MockServerHttpRequest.get("/api/resources/2")), chain)
+			.block(Duration.ZERO);
+		StepVerifier.create(filter.filter(MockServerWebExchange.from(MockServerHttpRequest.get("/unknown")),
+					e -> Mono.error(new IllegalStateException())))
+			.expectError(IllegalStateException.class)
+			.verify();
+
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/metrics"));
+		filter.filter(exchange, chain).block(Duration.ZERO);
+
+		Assertions.assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+		Assertions.assertEquals(MediaType.APPLICATION_JSON_VALUE,
+				exchange.getResponse().getHeaders().getContentType().toString());
+		JsonNode body = objectMapper.readTree(exchange.getResponse().getBodyAsString().block(Duration.ZERO));
+		Assertions.assertEquals(2, body.size());
+		for (JsonNode item : body) {
+			if (item.get("route").asText().equals("/api/resources/{id}")) {
+				Assertions.assertEquals("2xx", item.get("status").asText());
+				Assertions.assertEquals(2, item.get("count").asLong());
+			} else {
+				Assertions.assertEquals("other", item.get("route").asText());
+				Assertions.assertEquals("5xx", item.get("status").asText());
+				Assertions.assertEquals(1, item.get("count").asLong());
+			}
+			Assertions.assertTrue(item.has("p50"));
+			Assertions.assertTrue(item.has("p90"));
+			Assertions.assertTrue(item.has("p99"));
+			Assertions.assertTrue(item.has("p999"));
+			Assertions.assertTrue(item.get("max").asDouble() >= item.get("p50").asDouble());
+		}
+	}
+
+	@Test
+	public void filterWithMetricsMarshallingError() {
+		ObjectMapper objectMapper = new ObjectMapper() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public byte[] writeValueAsBytes(Object value) throws JsonProcessingException {
+				throw new JsonMappingException(null, "test");
+			}
+		};
+		LatencyMetricsWebFilter filter = new LatencyMetricsWebFilter(objectMapper);
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/metrics"));
+
+		LoggingAppender.clearEvents();
+
+		filter.filter(exchange, e -> Mono.error(new IllegalStateException())).block(Duration.ZERO);
+
+		Assertions.assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, exchange.getResponse().getStatusCode());
+		Assertions.assertEquals(1, LoggingAppender.getEvents().size());
+		Assertions.assertEquals("Error marshalling metrics", LoggingAppender.getEvents().get(0).getMessage());
+	}
+
+	@Test
+	public void filterWithNotMetricsRequest() {
+		LatencyMetricsWebFilter filter = new LatencyMetricsWebFilter(new ObjectMapper());
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/metrics"));
+
+		filter.filter(exchange, e -> e.getResponse().setComplete()).block(Duration.ZERO);
+
+		Assertions.assertTrue(exchange.getResponse().isCommitted());
+		int[] count = new int[1];
+		filter.getRecorder().forEach((route, statusClass, snapshot) -> count[0] += snapshot.getCount());
+		Assertions.assertEquals(1, count[0]);
+	}
+
+}
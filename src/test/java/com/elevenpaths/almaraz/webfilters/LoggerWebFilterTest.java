@@ -8,20 +8,30 @@ import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.slf4j.event.Level;
+import org.springframework.http.HttpStatus;
 import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
 import org.springframework.mock.web.server.MockServerWebExchange;
 import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.server.WebFilterChain;
 
+import com.elevenpaths.almaraz.context.ContextField;
 import com.elevenpaths.almaraz.context.RequestContext;
+import com.elevenpaths.almaraz.logging.AccessLogSampler;
+import com.elevenpaths.almaraz.logging.DebugLogBufferPool;
+import com.elevenpaths.almaraz.logging.ReactiveLogger;
 import com.elevenpaths.almaraz.utils.LoggingAppender;
 
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 import reactor.util.context.Context;
 
 /**
@@ -58,6 +68,221 @@ public class LoggerWebFilterTest {
 		Assertions.assertEquals("Response", events.get(1).getMessage());
 	}
 
+	@Test
+	@SuppressWarnings("deprecation")
+	public void filterWithLegacyLogResponse() throws UnknownHostException {
+		List<Long> starts = new ArrayList<>();
+		LoggerWebFilter filter = new LoggerWebFilter() {
+			@Override
+			protected void logResponse(ServerWebExchange exchange, long start) {
+				starts.add(start);
+				super.logResponse(exchange, start);
+			}
+		};
+		long before = System.currentTimeMillis();
+
+		LoggingAppender.clearEvents();
+
+		filter.filter(createExchange(), e -> e.getResponse().setComplete())
+			.contextWrite(Context.of(RequestContext.class, createRequestContext()))
+			.block(Duration.ZERO);
+
+		Assertions.assertEquals(1, starts.size());
+		Assertions.assertTrue(starts.get(0) >= before - 1);
+		Assertions.assertTrue(starts.get(0) <= System.currentTimeMillis());
+		Assertions.assertEquals("Response", LoggingAppender.getEvents().get(1).getMessage());
+	}
+
+	@Test
+	public void filterAccess() throws UnknownHostException {
+		LoggerWebFilter filter = new LoggerWebFilter(LoggerWebFilter.Mode.ACCESS);
+		MockServerWebExchange exchange = createExchange();
+
+		LoggingAppender.clearEvents();
+
+		WebFilterChain chain = e -> {
+			e.getResponse().setStatusCode(HttpStatus.OK);
+			return e.getResponse().setComplete();
+		};
+		filter.filter(exchange, chain)
+			.contextWrite(Context.of(RequestContext.class, createRequestContext()))
+			.block(Duration.ZERO);
+
+		List<ILoggingEvent> events = LoggingAppender.getEvents();
+		Assertions.assertEquals(1, events.size());
+		Assertions.assertEquals("Access", events.get(0).getMessage());
+		Map<String, String> mdc = events.get(0).getMDCPropertyMap();
+		Assertions.assertEquals("GET", mdc.get(ContextField.METHOD));
+		Assertions.assertEquals("/api/test", mdc.get(ContextField.PATH));
+		Assertions.assertEquals("/172.16.1.11", mdc.get(ContextField.ADDRESS));
+		Assertions.assertEquals("200", mdc.get(ContextField.STATUS));
+		Assertions.assertEquals("test-corr", mdc.get(ContextField.CORRELATOR));
+		Assertions.assertNotNull(mdc.get(ContextField.LATENCY));
+	}
+
+	@Test
+	public void filterAccessWithLatency() throws UnknownHostException {
+		List<Duration> latencies = new ArrayList<>();
+		LoggerWebFilter filter = new LoggerWebFilter(LoggerWebFilter.Mode.ACCESS) {
+			@Override
+			protected void logAccess(ServerWebExchange exchange, Duration latency) {
+				latencies.add(latency);
+				super.logAccess(exchange, latency);
+			}
+		};
+
+		LoggingAppender.clearEvents();
+
+		filter.filter(createExchange(), e -> Mono.delay(Duration.ofMillis(20)).then(e.getResponse().setComplete()))
+			.contextWrite(Context.of(RequestContext.class, createRequestContext()))
+			.block();
+
+		Assertions.assertEquals(1, latencies.size());
+		Assertions.assertTrue(latencies.get(0).toMillis() >= 20);
+		Assertions.assertEquals(Long.toString(latencies.get(0).toMillis()),
+				LoggingAppender.getEvents().get(0).getMDCPropertyMap().get(ContextField.LATENCY));
+	}
+
+	@Test
+	public void filterAccessError() throws UnknownHostException {
+		LoggerWebFilter filter = new LoggerWebFilter(LoggerWebFilter.Mode.ACCESS);
+		MockServerWebExchange exchange = createExchange();
+
+		LoggingAppender.clearEvents();
+
+		StepVerifier.create(filter.filter(exchange, e -> Mono.error(new IllegalStateException("test")))
+					.contextWrite(Context.of(RequestContext.class, createRequestContext())))
+			.expectError(IllegalStateException.class)
+			.verify();
+
+		List<ILoggingEvent> events = LoggingAppender.getEvents();
+		Assertions.assertEquals(1, events.size());
+		Assertions.assertEquals("Access", events.get(0).getMessage());
+		Assertions.assertEquals("test-corr", events.get(0).getMDCPropertyMap().get(ContextField.CORRELATOR));
+	}
+
+	@Test
+	public void filterAccessCancel() throws UnknownHostException {
+		LoggerWebFilter filter = new LoggerWebFilter(LoggerWebFilter.Mode.ACCESS);
+		MockServerWebExchange exchange = createExchange();
+
+		LoggingAppender.clearEvents();
+
+		filter.filter(exchange, e -> Mono.never())
+			.contextWrite(Context.of(RequestContext.class, createRequestContext()))
+			.subscribe()
+			.dispose();
+
+		List<ILoggingEvent> events = LoggingAppender.getEvents();
+		Assertions.assertEquals(1, events.size());
+		Assertions.assertEquals("Access", events.get(0).getMessage());
+		Assertions.assertEquals("GET", events.get(0).getMDCPropertyMap().get(ContextField.METHOD));
+	}
+
+	@Test
+	public void filterSampledOut() throws UnknownHostException {
+		LoggerWebFilter filter = new LoggerWebFilter(null, new AccessLogSampler(0.0));
+		RequestContext requestContext = createRequestContext();
+
+		LoggingAppender.clearEvents();
+
+		filter.filter(createExchange(), new TestWebFilterChain())
+			.contextWrite(Context.of(RequestContext.class, requestContext))
+			.block(Duration.ZERO);
+
+		Assertions.assertEquals(0, LoggingAppender.getEvents().size());
+		Assertions.assertEquals(Boolean.FALSE, requestContext.getSampled());
+	}
+
+	@Test
+	public void filterSampledOutForcedByError() throws UnknownHostException {
+		LoggerWebFilter filter = new LoggerWebFilter(LoggerWebFilter.Mode.ACCESS, new AccessLogSampler(0.0));
+		WebFilterChain chain = e -> {
+			e.getResponse().setStatusCode(HttpStatus.INTERNAL_SERVER_ERROR);
+			return e.getResponse().setComplete();
+		};
+
+		LoggingAppender.clearEvents();
+
+		filter.filter(createExchange(), chain)
+			.contextWrite(Context.of(RequestContext.class, createRequestContext()))
+			.block(Duration.ZERO);
+
+		List<ILoggingEvent> events = LoggingAppender.getEvents();
+		Assertions.assertEquals(1, events.size());
+		Assertions.assertEquals("Access", events.get(0).getMessage());
+		Assertions.assertEquals("500", events.get(0).getMDCPropertyMap().get(ContextField.STATUS));
+		Assertions.assertFalse(events.get(0).getMDCPropertyMap().containsKey("sampled"));
+	}
+
+	@Test
+	public void filterSampledByHeader() throws UnknownHostException {
+		LoggerWebFilter filter = new LoggerWebFilter(null, new AccessLogSampler(0.0).trustSampledHeader(true));
+		MockServerHttpRequest request = MockServerHttpRequest
+				.get("/api/test")
+				.header(AccessLogSampler.DEFAULT_SAMPLED_HEADER, "true")
+				.build();
+		RequestContext requestContext = createRequestContext();
+
+		LoggingAppender.clearEvents();
+
+		filter.filter(MockServerWebExchange.from(request), new TestWebFilterChain())
+			.contextWrite(Context.of(RequestContext.class, requestContext))
+			.block(Duration.ZERO);
+
+		Assertions.assertEquals(2, LoggingAppender.getEvents().size());
+		Assertions.assertEquals(Boolean.TRUE, requestContext.getSampled());
+	}
+
+	@Test
+	public void filterDebugLogBuffer() throws UnknownHostException {
+		ch.qos.logback.classic.Logger logger = (ch.qos.logback.classic.Logger) LoggerFactory.getLogger("test-debug");
+		logger.setLevel(ch.qos.logback.classic.Level.DEBUG);
+		DebugLogBufferPool pool = new DebugLogBufferPool();
+		LoggerWebFilter filter = new LoggerWebFilter(LoggerWebFilter.Mode.ACCESS, null, pool);
+
+		for (HttpStatus status : new HttpStatus[] { HttpStatus.OK, HttpStatus.SERVICE_UNAVAILABLE }) {
+			WebFilterChain chain = e -> ReactiveLogger.log(logger, Level.DEBUG, "Debug {}", () -> status)
+					.then(Mono.defer(() -> {
+						e.getResponse().setStatusCode(status);
+						return e.getResponse().setComplete();
+					}));
+			RequestContext requestContext = createRequestContext();
+
+			LoggingAppender.clearEvents();
+
+			filter.filter(createExchange(), chain)
+				.contextWrite(Context.of(RequestContext.class, requestContext))
+				.block(Duration.ZERO);
+
+			List<ILoggingEvent> events = LoggingAppender.getEvents();
+			if (status.is5xxServerError()) {
+				Assertions.assertEquals(2, events.size());
+				Assertions.assertEquals("Access", events.get(0).getMessage());
+				Assertions.assertEquals("Debug 503 SERVICE_UNAVAILABLE", events.get(1).getFormattedMessage());
+			} else {
+				Assertions.assertEquals(1, events.size());
+				Assertions.assertEquals("Access", events.get(0).getMessage());
+			}
+			Assertions.assertNull(requestContext.getDebugLogBuffer());
+			Assertions.assertEquals(1, pool.getPooledCount());
+		}
+	}
+
+	private MockServerWebExchange createExchange() throws UnknownHostException {
+		MockServerHttpRequest request = MockServerHttpRequest
+				.get("/api/test")
+				.remoteAddress(new InetSocketAddress(InetAddress.getByName("172.16.1.11"), 1000))
+				.build();
+		return MockServerWebExchange.from(request);
+	}
+
+	private RequestContext createRequestContext() {
+		return new RequestContext()
+				.setCorrelator("test-corr")
+				.setTransactionId("test-trans");
+	}
+
 	private static class TestWebFilterChain implements WebFilterChain {
 
 		@Override
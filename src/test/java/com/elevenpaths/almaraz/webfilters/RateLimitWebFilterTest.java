@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.webfilters;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+
+import com.elevenpaths.almaraz.context.RequestContext;
+import com.elevenpaths.almaraz.exceptions.TooManyRequestsException;
+import com.elevenpaths.almaraz.limiter.TokenBucketRateLimiter;
+
+import reactor.test.StepVerifier;
+import reactor.util.context.Context;
+
+/**
+ * Unit tests for {@link RateLimitWebFilter}.
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class RateLimitWebFilterTest {
+
+	private static final WebFilterChain CHAIN = exchange -> {
+		exchange.getResponse().setStatusCode(HttpStatus.OK);
+		return exchange.getResponse().setComplete();
+	};
+
+	@Test
+	public void filterByRemoteAddress() throws UnknownHostException {
+		RateLimitWebFilter filter = new RateLimitWebFilter(new TokenBucketRateLimiter(1, Duration.ofHours(1)));
+
+		MockServerWebExchange exchange = createExchange("172.16.1.11");
+		filter.filter(exchange, CHAIN).block(Duration.ZERO);
+		Assertions.assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+
+		StepVerifier.create(filter.filter(createExchange("172.16.1.11"), CHAIN))
+			.expectErrorSatisfies(e -> {
+				Assertions.assertTrue(e instanceof TooManyRequestsException);
+				TooManyRequestsException tooManyRequests = (TooManyRequestsException) e;
+				Assertions.assertEquals(HttpStatus.TOO_MANY_REQUESTS, tooManyRequests.getStatus());
+				Assertions.assertEquals("3600", tooManyRequests.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+			})
+			.verify();
+
+		MockServerWebExchange otherExchange = createExchange("172.16.1.12");
+		filter.filter(otherExchange, CHAIN).block(Duration.ZERO);
+		Assertions.assertEquals(HttpStatus.OK, otherExchange.getResponse().getStatusCode());
+	}
+
+	@Test
+	public void filterByUser() throws UnknownHostException {
+		RateLimitWebFilter filter = new RateLimitWebFilter(new TokenBucketRateLimiter(1, Duration.ofHours(1)),
+				RateLimitWebFilter.USER);
+
+		for (String user : new String[] { "user1", "user2" }) {
+			MockServerWebExchange exchange = createExchange("172.16.1.11");
+			filter.filter(exchange, CHAIN)
+				.contextWrite(Context.of(RequestContext.class, new RequestContext().setUser(user)))
+				.block(Duration.ZERO);
+			Assertions.assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+		}
+
+		StepVerifier.create(filter.filter(createExchange("172.16.1.12"), CHAIN)
+					.contextWrite(Context.of(RequestContext.class, new RequestContext().setUser("user1"))))
+			.expectError(TooManyRequestsException.class)
+			.verify();
+	}
+
+	@Test
+	public void getRetryAfterSeconds() {
+		Assertions.assertEquals(1, RateLimitWebFilter.getRetryAfterSeconds(1));
+		Assertions.assertEquals(1, RateLimitWebFilter.getRetryAfterSeconds(TimeUnit.SECONDS.toNanos(1)));
+		Assertions.assertEquals(2, RateLimitWebFilter.getRetryAfterSeconds(TimeUnit.MILLISECONDS.toNanos(1001)));
+	}
+
+	private MockServerWebExchange createExchange(String address) throws UnknownHostException {
+		MockServerHttpRequest request = MockServerHttpRequest
+				.get("/api/test")
+				.remoteAddress(new InetSocketAddress(InetAddress.getByName(address), 1000))
+				.build();
+		return MockServerWebExchange.from(request);
+	}
+
+}
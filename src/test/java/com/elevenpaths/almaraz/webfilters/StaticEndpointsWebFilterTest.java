@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) Telefonica I+D. All rights reserved.
+ */
+
+package com.elevenpaths.almaraz.webfilters;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.boot.info.BuildProperties;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Unit tests for {@link StaticEndpointsWebFilter}.
+ *
+ * @author Jorge Lorenzo <jorge.lorenzogallardo@telefonica.com>
+ *
+ */
+public class StaticEndpointsWebFilterTest {
+
+	private static final String LARGE_BODY = "{\"status\":\"" + "UP".repeat(200) + "\"}";
+
+	@Test
+	public void filterWithNotStaticEndpointRequest() {
+		StaticEndpointsWebFilter filter = new StaticEndpointsWebFilter().health("/health");
+		TestWebFilterChain chain = new TestWebFilterChain();
+
+		List<MockServerWebExchange> exchanges = Arrays.asList(
+				MockServerWebExchange.from(MockServerHttpRequest.get("/")),
+				MockServerWebExchange.from(MockServerHttpRequest.get("/health2")),
+				MockServerWebExchange.from(MockServerHttpRequest.get("/health/")),
+				MockServerWebExchange.from(MockServerHttpRequest.post("/health")),
+				MockServerWebExchange.from(MockServerHttpRequest.delete("/health")));
+		for (MockServerWebExchange exchange : exchanges) {
+			filter.filter(exchange, chain).block(Duration.ZERO);
+			Assertions.assertEquals(HttpStatus.NO_CONTENT, exchange.getResponse().getStatusCode());
+		}
+	}
+
+	@Test
+	public void filterWithHealthRequest() {
+		StaticEndpointsWebFilter filter = new StaticEndpointsWebFilter().health("/health").health("/ready");
+
+		for (String path : new String[] { "/health", "/ready" }) {
+			MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get(path));
+			filter.filter(exchange, new TestWebFilterChain()).block(Duration.ZERO);
+			Assertions.assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+			Assertions.assertEquals(MediaType.APPLICATION_JSON, exchange.getResponse().getHeaders().getContentType());
+			Assertions.assertNotNull(exchange.getResponse().getHeaders().getETag());
+			Assertions.assertNull(exchange.getResponse().getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+			Assertions.assertEquals(StaticEndpointsWebFilter.DEFAULT_HEALTH_BODY,
+					exchange.getResponse().getBodyAsString().block(Duration.ZERO));
+		}
+	}
+
+	@Test
+	public void filterWithHeadRequest() {
+		StaticEndpointsWebFilter filter = new StaticEndpointsWebFilter().health("/health");
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.head("/health"));
+
+		filter.filter(exchange, new TestWebFilterChain()).block(Duration.ZERO);
+		Assertions.assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+		Assertions.assertEquals(StaticEndpointsWebFilter.DEFAULT_HEALTH_BODY.length(),
+				exchange.getResponse().getHeaders().getContentLength());
+		Assertions.assertEquals("", exchange.getResponse().getBodyAsString().block(Duration.ZERO));
+	}
+
+	@Test
+	public void filterWithVersionRequest() throws JsonProcessingException {
+		String body = "{\"version\": \"1.0\"}";
+		BuildProperties buildProperties = Mockito.mock(BuildProperties.class);
+		ObjectMapper objectMapper = Mockito.mock(ObjectMapper.class);
+		Mockito.when(objectMapper.writeValueAsBytes(buildProperties)).thenReturn(body.getBytes());
+
+		StaticEndpointsWebFilter filter = new StaticEndpointsWebFilter().version(objectMapper, buildProperties);
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/version"));
+
+		filter.filter(exchange, new TestWebFilterChain()).block(Duration.ZERO);
+		Assertions.assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+		Assertions.assertEquals(body, exchange.getResponse().getBodyAsString().block(Duration.ZERO));
+	}
+
+	@Test
+	public void filterWithIfNoneMatch() {
+		StaticEndpointsWebFilter filter = new StaticEndpointsWebFilter().health("/health");
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/health"));
+		filter.filter(exchange, new TestWebFilterChain()).block(Duration.ZERO);
+		String etag = exchange.getResponse().getHeaders().getETag();
+
+		MockServerWebExchange conditionalExchange = MockServerWebExchange.from(MockServerHttpRequest
+				.get("/health")
+				.header(HttpHeaders.IF_NONE_MATCH, "\"other\", W/" + etag));
+		filter.filter(conditionalExchange, new TestWebFilterChain()).block(Duration.ZERO);
+		Assertions.assertEquals(HttpStatus.NOT_MODIFIED, conditionalExchange.getResponse().getStatusCode());
+		Assertions.assertEquals(etag, conditionalExchange.getResponse().getHeaders().getETag());
+		Assertions.assertEquals("", conditionalExchange.getResponse().getBodyAsString().block(Duration.ZERO));
+
+		MockServerWebExchange modifiedExchange = MockServerWebExchange.from(MockServerHttpRequest
+				.get("/health")
+				.header(HttpHeaders.IF_NONE_MATCH, "\"other\""));
+		filter.filter(modifiedExchange, new TestWebFilterChain()).block(Duration.ZERO);
+		Assertions.assertEquals(HttpStatus.OK, modifiedExchange.getResponse().getStatusCode());
+	}
+
+	@Test
+	public void filterWithGzip() throws IOException {
+		StaticEndpointsWebFilter filter = new StaticEndpointsWebFilter()
+				.endpoint("/large", MediaType.APPLICATION_JSON, LARGE_BODY.getBytes(StandardCharsets.UTF_8));
+
+		MockServerWebExchange identityExchange = MockServerWebExchange.from(MockServerHttpRequest.get("/large"));
+		filter.filter(identityExchange, new TestWebFilterChain()).block(Duration.ZERO);
+		Assertions.assertNull(identityExchange.getResponse().getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+		Assertions.assertEquals(HttpHeaders.ACCEPT_ENCODING, identityExchange.getResponse().getHeaders().getFirst(HttpHeaders.VARY));
+
+		MockServerWebExchange gzipExchange = MockServerWebExchange.from(MockServerHttpRequest
+				.get("/large")
+				.header(HttpHeaders.ACCEPT_ENCODING, "deflate, gzip;q=0.8"));
+		filter.filter(gzipExchange, new TestWebFilterChain()).block(Duration.ZERO);
+		HttpHeaders headers = gzipExchange.getResponse().getHeaders();
+		Assertions.assertEquals("gzip", headers.getFirst(HttpHeaders.CONTENT_ENCODING));
+		Assertions.assertNotEquals(identityExchange.getResponse().getHeaders().getETag(), headers.getETag());
+		byte[] gzipped = DataBufferUtils.join(gzipExchange.getResponse().getBody())
+				.map(buffer -> {
+					byte[] bytes = new byte[buffer.readableByteCount()];
+					buffer.read(bytes);
+					return bytes;
+				})
+				.block(Duration.ZERO);
+		Assertions.assertEquals(headers.getContentLength(), gzipped.length);
+		try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+			Assertions.assertEquals(LARGE_BODY, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+		}
+	}
+
+	@Test
+	public void filterWithDynamicEndpoint() {
+		AtomicInteger counter = new AtomicInteger();
+		StaticEndpointsWebFilter filter = new StaticEndpointsWebFilter()
+				.endpoint("/counter", MediaType.TEXT_PLAIN,
+						() -> Integer.toString(counter.incrementAndGet()).getBytes(StandardCharsets.UTF_8));
+
+		for (int i = 1; i <= 2; i++) {
+			MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/counter"));
+			filter.filter(exchange, new TestWebFilterChain()).block(Duration.ZERO);
+			Assertions.assertEquals(Integer.toString(i), exchange.getResponse().getBodyAsString().block(Duration.ZERO));
+		}
+	}
+
+	@Test
+	public void acceptsGzip() {
+		Assertions.assertFalse(StaticEndpointsWebFilter.acceptsGzip(null));
+		Assertions.assertFalse(StaticEndpointsWebFilter.acceptsGzip(Arrays.asList("deflate, br")));
+		Assertions.assertFalse(StaticEndpointsWebFilter.acceptsGzip(Arrays.asList("gzip;q=0")));
+		Assertions.assertFalse(StaticEndpointsWebFilter.acceptsGzip(Arrays.asList("br, gzip; q=0.0")));
+		Assertions.assertTrue(StaticEndpointsWebFilter.acceptsGzip(Arrays.asList("gzip")));
+		Assertions.assertTrue(StaticEndpointsWebFilter.acceptsGzip(Arrays.asList("deflate", "GZIP;q=0.5")));
+		Assertions.assertTrue(StaticEndpointsWebFilter.acceptsGzip(Arrays.asList("*")));
+	}
+
+	@Test
+	public void matchesETag() {
+		Assertions.assertFalse(StaticEndpointsWebFilter.matchesETag(null, "\"abc\""));
+		Assertions.assertFalse(StaticEndpointsWebFilter.matchesETag(Arrays.asList("\"ab\""), "\"abc\""));
+		Assertions.assertTrue(StaticEndpointsWebFilter.matchesETag(Arrays.asList("\"abc\""), "\"abc\""));
+		Assertions.assertTrue(StaticEndpointsWebFilter.matchesETag(Arrays.asList("\"x\", W/\"abc\""), "\"abc\""));
+		Assertions.assertTrue(StaticEndpointsWebFilter.matchesETag(Arrays.asList(" * "), "\"abc\""));
+	}
+
+	private static class TestWebFilterChain implements WebFilterChain {
+		@Override
+		public Mono<Void> filter(ServerWebExchange exchange) {
+			exchange.getResponse().setStatusCode(HttpStatus.NO_CONTENT);
+			return exchange.getResponse().setComplete();
+		}
+	}
+
+}